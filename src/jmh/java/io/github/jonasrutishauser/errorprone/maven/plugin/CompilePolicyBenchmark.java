@@ -0,0 +1,119 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the compile policies on a synthetic source set: the wall-clock time
+ * of a forked javac running Error Prone per operation, and the peak heap of its
+ * JVM taken from its GC log as secondary result.
+ * <p>
+ * Error Prone is taken from the classpath of the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompilePolicyBenchmark {
+
+    private static final int METHODS = 20;
+
+    @Param({ "SIMPLE", "BYFILE" })
+    CompilePolicy compilePolicy;
+
+    @Param({ "1000" })
+    int sourceFiles;
+
+    List<Path> processorPath;
+    List<Path> sources;
+    Path historyDirectory;
+    ErrorProneAnalysis analysis;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PeakHeap {
+        public long peakHeapMb;
+    }
+
+    @Setup(Level.Trial)
+    public void createSources() throws IOException {
+        processorPath = Stream.of(System.getProperty("java.class.path").split(File.pathSeparator)).map(Path::of)
+                .toList();
+        if (processorPath.stream().noneMatch(entry -> entry.getFileName().toString().startsWith("error_prone_core"))) {
+            throw new IllegalStateException("Error Prone is not on the classpath");
+        }
+        Path directory = Files.createTempDirectory("compile-policy");
+        Path packageDirectory = Files.createDirectories(directory.resolve("src/bench"));
+        sources = new ArrayList<>();
+        for (int i = 0; i < sourceFiles; i++) {
+            Path source = packageDirectory.resolve("C" + i + ".java");
+            Files.writeString(source, createSource(i));
+            sources.add(source);
+        }
+        historyDirectory = directory.resolve("history");
+        CompilerJvmHistory history = CompilerJvmHistory.update(historyDirectory);
+        List<String> jvmArguments = new ArrayList<>(CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION);
+        jvmArguments.add("-J" + history.getLogArgument().orElseThrow());
+        List<String> options = new ArrayList<>(List.of(compilePolicy.getCompilerArg()));
+        options.addAll(CompilerConfiguration.COMPILER_ARGS);
+        options.add("-proc:none");
+        options.add("-Xplugin:ErrorProne");
+        analysis = new ErrorProneAnalysis(compilePolicy.name(), directory, "compile", jvmArguments, options);
+    }
+
+    @Benchmark
+    public void compile(PeakHeap peakHeap) throws IOException, InterruptedException {
+        ErrorProneAnalysis.Result result = analysis.run(processorPath, sources);
+        if (!result.succeeded()) {
+            throw new IllegalStateException(String.join("\n", result.output()));
+        }
+        List<CompilerJvmHistory.Build> builds = CompilerJvmHistory.update(historyDirectory).getBuilds();
+        peakHeap.peakHeapMb = builds.get(builds.size() - 1).peakHeapKb() / 1024;
+    }
+
+    private static String createSource(int index) {
+        StringBuilder source = new StringBuilder("package bench;\n\n") //
+                .append("import java.util.ArrayList;\n") //
+                .append("import java.util.List;\n") //
+                .append("import java.util.Map;\n") //
+                .append("import java.util.stream.Collectors;\n\n") //
+                .append("public class C").append(index).append(" {\n\n") //
+                .append("    private final List<String> values = new ArrayList<>();\n");
+        for (int i = 0; i < METHODS; i++) {
+            source.append("\n    public Map<String, Integer> method").append(i).append("(List<String> input) {\n")
+                    .append("        values.addAll(input);\n")
+                    .append("        return values.stream().filter(value -> value.length() > ").append(i)
+                    .append(")\n                .collect(Collectors.toMap(value -> value + ").append(i)
+                    .append(", String::length, Integer::sum));\n") //
+                    .append("    }\n");
+        }
+        if (index > 0) {
+            source.append("\n    public Object previous() {\n        return new C").append(index - 1)
+                    .append("().method0(values);\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.execution.ProjectExecutionEvent;
+import org.apache.maven.lifecycle.LifecycleExecutionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the configuration path of the plugin for a whole synthetic reactor
+ * per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    int reactorSize;
+
+    SyntheticReactor reactor;
+    CompilerConfiguration compilerConfiguration;
+    ErrorproneConfigurationProjectExecutionListener listener;
+    List<ConfigurationMojo> mojos;
+    CompilerSettings settings;
+
+    @Setup(Level.Trial)
+    public void createReactor() throws LifecycleExecutionException {
+        reactor = new SyntheticReactor(reactorSize);
+        compilerConfiguration = new CompilerConfiguration(new ProcessorPathResolver(null),
+                new ClassDataSharing(null), null);
+        IncrementalAnalysis incrementalAnalysis = new IncrementalAnalysis();
+        DeferredAnalysis deferredAnalysis = new DeferredAnalysis(new ProcessorPathResolver(null), incrementalAnalysis,
+                new ErrorProneClassLoaders(), new ClassDataSharing(null), null);
+        listener = new ErrorproneConfigurationProjectExecutionListener(() -> compilerConfiguration,
+                () -> incrementalAnalysis, () -> deferredAnalysis);
+        settings = new CompilerSettings("errorprone.compile.argument", List.of(), false,
+                CompilePolicy.SIMPLE, null, null, false, false);
+        mojos = new ArrayList<>();
+        for (MavenProject project : reactor.getProjects()) {
+            project.getProperties().setProperty("errorprone.compile.argument", "-Xplugin:ErrorProne");
+            mojos.add(reactor.createMojo(project, compilerConfiguration));
+            listener.beforeProjectLifecycleExecution(new ProjectExecutionEvent(reactor.getSession(project), project,
+                    reactor.getExecutionPlan(project)));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnconfiguredCompilerExecutions {
+
+        @Setup(Level.Invocation)
+        public void reset(ConfigurationBenchmark benchmark) {
+            benchmark.reactor.resetCompilerConfigurations();
+        }
+
+    }
+
+    @Benchmark
+    public void getFlags(Blackhole blackhole) throws MojoExecutionException {
+        for (ConfigurationMojo mojo : mojos) {
+            blackhole.consume(mojo.getFlags(null, List.of(), true));
+        }
+    }
+
+    @Benchmark
+    public void configure(UnconfiguredCompilerExecutions executions) {
+        for (MavenProject project : reactor.getProjects()) {
+            compilerConfiguration.configure(reactor.getSession(project), project, settings);
+        }
+    }
+
+    @Benchmark
+    public void beforeProjectLifecycleExecution() throws LifecycleExecutionException {
+        for (MavenProject project : reactor.getProjects()) {
+            listener.beforeProjectLifecycleExecution(new ProjectExecutionEvent(reactor.getSession(project), project,
+                    reactor.getExecutionPlan(project)));
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectExecutionEvent;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Configures a whole synthetic reactor with as many builder threads as with
+ * {@code -T}: every project registers its compiler executions, runs the
+ * configuration mojo and clears its executions again, concurrently with the
+ * other projects.
+ * <p>
+ * The wall-clock time per reactor is compared over the thread counts to see the
+ * scaling. After every invocation the resulting compiler configurations must be
+ * identical to the ones of a sequential build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelConfigurationBenchmark {
+
+    @Param({ "1000" })
+    int reactorSize;
+
+    @Param({ "1", "4", "8", "32" })
+    int threads;
+
+    SyntheticReactor reactor;
+    CompilerConfiguration compilerConfiguration;
+    ErrorproneConfigurationProjectExecutionListener listener;
+    Map<MavenProject, ConfigurationMojo> mojos;
+    List<String> expectedConfigurations;
+    ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void createReactor() throws Exception {
+        reactor = new SyntheticReactor(reactorSize);
+        compilerConfiguration = new CompilerConfiguration(new ProcessorPathResolver(null),
+                new ClassDataSharing(null), null);
+        IncrementalAnalysis incrementalAnalysis = new IncrementalAnalysis();
+        DeferredAnalysis deferredAnalysis = new DeferredAnalysis(new ProcessorPathResolver(null), incrementalAnalysis,
+                new ErrorProneClassLoaders(), new ClassDataSharing(null), null);
+        listener = new ErrorproneConfigurationProjectExecutionListener(() -> compilerConfiguration,
+                () -> incrementalAnalysis, () -> deferredAnalysis);
+        mojos = new LinkedHashMap<>();
+        for (MavenProject project : reactor.getProjects()) {
+            mojos.put(project, reactor.createMojo(project, compilerConfiguration));
+        }
+        for (MavenProject project : reactor.getProjects()) {
+            build(project);
+        }
+        expectedConfigurations = reactor.getCompilerConfigurations();
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        reactor.resetCompilerConfigurations();
+    }
+
+    @TearDown(Level.Invocation)
+    public void verify() {
+        if (!expectedConfigurations.equals(reactor.getCompilerConfigurations())) {
+            throw new IllegalStateException("Compiler configurations differ from the sequential build");
+        }
+    }
+
+    @Benchmark
+    public void buildReactor() throws InterruptedException, ExecutionException {
+        List<Callable<Void>> builds = new ArrayList<>();
+        for (MavenProject project : reactor.getProjects()) {
+            builds.add(() -> {
+                build(project);
+                return null;
+            });
+        }
+        for (Future<Void> build : executor.invokeAll(builds)) {
+            build.get();
+        }
+    }
+
+    private void build(MavenProject project) throws Exception {
+        MavenSession session = reactor.getSession(project);
+        // the current project is thread local, the builders set it on the builder thread
+        session.setCurrentProject(project);
+        ProjectExecutionEvent event = new ProjectExecutionEvent(session, project, reactor.getExecutionPlan(project));
+        listener.beforeProjectLifecycleExecution(event);
+        mojos.get(project).execute();
+        listener.afterProjectExecutionSuccess(event);
+    }
+
+}
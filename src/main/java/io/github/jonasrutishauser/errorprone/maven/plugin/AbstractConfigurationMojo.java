@@ -1,19 +1,38 @@
 package io.github.jonasrutishauser.errorprone.maven.plugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import javax.inject.Inject;
 
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.resolution.DependencyResolutionException;
 
 abstract class AbstractConfigurationMojo extends AbstractMojo {
 
+    private static final String EVENTS_ARGUMENT = "events=true";
+
+    private static final String ANALYZED_ARGUMENT_PREFIX = "analyzed=";
+
     /**
      * Allows disabling Error Prone altogether.
      * <p>
@@ -100,6 +119,61 @@ abstract class AbstractConfigurationMojo extends AbstractMojo {
     @Parameter(property = "errorprone.excludePaths")
     private String excludePaths;
 
+    /**
+     * Excludes generated sources from Error Prone checking, in addition to
+     * {@link #excludePaths}. Unlike {@link #disableWarningsInGeneratedCode}, the
+     * generated files are not analyzed at all.
+     * <p>
+     * All compile source roots in the build directory are considered generated,
+     * such as the ones added by generator plugins in
+     * {@code target/generated-sources}, as well as the output of annotation
+     * processors in {@code target/generated-sources} and
+     * {@code target/generated-test-sources}.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.excludeGeneratedSources")
+    private boolean excludeGeneratedSources;
+
+    /**
+     * Only analyzes source files which changed since the given git revision,
+     * for example {@code origin/main}. Files are compared to the merge base of
+     * the revision and {@code HEAD}, including uncommitted and untracked files.
+     * <p>
+     * The unchanged files are added to {@code -XepExcludedPaths}. If no source
+     * file of a source set changed, Error Prone does not run for it at all.
+     */
+    @Parameter(property = "errorprone.changedSince")
+    private String changedSince;
+
+    /**
+     * Only analyzes a deterministic sample of the given percentage of the source
+     * files or modules, see {@link #samplingScope}.
+     * <p>
+     * Everything is assigned to one of {@code ceil(100 / sampling)} buckets, and
+     * the {@link #samplingSeed} selects the bucket to analyze. With the build
+     * number as seed, everything is analyzed once within that number of
+     * consecutive builds. The sampled source files are listed in the file
+     * {@code sample} in the {@link #outputDirectory} of the source set.
+     */
+    @Parameter(defaultValue = "100", property = "errorprone.sampling")
+    private int sampling;
+
+    /**
+     * Selects the sample if {@link #sampling} is less than 100 percent, for
+     * example {@code ${env.BUILD_NUMBER}}. A number rotates through the buckets
+     * in order, any other value is hashed.
+     */
+    @Parameter(property = "errorprone.sampling.seed")
+    private String samplingSeed;
+
+    /**
+     * Whether the {@link #sampling} selects source files, which are added to
+     * {@code -XepExcludedPaths} otherwise, or whole modules, which are not
+     * analyzed at all otherwise. One of {@code FILES} or {@code MODULES}, case
+     * insensitive.
+     */
+    @Parameter(defaultValue = "FILES", property = "errorprone.sampling.scope")
+    private String samplingScope;
+
     /**
      * A map of check name to {@link CheckSeverity}, to configure which checks are
      * enabled or disabled, and their severity.
@@ -134,42 +208,1008 @@ abstract class AbstractConfigurationMojo extends AbstractMojo {
     @Parameter
     private Map<String, Map<String, String>> namespacedOptions = new HashMap<>();
 
+    /**
+     * Validates the names of the {@link #checks} and {@link #patchChecks}
+     * against the checkers on the processor path before the compiler runs.
+     * Unknown names fail the build, unless {@link #ignoreUnknownCheckNames} is
+     * set, as does disabling a check which cannot be disabled. With other
+     * annotation processor paths of the compiler plugin, unknown names are only
+     * logged as a warning, as those may contain further checkers. Namespaces of
+     * {@link #options} and {@link #namespacedOptions} which are not a check
+     * name are logged as a warning.
+     * <p>
+     * The checkers are read from the {@code @BugPattern} annotations of the
+     * processor path, and cached in the local repository by jar checksum. If the
+     * processor path cannot be resolved or read, the names are not validated and
+     * the compiler reports the problem instead.
+     */
+    @Parameter(defaultValue = "true", property = "errorprone.validateChecks")
+    private boolean validateChecks;
+
     /**
      * Additional arguments passed to Error Prone.
      */
     @Parameter(property = "errorprone.arguments")
     private List<String> arguments = new ArrayList<>();
 
+    /**
+     * Checks whose suggested fixes are written as patch instead of being
+     * reported. Maps to {@code -XepPatchChecks}.
+     * <p>
+     * Each source set writes its patch to the directory {@code patch} in its
+     * {@link #outputDirectory}, unless {@link #patchInPlace} is set. The
+     * {@link MergePatchesMojo merge-patches goal} merges the patches of the
+     * whole reactor into one, for example
+     * {@code mvn clean verify errorprone:merge-patches
+     * -Derrorprone.patchChecks=MissingOverride}.
+     * <p>
+     * The patch directory must not contain whitespace.
+     */
+    @Parameter(property = "errorprone.patchChecks")
+    private List<String> patchChecks = new ArrayList<>();
+
+    /**
+     * Applies the fixes of the {@link #patchChecks} to the source files
+     * directly instead of writing a patch. Maps to
+     * {@code -XepPatchLocation:IN_PLACE}.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.patchInPlace")
+    private boolean patchInPlace;
+
     /**
      * The name of the {@link MavenProject#getProperties() project property} which
      * will be set to the generated compiler argument (the value will be of the form
      * {@code -Xplugin:ErrorProne <options>}).
+     * <p>
+     * The property {@code <propertyName>.fingerprint} is set to the
+     * {@link #fingerprint}, if it is computed.
      */
     @Parameter(defaultValue = "errorprone.compile.argument")
     private String propertyName;
 
+    /**
+     * Computes a fingerprint of the Error Prone configuration, covering the JDK,
+     * the flags, the compiler arguments and the checksums of the processor path.
+     * It is set as project property {@code <propertyName>.fingerprint} and
+     * written to the file {@code fingerprint} in the {@link #outputDirectory} of
+     * the source set. Build caches can use either as an input of the
+     * compilation. Both are empty or missing if Error Prone does not run.
+     * <p>
+     * Computing the fingerprint resolves the processor path and reads its jars.
+     * It is always computed for {@link #skipUnchangedAbi}, which compares it with
+     * the one of the last analysis.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.fingerprint")
+    private boolean fingerprint;
+
+    /**
+     * Only analyzes source files which changed since the last successful build,
+     * and the source files depending on them.
+     * <p>
+     * The content hash of every analyzed source file is stored together with a
+     * key of the Error Prone flags, the checksums of the checkers, the JDK and
+     * the ABI of the classpath. If the key is unchanged, source files with an
+     * unchanged content hash are added to {@code -XepExcludedPaths}, unless they
+     * reference a type declared in a changed source file (or a type extending
+     * one). The references are found by the identifiers in the source text, so
+     * unchanged source files using a changed type without naming it, like
+     * through an inherited member, a static import on demand or an inferred
+     * type, are not analyzed again. Do a full analysis, for example on the main branch, to
+     * catch the findings this misses.
+     * <p>
+     * The findings are streamed to {@code diagnostics.jsonl} like the
+     * {@link #diagnostics}, so that the findings of the excluded source files
+     * are logged again, unlimited unless the {@link #diagnostics} are enabled.
+     * Streaming requires the same access to the {@code jdk.compiler} internals
+     * as the {@link #diagnostics}. The findings are neither replayed for a
+     * {@link #deferred} nor a sharded analysis.
+     * <p>
+     * The state is only stored once the project has been built successfully,
+     * which requires the plugin to be registered with
+     * {@code <extensions>true</extensions>}. It only takes the source files
+     * the compiler actually analyzed, so the source files to analyze are
+     * analyzed again the next time if the compiler found nothing to compile or
+     * was skipped.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.incremental")
+    private boolean incremental;
+
+    /**
+     * Compiles without Error Prone if neither the source files nor the ABI of
+     * the classpath changed since the last successful analysis. The ABI consists
+     * of the signatures, annotations and constants of the classes, so a project
+     * recompiled only because an upstream project changed its method bodies is
+     * not analyzed again.
+     * <p>
+     * Like with {@link #incremental}, the state is only stored once the project
+     * has been built successfully, which requires the plugin to be registered
+     * with {@code <extensions>true</extensions>}, and once the compiler actually
+     * analyzed all source files.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.skipUnchangedAbi")
+    private boolean skipUnchangedAbi;
+
+    /**
+     * Runs Error Prone in a separate javac in the background once the compiler
+     * has finished, instead of inside the compiler. The compiler then runs
+     * without Error Prone and the build of downstream projects does not wait for
+     * the analysis.
+     * <p>
+     * The analyses of a project are joined by the {@code join} goal, or else
+     * once the last project of the reactor has been built. A failed analysis
+     * fails the project joining it, which is the last project of the reactor
+     * without the {@code join} goal. Only if the last project failed on its own
+     * are the remaining analyses joined after the reactor summary, where a
+     * failure is reported after it. This requires the plugin to be registered
+     * with {@code <extensions>true</extensions>}, the configuration fails
+     * otherwise.
+     * <p>
+     * The analysis uses the release, encoding, compiler arguments and annotation
+     * processor paths of the compiler execution, and the javac it forks: its
+     * {@code executable} or the one of the JDK toolchain. Annotation processors
+     * do not run again, so processors modifying the compiled classes (like
+     * Lombok) are not supported, and neither are modules with a
+     * {@code module-info.java}.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.deferred")
+    private boolean deferred;
+
+    /**
+     * Number of javac processes the Error Prone analysis is split into, each of
+     * them analyzing a part of the sources of about the same size. {@code 0}
+     * uses as many shards as there are available processors.
+     * <p>
+     * With more than one shard, the compiler runs without Error Prone and the
+     * shards analyze the sources once the compiler has finished, using its
+     * output for the sources of the other shards. The compiler execution fails
+     * if any shard fails, unless the analysis is {@link #deferred}. This
+     * requires the plugin to be registered with
+     * {@code <extensions>true</extensions>}, the configuration fails otherwise.
+     */
+    @Parameter(defaultValue = "1", property = "errorprone.shards")
+    private int shards;
+
+    /**
+     * Passes the processor path of the checkers as {@code -processorpath}
+     * compiler argument to compiler executions without annotation processor
+     * paths of their own, instead of adding the checkers to their annotation
+     * processor paths. The processor path is resolved once per session and
+     * shared by all projects with the same checkers, while the compiler plugin
+     * resolves the annotation processor paths again for every execution.
+     * <p>
+     * The processor path replaces the discovery of annotation processors on
+     * the classpath, so processors which are only on the classpath, like Lombok
+     * or MapStruct, no longer run. Declare them as annotation processor paths of
+     * the compiler execution instead, which leaves the resolution of the
+     * processor path of that execution to the compiler plugin again.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.resolvedProcessorPath")
+    private boolean resolvedProcessorPath;
+
+    /**
+     * Additional arguments for the JVM of a forked compiler, added as
+     * {@code -J<argument>} compiler arguments whenever the compiler plugin forks
+     * (which is enforced on JDK 16 and later, unless the {@code jdk.compiler}
+     * packages are already exported).
+     * <p>
+     * Every compiler execution forks a new JVM, which is not kept for later
+     * compilations. The arguments only tune this short-lived JVM: options like
+     * {@code -XX:TieredStopAtLevel=1} or {@code -XX:+UseSerialGC} can reduce its
+     * startup cost noticeably for small modules. To avoid forking at all, see
+     * {@link #requireInProcessCompiler}.
+     */
+    @Parameter(property = "errorprone.compilerJvmArguments")
+    private List<String> compilerJvmArguments = new ArrayList<>();
+
+    /**
+     * Records the forked compilers with Java Flight Recorder. Every forked JVM
+     * writes its own recording, including an event per source file analyzed by
+     * Error Prone. With the plugin registered as extension, the recordings are
+     * merged into {@code compiler.jfr} in the {@link #outputDirectory} of the
+     * source set at the end of the build.
+     * <p>
+     * The events of the plugin inside Maven, such as the configuration and the
+     * fork decision, are recorded by a recording of the Maven JVM, for example
+     * started with {@code -XX:StartFlightRecording} in {@code MAVEN_OPTS}.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.flightRecording")
+    private boolean flightRecording;
+
+    /**
+     * Lets the forked compilers share the classes of javac and Error Prone with a
+     * dynamic class data sharing archive, which saves most of the time a forked
+     * JVM spends loading them. The archive is created by the first forked
+     * compiler without one and kept in the local repository per JDK, checkers and
+     * {@link #compilerJvmArguments}, so it is created again whenever one of them
+     * changes. As the JDK is the one running Maven, compiler executions with an
+     * {@code executable} or a JDK toolchain fork without the archive.
+     * <p>
+     * With the plugin registered as extension, the creation of a new archive is
+     * logged at the end of the build, see {@link #measureClassDataSharing} for
+     * the startup time it saves.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.classDataSharing")
+    private boolean classDataSharing;
+
+    /**
+     * Measures the startup time a new {@link #classDataSharing} archive saves
+     * at the end of the build, with two forked compilations of a trivial source
+     * file each with and without the archive, and logs it, as in every later
+     * build using the archive. Requires the plugin to be registered as
+     * extension.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.classDataSharing.measure")
+    private boolean measureClassDataSharing;
+
+    /**
+     * Sizes the JVM of a forked compiler from the history of the source set.
+     * Every forked compiler writes a GC log, from which the peak heap usage, the
+     * GC overhead and the run time are kept for the last builds in the local
+     * repository. Later builds choose {@code -Xmx}, the GC and
+     * {@code -XX:TieredStopAtLevel} from them, unless they are set by
+     * {@link #compilerJvmArguments}.
+     * <p>
+     * The options are those of the JDK running Maven, so a compiler execution
+     * with an {@code executable} or a JDK toolchain, which may be an older JDK
+     * without unified logging, is not sized adaptively.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.adaptiveCompilerJvm")
+    private boolean adaptiveCompilerJvm;
+
+    /**
+     * The compile policy of javac. The default {@code SIMPLE} is the policy
+     * Error Prone always supported. {@code BYFILE} keeps only the syntax trees
+     * of the current source file in memory instead of those of the whole source
+     * set, but requires Error Prone 2.36.0 or later. With {@code AUTO},
+     * {@code BYFILE} is used if the resolved Error Prone version supports it,
+     * and {@code SIMPLE} if the version is older or can't be determined; this
+     * resolves the processor path of Error Prone in every configuration goal.
+     * A {@code -XDcompilePolicy} compiler argument of the compiler plugin takes
+     * precedence. One of {@code AUTO}, {@code SIMPLE} or {@code BYFILE}, case
+     * insensitive.
+     */
+    @Parameter(defaultValue = "SIMPLE", property = "errorprone.compilePolicy")
+    private String compilePolicy;
+
+    /**
+     * Requires the compiler to run inside the Maven JVM instead of being forked
+     * on JDK 16 and later. The parameter does not open anything itself: the
+     * {@code jdk.compiler} packages needed by Error Prone have to be exported
+     * and opened with the {@code --add-exports} and {@code --add-opens} options
+     * in {@code .mvn/jvm.config}, and the build fails if some are missing. The
+     * error message lists the missing options.
+     * <p>
+     * The compiler runs in-process with these options even without this
+     * parameter, which only makes sure they are not missing. A
+     * {@link #deferred} or sharded analysis, which does not have to be forked,
+     * runs in-process as well. Its Error Prone class loaders are cached for the
+     * whole session, so the checkers are loaded only once. This cache only
+     * serves the analyses run by this plugin, the deferred ones and those of the
+     * {@code watch} goal: the compiler plugin creates a new annotation processor
+     * class loader for every compilation, so Error Prone running inside the
+     * compiler loads the checkers again for each compiler execution.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.requireInProcess")
+    private boolean requireInProcessCompiler;
+
+    /**
+     * Records how much time Error Prone spends per check.
+     * <p>
+     * A javac plugin shipped with this plugin is added next to Error Prone and
+     * writes the number of analyzed files, the Error Prone overhead and the time
+     * per check to {@code timings.properties} in the {@link #outputDirectory} of
+     * the source set. Use the {@code timings-report} goal to rank the checks
+     * across the reactor.
+     * <p>
+     * For this, the jar of this plugin is added to the annotation processor
+     * path. It contains no annotation processor, so javac only opens it and
+     * loads the few classes of the javac plugin, but it is one more jar on the
+     * processor path of every compilation.
+     * <p>
+     * The timings are read from Error Prone internals, which requires the
+     * {@code jdk.compiler} packages to be exported to the compiler (as done for
+     * forked compilers).
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.timings")
+    private boolean timings;
+
+    /**
+     * Streams the Error Prone findings to {@code diagnostics.jsonl} in the
+     * {@link #outputDirectory} of the source set, one JSON object per line, while
+     * passing at most {@link #diagnosticsConsoleLimit} findings per check on to
+     * the compiler output. Use the {@code diagnostics-report} goal to merge the
+     * findings of the reactor into a SARIF report.
+     * <p>
+     * This is meant for checks with a large number of findings, which otherwise
+     * are all kept in memory and logged by the compiler plugin. Findings reported
+     * as errors are always passed on. This requires the package
+     * {@code com.sun.tools.javac.util} to be open, which is done for forked
+     * compilers. A compiler running inside the Maven JVM needs
+     * {@code --add-opens=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED} in
+     * {@code .mvn/jvm.config} in addition, otherwise the findings are not
+     * streamed.
+     */
+    @Parameter(defaultValue = "false", property = "errorprone.diagnostics")
+    private boolean diagnostics;
+
+    /**
+     * Number of findings per check passed on to the compiler output if
+     * {@link #diagnostics} are streamed to a file.
+     */
+    @Parameter(defaultValue = "10", property = "errorprone.diagnostics.consoleLimit")
+    private int diagnosticsConsoleLimit;
+
+    /**
+     * The check profile. {@link CheckProfile#FAST} disables the most expensive
+     * checks (using {@code -Xep:<name>:OFF}) until the estimated Error Prone time
+     * of a source set fits into the {@link #profileBudget}. Checks configured in
+     * {@link #checks} are never disabled by the profile. One of {@code FULL} or
+     * {@code FAST}, case insensitive.
+     * <p>
+     * The costs are measured per source file by the {@link #profileTimings
+     * timings} of earlier builds, and saved in the file
+     * {@code check-costs.properties} in the {@link #outputDirectory} of the
+     * source set. As long as no costs have been measured, all checks run.
+     */
+    @Parameter(defaultValue = "FULL", property = "errorprone.profile")
+    private String profile;
+
+    /**
+     * Error Prone time budget per source set in milliseconds, used by the
+     * {@link CheckProfile#FAST} profile.
+     */
+    @Parameter(defaultValue = "2000", property = "errorprone.profile.budget")
+    private long profileBudget;
+
+    /**
+     * Timings of an earlier build (as written with {@link #timings} enabled),
+     * used by the {@link CheckProfile#FAST} profile. Defaults to the timings of
+     * the source set in the {@link #outputDirectory}.
+     */
+    @Parameter(property = "errorprone.profile.timings")
+    private File profileTimings;
+
+    /**
+     * Directory where the plugin keeps its state and reports.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/errorprone", required = true)
+    private File outputDirectory;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    private PluginDescriptor plugin;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
     @Inject
     private MavenProject project;
 
     @Inject
     private CompilerConfiguration compilerConfiguration;
 
+    @Inject
+    private IncrementalAnalysis incrementalAnalysis;
+
+    @Inject
+    private DeferredAnalysis deferredAnalysis;
+
+    @Inject
+    private ChangedFiles changedFiles;
+
+    @Inject
+    private ConfigurationFingerprint configurationFingerprint;
+
+    @Inject
+    private FlightRecordings flightRecordings;
+
+    @Inject
+    private ProcessorPathResolver processorPathResolver;
+
+    @Inject
+    private ClasspathAbi classpathAbi;
+
+    @Inject
+    private BugCheckerCatalog bugCheckerCatalog;
+
+    @Inject
+    private ProjectClasspath projectClasspath;
+
+    @Inject
+    private ClassDataSharing classDataSharingArchives;
+
     @Override
     public void execute() throws MojoExecutionException {
+        WorkDirectories.register(project, getWorkDirectory());
+        FlightRecorderEvents.Configuration event = new FlightRecorderEvents.Configuration();
+        event.begin();
+        try {
+            event.analyze = configure();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.project = project.getId();
+                event.sourceSet = getSourceSet();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return whether Error Prone runs for the source set
+     */
+    private boolean configure() throws MojoExecutionException {
         String propertyValue = "";
-        if (enabled) {
-            List<String> flags = getFlags();
+        String fingerprintValue = "";
+        CompilePolicy resolvedCompilePolicy = CompilePolicy.SIMPLE;
+        List<String> reporterArguments = new ArrayList<>();
+        List<String> jvmArguments = new ArrayList<>(compilerJvmArguments);
+        SourceSelection selection = selectSourceFiles();
+        boolean analyze = enabled && !selection.isEmpty();
+        List<String> disabledChecks = List.of();
+        if (analyze) {
+            checkAnalysisSupported();
+            validateChecks();
+            if (getProfile() == CheckProfile.FAST) {
+                CheckCosts costs = estimateCheckCosts();
+                disabledChecks = getProfileDisabledChecks(costs);
+                saveCheckCosts(costs, disabledChecks);
+            }
+            resolvedCompilePolicy = resolveCompilePolicy();
+            if (fingerprint || skipUnchangedAbi) {
+                fingerprintValue = getFingerprint(resolvedCompilePolicy,
+                        getFlags(excludePaths, disabledChecks, false), selection.getSettings());
+            }
+            if (skipUnchangedAbi && isUnchangedSinceLastAnalysis(fingerprintValue, selection)) {
+                analyze = false;
+            }
+        }
+        preparePatchDirectory(analyze);
+        if (analyze) {
+            if (incremental) {
+                selection.exclude(getIncrementalExcludedPaths(getFlags(excludePaths, disabledChecks, false),
+                        getSelectedSourceFiles(selection)));
+            }
+            List<String> flags = getFlags(selection.getExcludedPaths(), disabledChecks, true);
 
             propertyValue = "-Xplugin:ErrorProne " + String.join(" ", flags);
+            if (timings) {
+                reporterArguments.add("timings=" + getWorkDirectory().resolve(Timings.FILE_NAME).toUri());
+            }
+            if (isStreamingFindings()) {
+                reporterArguments.add("diagnostics=" + getWorkDirectory().resolve(Finding.FILE_NAME).toUri());
+                reporterArguments.add("consoleLimit=" + getConsoleLimit());
+            }
+            if (incremental || skipUnchangedAbi) {
+                reporterArguments.add(ANALYZED_ARGUMENT_PREFIX
+                        + getWorkDirectory().resolve(IncrementalAnalysis.ANALYZED_FILE).toUri());
+            }
+            if (classDataSharing && measureClassDataSharing) {
+                classDataSharingArchives.enableMeasurement();
+            }
+            if (adaptiveCompilerJvm) {
+                if (compilerConfiguration.usesMavenJdk(session, project, getCompilerGoal())) {
+                    jvmArguments.addAll(prepareAdaptiveCompilerJvm());
+                } else {
+                    getLog().info("The forked compiler is not sized adaptively, as it runs with another JDK than"
+                            + " Maven.");
+                }
+            }
+            if (flightRecording) {
+                jvmArguments.add(prepareFlightRecording());
+                reporterArguments.add(EVENTS_ARGUMENT);
+            }
+            if (isForked()) {
+                prepareForkedAnalysis(propertyValue, reporterArguments, jvmArguments, resolvedCompilePolicy);
+                propertyValue = "";
+                reporterArguments.clear();
+            }
         }
         getLog().debug("Setting project property \"" + propertyName + "\" to \"" + propertyValue + "\".");
         project.getProperties().put(propertyName, propertyValue);
-        if (enabled) {
-            compilerConfiguration.configure(project, propertyName);
+        CompilerSettings settings = new CompilerSettings(propertyName, jvmArguments, classDataSharing,
+                resolvedCompilePolicy, reporterArguments.isEmpty() ? null : getReporterDependency(),
+                reporterArguments.isEmpty() ? null : plugin.getPluginArtifact().getFile().toPath(),
+                analyze && isStreamingFindings(), resolvedProcessorPath);
+        String reporterValue = reporterArguments.isEmpty() ? ""
+                : "-Xplugin:" + ReporterPlugin.NAME + " " + String.join(" ", reporterArguments);
+        getLog().debug("Setting project property \"" + settings.reporterPropertyName() + "\" to \"" + reporterValue
+                + "\".");
+        project.getProperties().put(settings.reporterPropertyName(), reporterValue);
+        getLog().debug("Setting project property \"" + settings.fingerprintPropertyName() + "\" to \""
+                + fingerprintValue + "\".");
+        project.getProperties().put(settings.fingerprintPropertyName(), fingerprintValue);
+        writeFingerprint(fingerprintValue);
+        if (analyze && !isForked()) {
+            compilerConfiguration.configure(session, project, settings);
+        }
+        return analyze;
+    }
+
+    /**
+     * Selects the source files to analyze: without the generated ones if they
+     * are {@link #excludeGeneratedSources excluded}, only the ones
+     * {@link #changedSince changed} and the ones in the {@link #sampling
+     * sample}.
+     */
+    private SourceSelection selectSourceFiles() throws MojoExecutionException {
+        SourceSelection selection = new SourceSelection(excludePaths);
+        if (excludeGeneratedSources) {
+            selection.addSetting("excludeGeneratedSources");
+            List<Path> generatedSourceRoots = getGeneratedSourceRoots();
+            getLog().debug("Excluding generated sources in " + generatedSourceRoots);
+            selection.exclude(ExcludedPaths.anyUnder(generatedSourceRoots));
+        }
+        if (enabled && changedSince != null && !changedSince.isBlank()) {
+            List<Path> allSourceFiles = getSourceFiles();
+            List<Path> changedSourceFiles = getChangedSourceFiles(allSourceFiles);
+            if (changedSourceFiles.isEmpty()) {
+                getLog().info("No source files changed since " + changedSince + ", Error Prone does not run.");
+            } else {
+                getLog().info(changedSourceFiles.size() + " of " + allSourceFiles.size()
+                        + " source files changed since " + changedSince + ".");
+            }
+            selection.restrict(changedSourceFiles, allSourceFiles);
+        }
+        if (enabled && !selection.isEmpty() && sampling < 100) {
+            sample(selection);
         }
+        return selection;
     }
 
-    private List<String> getFlags() throws MojoExecutionException {
+    private void sample(SourceSelection selection) throws MojoExecutionException {
+        Sampling sample = getSampling();
+        selection.addSetting(sample.getSetting(getSamplingScope()));
+        if (getSamplingScope() == SamplingScope.MODULES) {
+            boolean contained = sample.contains(project.getGroupId() + ':' + project.getArtifactId());
+            getLog().info("Module is " + (contained ? "" : "not ") + "in the Error Prone sample " + sample.describe()
+                    + (contained ? "." : ", Error Prone does not run."));
+            if (!contained) {
+                selection.clear();
+            }
+            return;
+        }
+        List<Path> candidates = getSelectedSourceFiles(selection);
+        List<Path> sampledSourceFiles = sample.select(project.getBasedir().toPath(), candidates);
+        Path sampleFile = getWorkDirectory().resolve("sample");
+        try {
+            Sampling.write(sampleFile, project.getBasedir().toPath(), sampledSourceFiles);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write " + sampleFile, e);
+        }
+        getLog().info("Error Prone sample " + sample.describe() + " contains " + sampledSourceFiles.size() + " of "
+                + candidates.size() + " source files, listed in " + sampleFile + ".");
+        selection.restrict(sampledSourceFiles, candidates);
+    }
+
+    private List<Path> getSelectedSourceFiles(SourceSelection selection) throws MojoExecutionException {
+        return selection.getSourceFiles() == null ? getSourceFiles() : selection.getSourceFiles();
+    }
+
+    private void checkAnalysisSupported() throws MojoExecutionException {
+        if (requireInProcessCompiler && !CompilerConfiguration.canCompileInProcess()) {
+            throw new MojoExecutionException("The compiler cannot run inside the Maven JVM (requireInProcessCompiler),"
+                    + " add the following options to .mvn/jvm.config: "
+                    + String.join(" ", CompilerConfiguration.getMissingJvmOptions()));
+        }
+        if (isForked() && !compilerConfiguration.hasCompilerExecutions(project)) {
+            throw new MojoExecutionException("The " + (deferred ? "deferred" : "sharded")
+                    + " Error Prone analysis requires the plugin to be registered with"
+                    + " <extensions>true</extensions>, otherwise it would never run.");
+        }
+        if (isForked() && getSourceFiles().stream()
+                .anyMatch(sourceFile -> "module-info.java".equals(sourceFile.getFileName().toString()))) {
+            throw new MojoExecutionException("The deferred or sharded Error Prone analysis does not support modules"
+                    + " with a module-info.java, analyze them inside the compiler instead.");
+        }
+    }
+
+    private Dependency getReporterDependency() {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(plugin.getGroupId());
+        dependency.setArtifactId(plugin.getArtifactId());
+        dependency.setVersion(plugin.getVersion());
+        return dependency;
+    }
+
+    private boolean isForked() {
+        return deferred || shards != 1;
+    }
+
+    private void prepareForkedAnalysis(String errorProneArgument, List<String> allReporterArguments,
+            List<String> jvmArguments, CompilePolicy resolvedCompilePolicy) throws MojoExecutionException {
+        int shardCount = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        List<String> pluginArguments = new ArrayList<>(List.of(errorProneArgument));
+        List<Path> additionalProcessorPath = new ArrayList<>();
+        List<String> reporterArguments = allReporterArguments;
+        if (shardCount > 1) {
+            // the shards would overwrite each others files, they only append to the list of analyzed files
+            reporterArguments = allReporterArguments.stream().filter(argument -> EVENTS_ARGUMENT.equals(argument)
+                    || argument.startsWith(ANALYZED_ARGUMENT_PREFIX)).toList();
+            if (reporterArguments.size() < allReporterArguments.size()) {
+                getLog().warn("Timings and diagnostics are not recorded for an analysis split into shards.");
+            }
+        }
+        if (!reporterArguments.isEmpty()) {
+            pluginArguments.add("-Xplugin:" + ReporterPlugin.NAME + " " + String.join(" ", reporterArguments));
+            additionalProcessorPath.add(plugin.getPluginArtifact().getFile().toPath());
+        }
+        deferredAnalysis.prepare(project, getCompilerGoal(),
+                new DeferredAnalysis.Request(getSourceSet(), getWorkDirectory(), () -> getCompileSourceRoots(project),
+                        getClasspathElements(project), pluginArguments,
+                        reporterArguments.stream().anyMatch(argument -> argument.startsWith("diagnostics=")),
+                        additionalProcessorPath, jvmArguments, shardCount, !deferred, classDataSharing,
+                        resolvedCompilePolicy));
+        getLog().info("Error Prone analysis is deferred until the compiler has finished"
+                + (shardCount > 1 ? ", using up to " + shardCount + " shards." : "."));
+    }
+
+    /**
+     * @param flags
+     *            the configured flags, without the paths excluded by
+     *            {@link #incremental} or {@link #changedSince}, as those do not
+     *            change the result of an analysis, and without the patch
+     *            directory
+     * @param sourceSelection
+     *            the {@link #excludeGeneratedSources} and {@link #sampling}
+     *            settings, which exclude paths as well
+     */
+    private String getFingerprint(CompilePolicy resolvedCompilePolicy, List<String> flags,
+            List<String> sourceSelection) throws MojoExecutionException {
+        try {
+            return configurationFingerprint.compute(session.getRepositorySession(), project, resolvedCompilePolicy,
+                    flags, sourceSelection,
+                    compilerConfiguration.getCompilerExecutions(session, project, getCompilerGoal()));
+        } catch (IOException | DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to compute the Error Prone configuration fingerprint", e);
+        }
+    }
+
+    /**
+     * @return the patch directory, which must not contain whitespace, as javac
+     *         splits the {@code -Xplugin:ErrorProne} argument on whitespace and
+     *         Error Prone takes the location as it is
+     */
+    private String getPatchLocation() throws MojoExecutionException {
+        String location = Patches.getDirectory(getWorkDirectory()).toAbsolutePath().normalize().toString();
+        if (location.chars().anyMatch(c -> Character.isWhitespace(c) || Character.isSpaceChar(c))) {
+            throw new MojoExecutionException("The Error Prone patch directory " + location + " contains whitespace,"
+                    + " which -XepPatchLocation does not support. Use an outputDirectory without whitespace or"
+                    + " patchInPlace.");
+        }
+        return location;
+    }
+
+    private void preparePatchDirectory(boolean analyze) throws MojoExecutionException {
+        if (patchChecks.isEmpty() || patchInPlace || !enabled) {
+            return;
+        }
+        try {
+            Patches.prepareDirectory(project, getWorkDirectory(), analyze);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to prepare the Error Prone patch directory", e);
+        }
+    }
+
+    /**
+     * Validates the configured checks and option namespaces against the
+     * {@link BugCheckerCatalog}, see {@link #validateChecks}.
+     */
+    void validateChecks() throws MojoExecutionException {
+        if (!validateChecks
+                || (checks.isEmpty() && options.isEmpty() && namespacedOptions.isEmpty() && patchChecks.isEmpty())) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, BugCheckerCatalog.Checker> catalog;
+        try {
+            List<Path> processorPath = processorPathResolver.resolve(session.getRepositorySession(), project);
+            catalog = bugCheckerCatalog.get(session.getRepositorySession().getLocalRepository().getBasedir()
+                    .toPath().resolve(".cache/errorprone-maven-plugin/checkers"), processorPath);
+        } catch (DependencyResolutionException e) {
+            getLog().warn("Failed to resolve the Error Prone processor path, checks are not validated.", e);
+            return;
+        } catch (IOException e) {
+            getLog().warn("Failed to read the Error Prone checkers, checks are not validated.", e);
+            return;
+        }
+        if (catalog.isEmpty()) {
+            getLog().debug("No Error Prone checkers found on the processor path, checks are not validated.");
+            return;
+        }
+        List<String> unknownChecks = new ArrayList<>();
+        for (var entry : new TreeMap<>(checks).entrySet()) {
+            BugCheckerCatalog.Checker checker = catalog.get(entry.getKey());
+            if (checker == null) {
+                unknownChecks.add(entry.getKey() + getSuggestion(catalog, entry.getKey()));
+            } else if (entry.getValue() == CheckSeverity.OFF && !checker.disableable()) {
+                throw new MojoExecutionException("Error Prone check " + entry.getKey() + " cannot be disabled.");
+            }
+        }
+        for (String patchCheck : new TreeSet<>(patchChecks)) {
+            if (!catalog.containsKey(patchCheck)) {
+                unknownChecks.add(patchCheck + getSuggestion(catalog, patchCheck));
+            }
+        }
+        Set<String> namespaces = new TreeSet<>(namespacedOptions.keySet());
+        options.keySet().stream().filter(key -> key.contains(":"))
+                .forEach(key -> namespaces.add(key.substring(0, key.indexOf(':'))));
+        for (String namespace : namespaces) {
+            if (!catalog.containsKey(namespace)) {
+                getLog().warn("Error Prone option namespace " + namespace + " is not the name of a check"
+                        + getSuggestion(catalog, namespace) + ", the options may be ignored.");
+            }
+        }
+        if (!unknownChecks.isEmpty()) {
+            String message = "Unknown Error Prone check names: " + String.join(", ", unknownChecks);
+            if (!ignoreUnknownCheckNames && !hasOtherAnnotationProcessorPaths()) {
+                throw new MojoExecutionException(message);
+            }
+            getLog().warn(message);
+        }
+        getLog().debug("Validated the Error Prone configuration against " + catalog.size() + " check names in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * @return whether the compiler plugin is configured with annotation
+     *         processor paths other than the checkers, which may contain
+     *         checkers missing in the catalog
+     */
+    private boolean hasOtherAnnotationProcessorPaths() {
+        Plugin compiler = project.getPlugin(CompilerConfiguration.COMPILER_PLUGIN);
+        if (compiler == null) {
+            return false;
+        }
+        Set<String> checkers = new HashSet<>();
+        ProcessorPathResolver.getCheckers(project)
+                .forEach(checker -> checkers.add(checker.getGroupId() + ':' + checker.getArtifactId()));
+        List<Object> configurations = new ArrayList<>();
+        configurations.add(compiler.getConfiguration());
+        compiler.getExecutions().forEach(execution -> configurations.add(execution.getConfiguration()));
+        for (Object configuration : configurations) {
+            Xpp3Dom paths = configuration instanceof Xpp3Dom dom ? dom.getChild("annotationProcessorPaths") : null;
+            for (Xpp3Dom path : paths == null ? new Xpp3Dom[0] : paths.getChildren()) {
+                Xpp3Dom groupId = path.getChild("groupId");
+                Xpp3Dom artifactId = path.getChild("artifactId");
+                if (groupId == null || artifactId == null
+                        || !checkers.contains(groupId.getValue() + ':' + artifactId.getValue())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String getSuggestion(Map<String, BugCheckerCatalog.Checker> catalog, String name) {
+        return catalog.keySet().stream().filter(name::equalsIgnoreCase).findFirst()
+                .map(checkName -> " (did you mean " + checkName + "?)").orElse("");
+    }
+
+    /**
+     * Resolves {@link CompilePolicy#AUTO} by the version of the resolved
+     * {@code error_prone_core} artifact. The processor path is resolved once per
+     * session and shared with the compiler configuration. If the version can't
+     * be determined, the policy falls back to {@link CompilePolicy#SIMPLE}, the
+     * policy Error Prone always supported.
+     */
+    CompilePolicy resolveCompilePolicy() throws MojoExecutionException {
+        CompilePolicy configuredCompilePolicy = getCompilePolicy();
+        if (configuredCompilePolicy != CompilePolicy.AUTO) {
+            return configuredCompilePolicy;
+        }
+        String version;
+        try {
+            version = CompilePolicy.getErrorProneVersion(
+                    processorPathResolver.resolveArtifacts(session.getRepositorySession(), project, List.of()));
+        } catch (DependencyResolutionException e) {
+            getLog().debug("Failed to resolve the Error Prone processor path", e);
+            version = null;
+        }
+        CompilePolicy resolved = configuredCompilePolicy.resolve(version);
+        getLog().debug("Using compile policy " + resolved + " for Error Prone " + version + ".");
+        return resolved;
+    }
+
+    private void writeFingerprint(String fingerprint) throws MojoExecutionException {
+        Path file = getWorkDirectory().resolve(ConfigurationFingerprint.FILE_NAME);
+        try {
+            if (fingerprint.isEmpty()) {
+                Files.deleteIfExists(file);
+            } else {
+                ConfigurationFingerprint.write(file, fingerprint);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write " + file, e);
+        }
+    }
+
+    private Sampling getSampling() throws MojoExecutionException {
+        String seed = samplingSeed;
+        if (seed == null || seed.isBlank()) {
+            getLog().warn("No sampling seed configured, the sample is always the same.");
+            seed = "0";
+        }
+        try {
+            return Sampling.of(sampling, seed);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private String prepareFlightRecording() throws MojoExecutionException {
+        try {
+            return flightRecordings.prepare(getWorkDirectory());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to prepare flight recording", e);
+        }
+    }
+
+    private List<String> prepareAdaptiveCompilerJvm() throws MojoExecutionException {
+        try {
+            return CompilerJvmHistory.prepareJvmArguments(
+                    session.getRepositorySession().getLocalRepository().getBasedir().toPath(),
+                    project.getBasedir().toPath(), getSourceSet(), compilerJvmArguments);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read the history of the forked compiler", e);
+        }
+    }
+
+    private CheckCosts estimateCheckCosts() throws MojoExecutionException {
+        Path timingsFile = profileTimings == null ? getWorkDirectory().resolve(Timings.FILE_NAME)
+                : profileTimings.toPath();
+        try {
+            return CheckCosts.estimate(getSourceFiles().size(), getWorkDirectory().resolve(CheckCosts.FILE_NAME),
+                    timingsFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to estimate check costs", e);
+        }
+    }
+
+    private List<String> getProfileDisabledChecks(CheckCosts costs) {
+        return costs.checksToDisable(profileBudget * 1_000_000, checks.keySet());
+    }
+
+    private void saveCheckCosts(CheckCosts costs, List<String> disabledChecks) throws MojoExecutionException {
+        if (costs.isEmpty()) {
+            getLog().info("Profile FAST keeps all checks, no check costs have been measured yet (enable timings"
+                    + " to measure them).");
+            return;
+        }
+        if (disabledChecks.isEmpty()) {
+            getLog().info("Profile FAST keeps all checks, estimated Error Prone time is "
+                    + costs.totalNanos() / 1_000_000 + " ms");
+        } else {
+            getLog().info("Profile FAST disables " + String.join(", ", disabledChecks)
+                    + ", estimated Error Prone time is " + costs.remainingNanos(disabledChecks) / 1_000_000
+                    + " ms instead of " + costs.totalNanos() / 1_000_000 + " ms");
+        }
+        Path costsFile = getWorkDirectory().resolve(CheckCosts.FILE_NAME);
+        try {
+            costs.save(costsFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to save the check costs to " + costsFile, e);
+        }
+    }
+
+    private List<Path> getChangedSourceFiles(List<Path> sourceFiles) throws MojoExecutionException {
+        try {
+            Set<Path> changed = changedFiles.since(project.getBasedir().toPath(), changedSince);
+            List<Path> changedSourceFiles = new ArrayList<>();
+            for (Path sourceFile : sourceFiles) {
+                if (changed.contains(sourceFile.toRealPath())) {
+                    changedSourceFiles.add(sourceFile);
+                }
+            }
+            return changedSourceFiles;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to determine source files changed since " + changedSince, e);
+        }
+    }
+
+    private boolean isUnchangedSinceLastAnalysis(String fingerprint, SourceSelection selection)
+            throws MojoExecutionException {
+        try {
+            return incrementalAnalysis.isUnchangedSinceLastAnalysis(project, getWorkDirectory(), fingerprint,
+                    selection.getExcludedPaths(), getSelectedSourceFiles(selection),
+                    classpathAbi.digest(getClasspathElements(project)));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to digest the source files and the classpath ABI", e);
+        }
+    }
+
+    /**
+     * @return the paths excluded as they are unchanged, and their findings are
+     *         replayed, at most {@link #diagnosticsConsoleLimit} per check
+     */
+    private String getIncrementalExcludedPaths(List<String> flags, List<Path> sourceFiles)
+            throws MojoExecutionException {
+        try {
+            // findings are not streamed by the shards, and not yet complete at the end of a deferred build
+            Path diagnosticsFile = isForked() ? null : getWorkDirectory().resolve(Finding.FILE_NAME);
+            return incrementalAnalysis.selectFilesToAnalyze(project, getWorkDirectory(), flags,
+                    processorPathResolver.getChecksums(session.getRepositorySession(), project),
+                    classpathAbi.digest(getClasspathElements(project)), sourceFiles, diagnosticsFile,
+                    getConsoleLimit());
+        } catch (IOException | DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to determine changed source files", e);
+        }
+    }
+
+    /**
+     * @return whether the findings are streamed to a file, either for the
+     *         {@link #diagnostics} or to replay them in an {@link #incremental}
+     *         analysis
+     */
+    private boolean isStreamingFindings() {
+        return diagnostics || incremental && !isForked();
+    }
+
+    /**
+     * @return the number of findings per check passed on to the compiler
+     *         output, which is only limited for the {@link #diagnostics}
+     */
+    private int getConsoleLimit() {
+        return diagnostics ? diagnosticsConsoleLimit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return the source files to analyze, without the generated ones if they
+     *         are {@link #excludeGeneratedSources excluded}
+     */
+    List<Path> getSourceFiles() throws MojoExecutionException {
+        List<String> compileSourceRoots = getCompileSourceRoots(project);
+        if (excludeGeneratedSources) {
+            List<Path> generatedSourceRoots = getGeneratedSourceRoots();
+            compileSourceRoots = compileSourceRoots.stream()
+                    .filter(root -> generatedSourceRoots.stream().noneMatch(toPath(root)::startsWith)).toList();
+        }
+        try {
+            return SourceFiles.find(compileSourceRoots);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to find source files", e);
+        }
+    }
+
+    private List<Path> getGeneratedSourceRoots() {
+        Path buildDirectory = toPath(project.getBuild().getDirectory());
+        List<Path> generatedSourceRoots = new ArrayList<>();
+        generatedSourceRoots.add(buildDirectory.resolve("generated-sources"));
+        generatedSourceRoots.add(buildDirectory.resolve("generated-test-sources"));
+        for (String compileSourceRoot : getCompileSourceRoots(project)) {
+            Path root = toPath(compileSourceRoot);
+            if (root.startsWith(buildDirectory)
+                    && generatedSourceRoots.stream().noneMatch(root::startsWith)) {
+                generatedSourceRoots.add(root);
+            }
+        }
+        return generatedSourceRoots;
+    }
+
+    private static Path toPath(String directory) {
+        return Path.of(directory).toAbsolutePath().normalize();
+    }
+
+    Path getWorkDirectory() {
+        return outputDirectory.toPath().resolve(getSourceSet());
+    }
+
+    /**
+     * @return the flags of the configured checks and options, including the
+     *         checks disabled by the {@link #profile}
+     */
+    List<String> getFlags() throws MojoExecutionException {
+        return getFlags(excludePaths,
+                getProfile() == CheckProfile.FAST ? getProfileDisabledChecks(estimateCheckCosts()) : List.of(), true);
+    }
+
+    /**
+     * @param patchLocation
+     *            whether the patch directory is included, which depends on the
+     *            machine and is therefore left out of the fingerprint and the
+     *            keys of the incremental analysis
+     */
+    List<String> getFlags(String excludedPaths, List<String> disabledChecks, boolean patchLocation)
+            throws MojoExecutionException {
         List<String> flags = new ArrayList<>();
         maybeAddOption(flags, "-XepDisableAllChecks", disableAllChecks);
         maybeAddOption(flags, "-XepDisableAllWarnings", disableAllWarnings);
@@ -180,9 +1220,13 @@ abstract class AbstractConfigurationMojo extends AbstractMojo {
         maybeAddOption(flags, "-XepIgnoreUnknownCheckNames", ignoreUnknownCheckNames);
         maybeAddOption(flags, "-XepIgnoreSuppressionAnnotations", ignoreSuppressionAnnotations);
         maybeAddOption(flags, "-XepCompilingTestOnlyCode", isCompilingTestOnlyCode());
-        maybeAddOption(flags, "-XepExcludedPaths", excludePaths);
+        maybeAddOption(flags, "-XepExcludedPaths", excludedPaths);
 
-        for (var entry : checks.entrySet()) {
+        for (String check : disabledChecks) {
+            flags.add("-Xep:" + check + ":" + CheckSeverity.OFF.name());
+        }
+        // the maps are sorted, so that equal configurations result in equal flags
+        for (var entry : new TreeMap<>(checks).entrySet()) {
             validateName(entry.getKey());
             String option = "-Xep:" + entry.getKey();
             if (entry.getValue() != CheckSeverity.DEFAULT) {
@@ -190,14 +1234,22 @@ abstract class AbstractConfigurationMojo extends AbstractMojo {
             }
             flags.add(option);
         }
-        for (var namespacedEntry : this.namespacedOptions.entrySet()) {
-            for (var entry : namespacedEntry.getValue().entrySet()) {
+        for (var namespacedEntry : new TreeMap<>(this.namespacedOptions).entrySet()) {
+            for (var entry : new TreeMap<>(namespacedEntry.getValue()).entrySet()) {
                 flags.add("-XepOpt:" + namespacedEntry.getKey() + ":" + entry.getKey() + "=" + entry.getValue());
             }
         }
-        for (var entry : this.options.entrySet()) {
+        for (var entry : new TreeMap<>(this.options).entrySet()) {
             flags.add("-XepOpt:" + entry.getKey() + "=" + entry.getValue());
         }
+        if (!patchChecks.isEmpty()) {
+            flags.add("-XepPatchChecks:" + String.join(",", patchChecks));
+            if (patchInPlace) {
+                flags.add("-XepPatchLocation:IN_PLACE");
+            } else if (patchLocation) {
+                flags.add("-XepPatchLocation:" + getPatchLocation());
+            }
+        }
         flags.addAll(arguments);
 
         return flags;
@@ -222,6 +1274,64 @@ abstract class AbstractConfigurationMojo extends AbstractMojo {
         }
     }
 
+    CheckProfile getProfile() throws MojoExecutionException {
+        return parseEnum(CheckProfile.class, "profile", profile);
+    }
+
+    SamplingScope getSamplingScope() throws MojoExecutionException {
+        return parseEnum(SamplingScope.class, "samplingScope", samplingScope);
+    }
+
+    CompilePolicy getCompilePolicy() throws MojoExecutionException {
+        return parseEnum(CompilePolicy.class, "compilePolicy", compilePolicy);
+    }
+
+    /**
+     * Maven converts enum parameters case sensitively, so the properties like
+     * {@code -Derrorprone.profile=fast} are parsed here.
+     */
+    static <E extends Enum<E>> E parseEnum(Class<E> type, String parameter, String value)
+            throws MojoExecutionException {
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value.strip())) {
+                return constant;
+            }
+        }
+        throw new MojoExecutionException("Invalid " + parameter + " '" + value + "', expected one of "
+                + Arrays.toString(type.getEnumConstants()) + " (case insensitive)");
+    }
+
     protected abstract boolean isCompilingTestOnlyCode();
 
+    /**
+     * @return the name of the source set, used as sub directory of the
+     *         {@link #outputDirectory}
+     */
+    protected abstract String getSourceSet();
+
+    /**
+     * @return the goal of the compiler executions compiling the source set
+     */
+    protected abstract String getCompilerGoal();
+
+    protected abstract List<String> getCompileSourceRoots(MavenProject project);
+
+    /**
+     * @return the classpath of the compilation without its own output directory
+     */
+    protected abstract List<String> getClasspathElements(MavenProject project) throws MojoExecutionException;
+
+    /**
+     * @return the dependencies of the project with the given scopes, resolved
+     *         only when a feature needs the classpath
+     */
+    protected List<String> resolveDependencies(MavenProject project, Set<String> scopes)
+            throws MojoExecutionException {
+        try {
+            return projectClasspath.resolve(session, project, scopes);
+        } catch (org.apache.maven.project.DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to resolve the dependencies of " + project.getId(), e);
+        }
+    }
+
 }
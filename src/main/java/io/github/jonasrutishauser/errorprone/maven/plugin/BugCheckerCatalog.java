@@ -0,0 +1,348 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Catalogs the Error Prone checkers on a processor path from the
+ * {@code @BugPattern} annotations of their classes, so that the configured
+ * checks can be validated before the compiler runs.
+ * <p>
+ * The checkers of plugin jars are the ones registered as
+ * {@value #SERVICE_FILE} service, all classes of Error Prone itself are read
+ * for the built-in checkers. Error Prone is recognized by its
+ * {@code BuiltInCheckerSuppliers} class, not by the name of the jar, so a
+ * shaded jar or a jar with dependencies is recognized as well. The catalog of
+ * a jar is cached in the local repository by the checksum of the jar, and for
+ * the session by its path, size and modification time, so the jars are read
+ * only once. Class directories, like the output of a checker project of the
+ * reactor, are read every time, as their classes may change.
+ */
+@Named
+@SessionScoped
+class BugCheckerCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BugCheckerCatalog.class);
+
+    static final String SERVICE_FILE = "META-INF/services/com.google.errorprone.bugpatterns.BugChecker";
+
+    private static final String BUILT_IN_CHECKERS = "com/google/errorprone/scanner/BuiltInCheckerSuppliers.class";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final byte[] BUG_PATTERN = "Lcom/google/errorprone/BugPattern;"
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * A checker of the catalog.
+     *
+     * @param name
+     *            the name of the check
+     * @param altNames
+     *            the alternative names of the check, which may be used for
+     *            suppressions and configuration as well
+     * @param severity
+     *            the default severity, like {@code ERROR}
+     * @param disableable
+     *            whether the check may be disabled
+     */
+    record Checker(String name, List<String> altNames, String severity, boolean disableable) {
+    }
+
+    private final Map<String, List<Checker>> jarCheckers = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheDirectory
+     *            directory of the catalogs cached by checksum
+     * @return the checkers of the processor path by their names and alternative
+     *         names
+     */
+    Map<String, Checker> get(Path cacheDirectory, List<Path> processorPath) throws IOException {
+        Map<String, Checker> checkers = new TreeMap<>();
+        for (Path entry : processorPath) {
+            List<Checker> catalog;
+            if (Files.isDirectory(entry)) {
+                catalog = loadDirectory(entry);
+            } else if (Files.isRegularFile(entry)) {
+                String key = entry + ":" + Files.size(entry) + ":" + Files.getLastModifiedTime(entry).toMillis();
+                catalog = jarCheckers.get(key);
+                if (catalog == null) {
+                    catalog = load(cacheDirectory, entry);
+                    jarCheckers.put(key, catalog);
+                }
+            } else {
+                continue;
+            }
+            for (Checker checker : catalog) {
+                checkers.put(checker.name(), checker);
+                checker.altNames().forEach(altName -> checkers.putIfAbsent(altName, checker));
+            }
+        }
+        return checkers;
+    }
+
+    private static List<Checker> load(Path cacheDirectory, Path jar) throws IOException {
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            boolean core = zipFile.getEntry(BUILT_IN_CHECKERS) != null;
+            ZipEntry serviceFile = zipFile.getEntry(SERVICE_FILE);
+            if (!core && serviceFile == null) {
+                return List.of();
+            }
+            Path cacheFile = cacheDirectory.resolve(checksum(jar));
+            if (Files.isRegularFile(cacheFile)) {
+                return read(cacheFile);
+            }
+            long start = System.nanoTime();
+            List<Checker> checkers = new ArrayList<>();
+            for (String className : core ? getClassNames(zipFile) : getServiceClassNames(zipFile, serviceFile)) {
+                ZipEntry entry = zipFile.getEntry(className.replace('.', '/') + CLASS_SUFFIX);
+                if (entry != null) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        Checker checker = describe(in.readAllBytes());
+                        if (checker != null) {
+                            checkers.add(checker);
+                        }
+                    }
+                }
+            }
+            write(cacheFile, checkers);
+            LOGGER.debug("Cataloged {} Error Prone checkers of {} in {} ms", checkers.size(), jar,
+                    (System.nanoTime() - start) / 1_000_000);
+            return checkers;
+        }
+    }
+
+    private static List<Checker> loadDirectory(Path directory) throws IOException {
+        Path serviceFile = directory.resolve(SERVICE_FILE);
+        List<String> classNames;
+        if (Files.isRegularFile(directory.resolve(BUILT_IN_CHECKERS))) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                classNames = files.map(file -> directory.relativize(file).toString().replace(File.separatorChar, '/'))
+                        .filter(name -> name.endsWith(CLASS_SUFFIX))
+                        .map(name -> name.substring(0, name.length() - CLASS_SUFFIX.length())).sorted().toList();
+            }
+        } else if (Files.isRegularFile(serviceFile)) {
+            classNames = getServiceClassNames(Files.readAllBytes(serviceFile));
+        } else {
+            return List.of();
+        }
+        List<Checker> checkers = new ArrayList<>();
+        for (String className : classNames) {
+            Path classFile = directory.resolve(className.replace('.', '/') + CLASS_SUFFIX);
+            if (Files.isRegularFile(classFile)) {
+                Checker checker = describe(Files.readAllBytes(classFile));
+                if (checker != null) {
+                    checkers.add(checker);
+                }
+            }
+        }
+        return checkers;
+    }
+
+    private static List<String> getClassNames(ZipFile zipFile) {
+        return Collections.list(zipFile.entries()).stream().map(ZipEntry::getName)
+                .filter(name -> name.endsWith(CLASS_SUFFIX))
+                .map(name -> name.substring(0, name.length() - CLASS_SUFFIX.length())).sorted().toList();
+    }
+
+    private static List<String> getServiceClassNames(ZipFile zipFile, ZipEntry serviceFile) throws IOException {
+        try (InputStream in = zipFile.getInputStream(serviceFile)) {
+            return getServiceClassNames(in.readAllBytes());
+        }
+    }
+
+    private static List<String> getServiceClassNames(byte[] serviceFile) {
+        List<String> classNames = new ArrayList<>();
+        for (String line : new String(serviceFile, StandardCharsets.UTF_8).split("\n")) {
+            int comment = line.indexOf('#');
+            String className = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (!className.isEmpty()) {
+                classNames.add(className);
+            }
+        }
+        return classNames;
+    }
+
+    private static String checksum(Path jar) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        return Digests.toHex(digest);
+    }
+
+    /**
+     * One checker per line: the name, the default severity, whether it is
+     * disableable and the alternative names, separated by spaces.
+     */
+    private static List<Checker> read(Path cacheFile) throws IOException {
+        List<Checker> checkers = new ArrayList<>();
+        for (String line : Files.readAllLines(cacheFile)) {
+            String[] values = line.split(" ");
+            if (values.length >= 3) {
+                checkers.add(new Checker(values[0], List.of(values).subList(3, values.length), values[1],
+                        Boolean.parseBoolean(values[2])));
+            }
+        }
+        return checkers;
+    }
+
+    private static void write(Path cacheFile, List<Checker> checkers) throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        Path temporaryFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        Files.write(temporaryFile, checkers.stream().map(checker -> String.join(" ", checker.name(),
+                checker.severity(), Boolean.toString(checker.disableable()), String.join(" ", checker.altNames()))
+                .strip()).toList());
+        // concurrent builds may catalog the same jar
+        Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the checker of the class file, or {@code null} if it is not
+     *         annotated with {@code @BugPattern} or cannot be read
+     */
+    static Checker describe(byte[] classFile) {
+        if (!contains(classFile, BUG_PATTERN)) {
+            return null;
+        }
+        try {
+            return new BugPatternReader(ByteBuffer.wrap(classFile)).readBugPattern();
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                | ClassCastException e) {
+            return null;
+        }
+    }
+
+    private static boolean contains(byte[] bytes, byte[] value) {
+        outer: for (int i = 0; i <= bytes.length - value.length; i++) {
+            for (int j = 0; j < value.length; j++) {
+                if (bytes[i + j] != value[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class BugPatternReader extends ClassFileReader {
+
+        BugPatternReader(ByteBuffer buffer) {
+            super(buffer);
+        }
+
+        Checker readBugPattern() {
+            readHeader();
+            u2(); // access
+            String className = classInfo(u2());
+            u2(); // super class
+            skip(u2() * 2); // interfaces
+            for (int members = 0; members < 2; members++) {
+                for (int i = u2(); i > 0; i--) {
+                    skip(6);
+                    skipAttributes();
+                }
+            }
+            for (int i = u2(); i > 0; i--) {
+                String name = utf8(u2());
+                int end = buffer.getInt() + buffer.position();
+                if ("RuntimeVisibleAnnotations".equals(name)) {
+                    for (int j = u2(); j > 0; j--) {
+                        String type = utf8(u2());
+                        Map<String, Object> elements = readElements();
+                        if ("Lcom/google/errorprone/BugPattern;".equals(type)) {
+                            return toChecker(className, elements);
+                        }
+                    }
+                }
+                buffer.position(end);
+            }
+            return null;
+        }
+
+        private static Checker toChecker(String className, Map<String, Object> elements) {
+            String name = (String) elements.getOrDefault("name", "");
+            if (name.isEmpty()) {
+                name = className.substring(Math.max(className.lastIndexOf('/'), className.lastIndexOf('$')) + 1);
+            }
+            Object altNames = elements.getOrDefault("altNames", List.of());
+            return new Checker(name, ((List<?>) altNames).stream().map(String.class::cast).toList(),
+                    (String) elements.getOrDefault("severity", "ERROR"),
+                    !Boolean.FALSE.equals(elements.getOrDefault("disableable", Boolean.TRUE)));
+        }
+
+        private Map<String, Object> readElements() {
+            Map<String, Object> elements = new TreeMap<>();
+            for (int i = u2(); i > 0; i--) {
+                String name = utf8(u2());
+                elements.put(name, elementValue());
+            }
+            return elements;
+        }
+
+        /**
+         * @return the value of a string, boolean or enum element, a list for an
+         *         array, {@code null} for everything else
+         */
+        private Object elementValue() {
+            char tag = (char) u1();
+            return switch (tag) {
+            case 'Z' -> Integer.valueOf(1).equals(value(u2()));
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'c' -> {
+                u2();
+                yield null;
+            }
+            case 's' -> utf8(u2());
+            case 'e' -> {
+                u2(); // type
+                yield utf8(u2());
+            }
+            case '@' -> {
+                u2(); // type
+                readElements();
+                yield null;
+            }
+            case '[' -> {
+                List<Object> elements = new ArrayList<>();
+                for (int i = u2(); i > 0; i--) {
+                    elements.add(elementValue());
+                }
+                yield elements;
+            }
+            default -> throw new IllegalArgumentException("unknown element value " + tag);
+            };
+        }
+
+        private void skipAttributes() {
+            for (int i = u2(); i > 0; i--) {
+                u2(); // name
+                skip(buffer.getInt());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+
+/**
+ * Determines the files changed since a git revision. The git commands are run
+ * once per repository and revision in a session.
+ */
+@Named
+@SessionScoped
+class ChangedFiles {
+
+    private final Map<String, Set<Path>> changedFiles = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory
+     *            a directory within the git working tree
+     * @param revision
+     *            the revision to compare with
+     * @return the real paths of the files changed since the merge base of the
+     *         revision and {@code HEAD}, including uncommitted and untracked
+     *         files
+     */
+    Set<Path> since(Path directory, String revision) throws IOException {
+        Path topLevel = Path.of(git(directory, "rev-parse", "--show-toplevel").get(0)).toRealPath();
+        try {
+            return changedFiles.computeIfAbsent(topLevel + " " + revision, key -> {
+                try {
+                    return compute(topLevel, revision);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Set<Path> compute(Path topLevel, String revision) throws IOException {
+        String mergeBase = git(topLevel, "merge-base", revision, "HEAD").get(0);
+        Set<Path> files = new HashSet<>();
+        for (String file : git(topLevel, "diff", "--name-only", "-z", "--diff-filter=d", mergeBase)) {
+            files.add(topLevel.resolve(file).normalize());
+        }
+        for (String file : git(topLevel, "ls-files", "-z", "--others", "--exclude-standard")) {
+            files.add(topLevel.resolve(file).normalize());
+        }
+        return Set.copyOf(files);
+    }
+
+    private static List<String> git(Path directory, String... arguments) throws IOException {
+        List<String> command = new ArrayList<>(List.of("git", "-C", directory.toString()));
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).redirectError(Redirect.DISCARD).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException(String.join(" ", command) + " failed with exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(String.join(" ", command) + " was interrupted", e);
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : output.split("[\0\n]")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+}
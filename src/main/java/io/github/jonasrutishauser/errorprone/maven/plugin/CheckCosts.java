@@ -0,0 +1,114 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Measured time spent per check and source file, used to select the checks the
+ * {@link CheckProfile#FAST} profile disables for a source set.
+ * <p>
+ * The costs are taken from the {@link Timings} of an earlier build, and from the
+ * costs saved in an earlier build. Saving the merged costs keeps checks which
+ * were disabled (and therefore not measured) disabled in later builds. The
+ * costs are normalized per source file, so they still apply if the number of
+ * source files changes.
+ */
+final class CheckCosts {
+
+    /**
+     * Name of the file with the saved costs in the work directory of a source
+     * set.
+     */
+    static final String FILE_NAME = "check-costs.properties";
+
+    private final Map<String, Long> nanosPerFile;
+    private final int sourceFiles;
+
+    private CheckCosts(Map<String, Long> nanosPerFile, int sourceFiles) {
+        this.nanosPerFile = nanosPerFile;
+        this.sourceFiles = sourceFiles;
+    }
+
+    /**
+     * @param sourceFiles
+     *            the number of source files to analyze
+     * @param costsFile
+     *            the costs saved in an earlier build, may not exist
+     * @param timingsFile
+     *            the timings of an earlier build, may not exist
+     */
+    static CheckCosts estimate(int sourceFiles, Path costsFile, Path timingsFile) throws IOException {
+        Map<String, Long> nanosPerFile = new HashMap<>();
+        if (Files.isRegularFile(costsFile)) {
+            Properties saved = new Properties();
+            try (Reader reader = Files.newBufferedReader(costsFile)) {
+                saved.load(reader);
+            }
+            saved.forEach((check, value) -> nanosPerFile.put(check.toString(), Long.parseLong(value.toString())));
+        }
+        if (timingsFile != null && Files.isRegularFile(timingsFile)) {
+            Timings timings = Timings.read(timingsFile);
+            if (timings.files() > 0) {
+                timings.checks().forEach((check, nanos) -> nanosPerFile.put(check, nanos / timings.files()));
+            }
+        }
+        return new CheckCosts(nanosPerFile, sourceFiles);
+    }
+
+    void save(Path costsFile) throws IOException {
+        Properties properties = new Properties();
+        nanosPerFile.forEach((check, value) -> properties.setProperty(check, value.toString()));
+        Files.createDirectories(costsFile.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(costsFile)) {
+            properties.store(writer, "Measured nanoseconds per check and source file");
+        }
+    }
+
+    /**
+     * @return whether no cost has been measured yet
+     */
+    boolean isEmpty() {
+        return nanosPerFile.isEmpty();
+    }
+
+    long totalNanos() {
+        return nanosPerFile.values().stream().mapToLong(Long::longValue).sum() * sourceFiles;
+    }
+
+    /**
+     * Selects the checks to disable, most expensive first, until the remaining
+     * estimated time is within the budget. Explicitly configured checks are
+     * never selected.
+     */
+    List<String> checksToDisable(long budgetNanos, Set<String> explicitChecks) {
+        List<Map.Entry<String, Long>> candidates = new ArrayList<>(nanosPerFile.entrySet());
+        candidates.removeIf(entry -> explicitChecks.contains(entry.getKey()));
+        candidates.sort(Map.Entry.<String, Long> comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<String> disabled = new ArrayList<>();
+        long remaining = totalNanos();
+        for (var candidate : candidates) {
+            if (remaining <= budgetNanos) {
+                break;
+            }
+            disabled.add(candidate.getKey());
+            remaining -= candidate.getValue() * sourceFiles;
+        }
+        return disabled;
+    }
+
+    long remainingNanos(List<String> disabled) {
+        return totalNanos()
+                - disabled.stream().mapToLong(check -> nanosPerFile.getOrDefault(check, 0L)).sum() * sourceFiles;
+    }
+
+}
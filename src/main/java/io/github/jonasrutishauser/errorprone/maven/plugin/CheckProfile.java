@@ -0,0 +1,14 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+public enum CheckProfile {
+    /**
+     * Runs all configured checks.
+     */
+    FULL,
+    /**
+     * Disables the most expensive checks until the estimated Error Prone time of
+     * a module fits into the configured budget. The costs of the checks are
+     * measured by the timings of earlier builds, all checks run until then.
+     */
+    FAST
+}
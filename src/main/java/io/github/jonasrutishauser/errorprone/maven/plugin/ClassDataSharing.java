@@ -0,0 +1,225 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maintains dynamic class data sharing archives for the forked compilers, so
+ * that the classes of javac and Error Prone are not loaded and verified again
+ * by every forked JVM.
+ * <p>
+ * An archive is kept in the local repository per JDK, processor path and JVM
+ * arguments, so a new archive is created whenever one of them changes. The
+ * processor path is identified by the checksums of its entries, so a rebuilt
+ * snapshot or a replaced jar gets a new archive as well. The
+ * first forked compiler of a session without an archive creates it at exit,
+ * the following builds use it. At the end of the session a new archive is
+ * logged. Only if {@link #enableMeasurement() enabled}, the startup time of a
+ * compiler with and without a new archive is measured once, which takes four
+ * more forked compilations, and logged from then on.
+ */
+@Named
+@SessionScoped
+class ClassDataSharing {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassDataSharing.class);
+
+    private static final String ARCHIVE_FILE = "compiler.jsa";
+    private static final String SAVINGS_FILE = "startup-savings.properties";
+
+    /**
+     * Prefixes of JVM arguments which do not change the archived classes, but
+     * may differ per source set.
+     */
+    private static final List<String> UNRELATED_JVM_ARGUMENTS = List.of("-XX:StartFlightRecording", "-Xlog:",
+            "-Xmx", "-XX:+UseSerialGC", "-XX:+UseParallelGC", "-XX:TieredStopAtLevel");
+
+    /**
+     * An archive used or created in this session.
+     */
+    private record Archive(Path file, RepositorySystemSession repositorySession, MavenProject project,
+            List<String> jvmArguments, boolean created) {
+    }
+
+    private final ProcessorPathResolver processorPathResolver;
+    private final Map<Path, Archive> archives = new ConcurrentHashMap<>();
+    private volatile boolean measure;
+
+    @Inject
+    ClassDataSharing(ProcessorPathResolver processorPathResolver) {
+        this.processorPathResolver = processorPathResolver;
+    }
+
+    /**
+     * @param jvmArguments
+     *            the other arguments for the JVM of the forked compiler
+     * @param mayCreate
+     *            whether the archive may be created by the compiler, which must
+     *            not be done by concurrent JVMs
+     * @return the arguments for the JVM of a forked compiler using or creating
+     *         the archive
+     */
+    List<String> getJvmArguments(RepositorySystemSession repositorySession, MavenProject project,
+            List<String> jvmArguments, boolean mayCreate) {
+        Path archive;
+        try {
+            archive = getDirectory(repositorySession, project, jvmArguments).resolve(ARCHIVE_FILE);
+        } catch (DependencyResolutionException | IOException e) {
+            LOGGER.warn("Failed to identify the class data sharing archive of the processor path", e);
+            return List.of();
+        }
+        if (Files.isRegularFile(archive)) {
+            archives.putIfAbsent(archive, new Archive(archive, repositorySession, project, jvmArguments, false));
+            return List.of("-XX:SharedArchiveFile=" + archive);
+        }
+        if (mayCreate && archives.putIfAbsent(archive,
+                new Archive(archive, repositorySession, project, jvmArguments, true)) == null) {
+            try {
+                Files.createDirectories(archive.getParent());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to create directory for class data sharing archive {}", archive, e);
+                return List.of();
+            }
+            LOGGER.info("Creating class data sharing archive {} for the forked compilers", archive);
+            return List.of("-XX:ArchiveClassesAtExit=" + archive);
+        }
+        return List.of();
+    }
+
+    /**
+     * Measures the startup savings of the archives created in this session at
+     * its end.
+     */
+    void enableMeasurement() {
+        measure = true;
+    }
+
+    /**
+     * Logs the startup savings of the archives used or created in this session,
+     * measuring them first for new archives if {@link #enableMeasurement()
+     * enabled}, otherwise only the creation of new archives.
+     */
+    void reportSavings() {
+        for (Archive archive : archives.values()) {
+            if (!Files.isRegularFile(archive.file())) {
+                LOGGER.warn("Class data sharing archive {} was not created", archive.file());
+                continue;
+            }
+            Path savingsFile = archive.file().resolveSibling(SAVINGS_FILE);
+            try {
+                Properties savings = new Properties();
+                if (Files.isRegularFile(savingsFile)) {
+                    try (Reader reader = Files.newBufferedReader(savingsFile)) {
+                        savings.load(reader);
+                    }
+                } else if (!measure) {
+                    if (archive.created()) {
+                        LOGGER.info("Created class data sharing archive {} for the forked compilers",
+                                archive.file());
+                    }
+                    continue;
+                } else {
+                    savings = measure(archive);
+                    try (Writer writer = Files.newBufferedWriter(savingsFile)) {
+                        savings.store(writer, "Startup of a forked compiler in milliseconds");
+                    }
+                }
+                long with = Long.parseLong(savings.getProperty("withArchive"));
+                long without = Long.parseLong(savings.getProperty("withoutArchive"));
+                LOGGER.info("Class data sharing saves about {} ms per forked compiler ({} ms instead of {} ms)",
+                        without - with, with, without);
+            } catch (IOException | DependencyResolutionException | RuntimeException e) {
+                LOGGER.warn("Failed to measure the startup savings of class data sharing archive {}",
+                        archive.file(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        archives.clear();
+    }
+
+    /**
+     * Measures the time a forked compiler with Error Prone takes for a trivial
+     * source file, the best of two runs with and without the archive.
+     */
+    private Properties measure(Archive archive)
+            throws IOException, DependencyResolutionException, InterruptedException {
+        List<Artifact> artifacts = processorPathResolver.resolveArtifacts(archive.repositorySession(),
+                archive.project(), List.of());
+        List<Path> processorPath = artifacts.stream().map(artifact -> artifact.getFile().toPath()).toList();
+        Path probeDirectory = Files.createDirectories(archive.file().resolveSibling("probe"));
+        Path source = probeDirectory.resolve("Probe.java");
+        Files.writeString(source, "class Probe {}\n");
+        List<String> options = new ArrayList<>(List.of(CompilePolicy.AUTO
+                .resolve(CompilePolicy.getErrorProneVersion(artifacts)).getCompilerArg()));
+        options.addAll(CompilerConfiguration.COMPILER_ARGS);
+        options.add("-Xplugin:ErrorProne");
+        List<String> jvmArguments = new ArrayList<>(CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION);
+        archive.jvmArguments().forEach(jvmArgument -> jvmArguments.add("-J" + jvmArgument));
+        List<String> archiveJvmArguments = new ArrayList<>(jvmArguments);
+        archiveJvmArguments.add("-J-XX:SharedArchiveFile=" + archive.file());
+        ErrorProneAnalysis withArchive = new ErrorProneAnalysis("probe", probeDirectory, "probe",
+                archiveJvmArguments, options);
+        ErrorProneAnalysis withoutArchive = new ErrorProneAnalysis("probe", probeDirectory, "probe", jvmArguments,
+                options);
+        long with = Long.MAX_VALUE;
+        long without = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            with = Math.min(with, time(withArchive, processorPath, source));
+            without = Math.min(without, time(withoutArchive, processorPath, source));
+        }
+        Properties savings = new Properties();
+        savings.setProperty("withArchive", Long.toString(with));
+        savings.setProperty("withoutArchive", Long.toString(without));
+        return savings;
+    }
+
+    private static long time(ErrorProneAnalysis analysis, List<Path> processorPath, Path source)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ErrorProneAnalysis.Result result = analysis.run(processorPath, List.of(source));
+        if (!result.succeeded()) {
+            throw new IllegalStateException("Probe compilation failed: " + String.join("\n", result.output()));
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private Path getDirectory(RepositorySystemSession repositorySession, MavenProject project,
+            List<String> jvmArguments) throws DependencyResolutionException, IOException {
+        MessageDigest digest = Digests.newDigest();
+        Digests.update(digest, System.getProperty("java.home"));
+        Digests.update(digest, System.getProperty("java.vm.version"));
+        for (String checksum : processorPathResolver.getChecksums(repositorySession, project)) {
+            Digests.update(digest, checksum);
+        }
+        for (String jvmArgument : jvmArguments) {
+            if (UNRELATED_JVM_ARGUMENTS.stream().noneMatch(jvmArgument::startsWith)) {
+                Digests.update(digest, jvmArgument);
+            }
+        }
+        return repositorySession.getLocalRepository().getBasedir().toPath()
+                .resolve(".cache/errorprone-maven-plugin/cds").resolve(Digests.toHex(digest));
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the header and the constant pool of a class file, for the readers of
+ * the parts following it.
+ * <p>
+ * Malformed class files fail with a {@link java.nio.BufferUnderflowException},
+ * an {@link IllegalArgumentException}, an {@link IndexOutOfBoundsException} or
+ * a {@link ClassCastException}.
+ */
+class ClassFileReader {
+
+    static final int CONSTANT_UTF8 = 1;
+    static final int CONSTANT_STRING = 8;
+
+    final ByteBuffer buffer;
+    private int[] tags;
+    private Object[] values;
+
+    ClassFileReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads the magic number, the version and the constant pool, so that the
+     * buffer is positioned at the access flags of the class.
+     */
+    void readHeader() {
+        if (buffer.getInt() != 0xCAFEBABE) {
+            throw new IllegalArgumentException("not a class file");
+        }
+        buffer.getInt(); // version
+        int count = u2();
+        tags = new int[count];
+        values = new Object[count];
+        for (int i = 1; i < count; i++) {
+            int tag = u1();
+            tags[i] = tag;
+            switch (tag) {
+            case CONSTANT_UTF8 -> values[i] = modifiedUtf8(u2());
+            case 3 -> values[i] = buffer.getInt();
+            case 4 -> values[i] = buffer.getFloat();
+            case 5 -> values[i++] = buffer.getLong();
+            case 6 -> values[i++] = buffer.getDouble();
+            case 7, CONSTANT_STRING, 16, 19, 20 -> values[i] = u2();
+            case 15 -> skip(3);
+            case 9, 10, 11, 12, 17, 18 -> skip(4);
+            default -> throw new IllegalArgumentException("unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    int tag(int index) {
+        return tags[index];
+    }
+
+    /**
+     * @return the value of a numeric constant, or the index of the constant
+     *         referenced by a class, string, module or package constant
+     */
+    Object value(int index) {
+        return values[index];
+    }
+
+    String utf8(int index) {
+        if (tags[index] != CONSTANT_UTF8) {
+            throw new IllegalArgumentException("no UTF-8 constant at " + index);
+        }
+        return (String) values[index];
+    }
+
+    String classInfo(int index) {
+        return utf8((Integer) values[index]);
+    }
+
+    int u1() {
+        return buffer.get() & 0xFF;
+    }
+
+    int u2() {
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    void skip(int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Decodes the modified UTF-8 of class files, which encodes NUL with two
+     * bytes and supplementary characters as surrogate pairs of three bytes
+     * each.
+     */
+    private String modifiedUtf8(int length) {
+        char[] chars = new char[length];
+        int count = 0;
+        int end = buffer.position() + length;
+        while (buffer.position() < end) {
+            int a = u1();
+            if (a < 0x80) {
+                chars[count++] = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                chars[count++] = (char) ((a & 0x1F) << 6 | continuation());
+            } else if ((a & 0xF0) == 0xE0) {
+                chars[count++] = (char) ((a & 0x0F) << 12 | continuation() << 6 | continuation());
+            } else {
+                throw new IllegalArgumentException("malformed modified UTF-8");
+            }
+        }
+        if (buffer.position() != end) {
+            throw new IllegalArgumentException("malformed modified UTF-8");
+        }
+        return new String(chars, 0, count);
+    }
+
+    private int continuation() {
+        int b = u1();
+        if ((b & 0xC0) != 0x80) {
+            throw new IllegalArgumentException("malformed modified UTF-8");
+        }
+        return b & 0x3F;
+    }
+
+}
@@ -0,0 +1,296 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+
+/**
+ * Digests the ABI of a classpath: the signatures, annotations and constants of
+ * its classes without any method body. Rebuilding an upstream project without
+ * changing its API therefore does not change the digest.
+ * <p>
+ * All members but the private and synthetic ones are part of the ABI, as tests
+ * use the package-private members of the classes they test. Local and
+ * anonymous classes are not, as they come and go with method bodies. The
+ * members are sorted, so reordering them does not change the digest either.
+ * <p>
+ * The digests of jar files are cached for the session by path, size and
+ * modification time. Directories, the output of other projects in the
+ * reactor, are read every time.
+ */
+@Named
+@SessionScoped
+class ClasspathAbi {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_BRIDGE = 0x0040;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private final Map<String, String> jarDigests = new ConcurrentHashMap<>();
+
+    String digest(List<String> classpathElements) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        for (String classpathElement : classpathElements) {
+            Path path = Path.of(classpathElement);
+            if (Files.isDirectory(path)) {
+                Digests.update(digest, digestDirectory(path));
+            } else if (Files.isRegularFile(path)) {
+                String key = path + ":" + Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+                String jarDigest = jarDigests.get(key);
+                if (jarDigest == null) {
+                    jarDigest = digestJar(path);
+                    jarDigests.put(key, jarDigest);
+                }
+                Digests.update(digest, jarDigest);
+            }
+        }
+        return Digests.toHex(digest);
+    }
+
+    private static String digestDirectory(Path directory) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(directory)) {
+            classFiles = files.filter(file -> file.getFileName().toString().endsWith(CLASS_SUFFIX))
+                    .filter(Files::isRegularFile).sorted().toList();
+        }
+        for (Path classFile : classFiles) {
+            Digests.update(digest, describe(Files.readAllBytes(classFile)));
+        }
+        return Digests.toHex(digest);
+    }
+
+    private static String digestJar(Path jar) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries()).stream()
+                    .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(CLASS_SUFFIX))
+                    .sorted((a, b) -> a.getName().compareTo(b.getName())).toList();
+            for (ZipEntry entry : entries) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    Digests.update(digest, describe(in.readAllBytes()));
+                }
+            }
+        }
+        return Digests.toHex(digest);
+    }
+
+    /**
+     * @return the ABI of the class file as text, empty for a class which is not
+     *         part of the ABI, or the whole content if it cannot be read
+     */
+    static String describe(byte[] classFile) {
+        try {
+            return new AbiReader(ByteBuffer.wrap(classFile)).describe();
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                | ClassCastException e) {
+            return HexFormat.of().formatHex(classFile);
+        }
+    }
+
+    private static final class AbiReader extends ClassFileReader {
+
+        private String className;
+        private boolean excluded;
+
+        AbiReader(ByteBuffer buffer) {
+            super(buffer);
+        }
+
+        String describe() {
+            readHeader();
+            StringBuilder result = new StringBuilder();
+            int access = u2();
+            className = classInfo(u2());
+            result.append("class ").append(className).append(' ').append(access);
+            int superClass = u2();
+            result.append(" extends ").append(superClass == 0 ? "" : classInfo(superClass));
+            for (int i = u2(); i > 0; i--) {
+                result.append(" implements ").append(classInfo(u2()));
+            }
+            result.append('\n');
+            List<String> members = new ArrayList<>();
+            for (int i = u2(); i > 0; i--) {
+                readMember("field ", members);
+            }
+            for (int i = u2(); i > 0; i--) {
+                readMember("method ", members);
+            }
+            List<String> attributes = new ArrayList<>();
+            readAttributes(attributes);
+            if (excluded) {
+                return "";
+            }
+            Collections.sort(members);
+            attributes.forEach(attribute -> result.append(attribute).append('\n'));
+            members.forEach(member -> result.append(member).append('\n'));
+            return result.toString();
+        }
+
+        private void readMember(String kind, List<String> members) {
+            int access = u2();
+            String name = utf8(u2());
+            String descriptor = utf8(u2());
+            List<String> attributes = new ArrayList<>();
+            readAttributes(attributes);
+            if ((access & (ACC_PRIVATE | ACC_SYNTHETIC)) != 0 || "<clinit>".equals(name)
+                    || ("method ".equals(kind) && (access & ACC_BRIDGE) != 0)) {
+                return;
+            }
+            StringBuilder member = new StringBuilder(kind).append(name).append(' ').append(descriptor).append(' ')
+                    .append(access);
+            attributes.forEach(attribute -> member.append(' ').append(attribute));
+            members.add(member.toString());
+        }
+
+        private void readAttributes(List<String> attributes) {
+            for (int i = u2(); i > 0; i--) {
+                String name = utf8(u2());
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                switch (name) {
+                case "ConstantValue" -> attributes.add("= " + constant(u2()));
+                case "Signature" -> attributes.add("signature " + utf8(u2()));
+                case "Exceptions" -> {
+                    for (int j = u2(); j > 0; j--) {
+                        attributes.add("throws " + classInfo(u2()));
+                    }
+                }
+                case "Deprecated" -> attributes.add("deprecated");
+                case "AnnotationDefault" -> attributes.add("default " + elementValue());
+                case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations" -> {
+                    for (int j = u2(); j > 0; j--) {
+                        attributes.add(annotation());
+                    }
+                }
+                case "RuntimeVisibleParameterAnnotations", "RuntimeInvisibleParameterAnnotations" -> {
+                    int parameters = u1();
+                    for (int parameter = 0; parameter < parameters; parameter++) {
+                        for (int j = u2(); j > 0; j--) {
+                            attributes.add("parameter " + parameter + ' ' + annotation());
+                        }
+                    }
+                }
+                case "RuntimeVisibleTypeAnnotations", "RuntimeInvisibleTypeAnnotations" -> {
+                    for (int j = u2(); j > 0; j--) {
+                        attributes.add(typeAnnotation());
+                    }
+                }
+                case "PermittedSubclasses" -> {
+                    for (int j = u2(); j > 0; j--) {
+                        attributes.add("permits " + classInfo(u2()));
+                    }
+                }
+                case "Record" -> {
+                    for (int j = u2(); j > 0; j--) {
+                        StringBuilder component = new StringBuilder("component ").append(utf8(u2())).append(' ')
+                                .append(utf8(u2()));
+                        List<String> componentAttributes = new ArrayList<>();
+                        readAttributes(componentAttributes);
+                        componentAttributes.forEach(attribute -> component.append(' ').append(attribute));
+                        attributes.add(component.toString());
+                    }
+                }
+                case "InnerClasses" -> readInnerClasses();
+                default -> {
+                    // not part of the ABI, like the code of a method
+                }
+                }
+                buffer.position(end);
+            }
+        }
+
+        /**
+         * Excludes the class itself if it is a local, anonymous or private
+         * class.
+         */
+        private void readInnerClasses() {
+            for (int i = u2(); i > 0; i--) {
+                int innerClass = u2();
+                int outerClass = u2();
+                u2(); // inner name
+                int access = u2();
+                if (innerClass != 0 && className.equals(classInfo(innerClass))
+                        && (outerClass == 0 || (access & (ACC_PRIVATE | ACC_SYNTHETIC)) != 0)) {
+                    excluded = true;
+                }
+            }
+        }
+
+        private String annotation() {
+            StringBuilder annotation = new StringBuilder("@").append(utf8(u2())).append('(');
+            for (int i = u2(); i > 0; i--) {
+                annotation.append(utf8(u2())).append('=').append(elementValue()).append(i > 1 ? "," : "");
+            }
+            return annotation.append(')').toString();
+        }
+
+        private String elementValue() {
+            char tag = (char) u1();
+            return switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z' -> tag + constant(u2());
+            case 's' -> '"' + utf8(u2()) + '"';
+            case 'e' -> utf8(u2()) + '.' + utf8(u2());
+            case 'c' -> utf8(u2()) + ".class";
+            case '@' -> annotation();
+            case '[' -> {
+                List<String> elements = new ArrayList<>();
+                for (int i = u2(); i > 0; i--) {
+                    elements.add(elementValue());
+                }
+                yield elements.toString();
+            }
+            default -> throw new IllegalArgumentException("unknown element value " + tag);
+            };
+        }
+
+        private String typeAnnotation() {
+            int targetType = u1();
+            int targetInfoLength = switch (targetType) {
+            case 0x13, 0x14, 0x15 -> 0;
+            case 0x00, 0x01, 0x16 -> 1;
+            case 0x10, 0x11, 0x12, 0x17, 0x42, 0x43, 0x44, 0x45, 0x46 -> 2;
+            case 0x47, 0x48, 0x49, 0x4A, 0x4B -> 3;
+            case 0x40, 0x41 -> {
+                int entries = buffer.getShort(buffer.position()) & 0xFFFF;
+                yield 2 + entries * 6;
+            }
+            default -> throw new IllegalArgumentException("unknown type annotation target " + targetType);
+            };
+            byte[] targetInfo = new byte[targetInfoLength];
+            buffer.get(targetInfo);
+            byte[] typePath = new byte[u1() * 2];
+            buffer.get(typePath);
+            return "type " + targetType + ':' + HexFormat.of().formatHex(targetInfo) + ':'
+                    + HexFormat.of().formatHex(typePath) + ' ' + annotation();
+        }
+
+        private String constant(int index) {
+            if (tag(index) == CONSTANT_STRING) {
+                return '"' + utf8((Integer) value(index)) + '"';
+            }
+            return String.valueOf(value(index));
+        }
+
+    }
+
+}
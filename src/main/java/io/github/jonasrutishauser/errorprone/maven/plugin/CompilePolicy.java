@@ -0,0 +1,72 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.eclipse.aether.artifact.Artifact;
+
+public enum CompilePolicy {
+    /**
+     * Uses {@link #BYFILE} if the Error Prone version on the processor path
+     * supports it, {@link #SIMPLE} otherwise.
+     */
+    AUTO,
+    /**
+     * Attributes and analyzes all source files before any class is generated,
+     * so the syntax trees of the whole source set are kept in memory.
+     */
+    SIMPLE,
+    /**
+     * Attributes, analyzes and generates the classes of one source file after
+     * the other, so only the syntax trees of the current file are kept in
+     * memory. Requires Error Prone 2.36.0 or later.
+     */
+    BYFILE;
+
+    static final String COMPILER_ARG_PREFIX = "-XDcompilePolicy=";
+
+    private static final String ERROR_PRONE_GROUP_ID = "com.google.errorprone";
+    private static final String ERROR_PRONE_CORE = "error_prone_core";
+    private static final ComparableVersion BYFILE_SINCE = new ComparableVersion("2.36.0");
+
+    /**
+     * @return the compiler argument of the policy, which must not be
+     *         {@link #AUTO}
+     */
+    String getCompilerArg() {
+        if (this == AUTO) {
+            throw new IllegalStateException("The compile policy is not resolved");
+        }
+        return COMPILER_ARG_PREFIX + name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param errorProneVersion
+     *            the version of Error Prone, or {@code null} if it is unknown
+     * @return the policy itself, or for {@link #AUTO} the policy supported by
+     *         the given Error Prone version, {@link #SIMPLE} if it is unknown
+     */
+    CompilePolicy resolve(String errorProneVersion) {
+        if (this != AUTO) {
+            return this;
+        }
+        return errorProneVersion != null
+                && new ComparableVersion(errorProneVersion).compareTo(BYFILE_SINCE) >= 0 ? BYFILE : SIMPLE;
+    }
+
+    /**
+     * @return the base version of the resolved {@code error_prone_core}
+     *         artifact on the processor path, or {@code null} if it is not
+     *         found
+     */
+    static String getErrorProneVersion(List<Artifact> processorPath) {
+        for (Artifact artifact : processorPath) {
+            if (ERROR_PRONE_GROUP_ID.equals(artifact.getGroupId())
+                    && ERROR_PRONE_CORE.equals(artifact.getArtifactId())) {
+                return artifact.getBaseVersion();
+            }
+        }
+        return null;
+    }
+}
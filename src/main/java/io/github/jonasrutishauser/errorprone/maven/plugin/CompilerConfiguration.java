@@ -1,8 +1,12 @@
 package io.github.jonasrutishauser.errorprone.maven.plugin;
 
-import java.util.HashMap;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -12,11 +16,13 @@ import org.apache.commons.lang3.SystemUtils;
 import org.apache.maven.SessionScoped;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.MojoExecution;
-import org.apache.maven.plugin.PluginParameterExpressionEvaluator;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
+import org.apache.maven.toolchain.ToolchainManager;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,7 +32,9 @@ class CompilerConfiguration {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CompilerConfiguration.class);
 
-    private static final List<String> JVM_ARGS_STRONG_ENCAPSULATION = List.of(
+    static final String COMPILER_PLUGIN = "org.apache.maven.plugins:maven-compiler-plugin";
+
+    static final List<String> JVM_ARGS_STRONG_ENCAPSULATION = List.of(
             "-J--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
             "-J--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
             "-J--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
@@ -38,17 +46,37 @@ class CompilerConfiguration {
             "-J--add-opens=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
             "-J--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED");
 
-    private static final List<String> COMPILER_ARGS = List.of( //
-            "-XDcompilePolicy=simple", //
+    /**
+     * The JVM argument needed in addition by the {@link DiagnosticsSink} of the
+     * {@link ReporterPlugin}, only passed if it streams the findings.
+     */
+    static final String JVM_ARG_DIAGNOSTICS = "-J--add-opens=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED";
+
+    /**
+     * The compiler arguments needed by Error Prone, in addition to the
+     * {@link CompilePolicy compile policy}.
+     */
+    static final List<String> COMPILER_ARGS = List.of( //
             "--should-stop=ifError=FLOW", //
             "-XDaddTypeAnnotationsToSymbol=true");
 
-    private final Map<String, List<MojoExecution>> compilerExecutions = new HashMap<>();
-    private final MavenSession session;
+    /**
+     * The compiler executions per project. Projects are built concurrently with
+     * {@code -T}, so the project and its session are always passed in
+     * explicitly instead of using the session this component is scoped to.
+     */
+    private final Map<String, List<MojoExecution>> compilerExecutions = new ConcurrentHashMap<>();
+
+    private final ProcessorPathResolver processorPathResolver;
+    private final ClassDataSharing classDataSharing;
+    private final ToolchainManager toolchainManager;
 
     @Inject
-    CompilerConfiguration(MavenSession session) {
-        this.session = session;
+    CompilerConfiguration(ProcessorPathResolver processorPathResolver, ClassDataSharing classDataSharing,
+            ToolchainManager toolchainManager) {
+        this.processorPathResolver = processorPathResolver;
+        this.classDataSharing = classDataSharing;
+        this.toolchainManager = toolchainManager;
     }
 
     public void setCompilerExecutions(MavenProject project, List<MojoExecution> executions) {
@@ -59,198 +87,281 @@ class CompilerConfiguration {
         compilerExecutions.remove(project.getId());
     }
 
-    void configure(MavenProject project, String propertyName) {
-        for (MojoExecution compilerExecution : compilerExecutions.getOrDefault(project.getId(), List.of())) {
-            configureCompilerPlugin(project, compilerExecution, propertyName);
+    /**
+     * @return the configurations of the compiler executions of the project with
+     *         the given goal, as registered, or else taken from the project model
+     *         if the plugin is not registered as extension or the goal is not
+     *         part of the build, like for the {@link WatchMojo watch goal}
+     */
+    List<ExecutionConfiguration> getCompilerExecutions(MavenSession session, MavenProject project, String goal) {
+        List<MojoExecution> executions = compilerExecutions.get(project.getId());
+        if (executions == null || executions.stream().noneMatch(execution -> goal.equals(execution.getGoal()))) {
+            executions = new ArrayList<>();
+            Plugin compiler = project.getPlugin(COMPILER_PLUGIN);
+            for (PluginExecution execution : compiler == null ? List.<PluginExecution> of()
+                    : compiler.getExecutions()) {
+                if (execution.getGoals().contains(goal)) {
+                    MojoExecution mojoExecution = new MojoExecution(compiler, goal, execution.getId());
+                    mojoExecution.setConfiguration(Xpp3Dom.mergeXpp3Dom(
+                            copy((Xpp3Dom) execution.getConfiguration()), copy((Xpp3Dom) compiler.getConfiguration())));
+                    executions.add(mojoExecution);
+                }
+            }
         }
+        return executions.stream().filter(execution -> goal.equals(execution.getGoal()))
+                .map(execution -> new ExecutionConfiguration(session, execution)).toList();
     }
 
-    String getParameterValue(MojoExecution mojoExecution, Xpp3Dom value) {
-        PluginParameterExpressionEvaluator evaluator = new PluginParameterExpressionEvaluator(session, mojoExecution);
-        return getParameterValue(evaluator, value);
+    /**
+     * @return whether all compiler executions of the project with the given
+     *         goal run javac of the JDK running Maven, so neither with an
+     *         {@code executable} nor with a JDK toolchain, which may be of an
+     *         older JDK not supporting its JVM options
+     */
+    boolean usesMavenJdk(MavenSession session, MavenProject project, String goal) {
+        return getCompilerExecutions(session, project, goal).stream()
+                .allMatch(configuration -> configuration.getJavac(toolchainManager) == null);
     }
 
-    private String getParameterValue(PluginParameterExpressionEvaluator evaluator, Xpp3Dom value) {
-        if (value == null) {
-            return null;
+    private static Xpp3Dom copy(Xpp3Dom configuration) {
+        return configuration == null ? new Xpp3Dom("configuration") : new Xpp3Dom(configuration);
+    }
+
+    /**
+     * @return whether the compiler executions of the project have been
+     *         registered, which the
+     *         {@link ErrorproneConfigurationProjectExecutionListener} only does
+     *         if the plugin is registered with
+     *         {@code <extensions>true</extensions>}
+     */
+    boolean hasCompilerExecutions(MavenProject project) {
+        return compilerExecutions.containsKey(project.getId());
+    }
+
+    void configure(MavenSession session, MavenProject project, CompilerSettings settings) {
+        List<MojoExecution> executions = compilerExecutions.getOrDefault(project.getId(), List.of());
+        if (executions.isEmpty()) {
+            return;
         }
-        try {
-            Object evaluated = evaluator.evaluate(value.getValue());
-            return evaluated == null ? value.getAttribute("default-value") : evaluated.toString();
-        } catch (ExpressionEvaluationException e) {
-            return null;
+        FlightRecorderEvents.CompilerConfiguration event = new FlightRecorderEvents.CompilerConfiguration();
+        event.begin();
+        List<Dependency> checkers = ProcessorPathResolver.getCheckers(project);
+        for (MojoExecution compilerExecution : executions) {
+            configureCompilerPlugin(session, project, checkers, compilerExecution, settings);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.project = project.getId();
+            event.compilerExecutions = executions.size();
+            event.commit();
         }
     }
 
-    private void configureCompilerPlugin(MavenProject project, MojoExecution compilerExecution, String propertyName) {
-        LOGGER.debug("Configuring compiler plugin for execution {}", compilerExecution.getExecutionId());
-        PluginParameterExpressionEvaluator evaluator = new PluginParameterExpressionEvaluator(session, compilerExecution);
+    /**
+     * @return {@code true} if Error Prone can run inside the running Maven JVM,
+     *         as the {@code jdk.compiler} packages are accessible
+     */
+    static boolean canCompileInProcess() {
+        return !StrongEncapsulationHelperJava.CURRENT_JVM_NEEDS_FORKING;
+    }
 
-        addAnnotationProcessorPaths(project.getDependencies(), compilerExecution.getConfiguration(), evaluator);
-        if (project.getDependencyManagement() != null) {
-            addAnnotationProcessorPaths(project.getDependencyManagement().getDependencies(),
-                    compilerExecution.getConfiguration(), evaluator);
-        }
+    /**
+     * @return the JVM options missing in the running Maven JVM to run Error
+     *         Prone in-process, for example in {@code .mvn/jvm.config}
+     */
+    static List<String> getMissingJvmOptions() {
+        return getMissingJvmOptions(JVM_ARGS_STRONG_ENCAPSULATION);
+    }
 
-        Xpp3Dom fork = setForkIfNeeded(compilerExecution.getConfiguration(), evaluator);
+    /**
+     * @return the JVM options missing in the running Maven JVM to stream the
+     *         findings of an in-process compiler with the {@link DiagnosticsSink}
+     */
+    static List<String> getMissingDiagnosticsJvmOptions() {
+        return getMissingJvmOptions(List.of(JVM_ARG_DIAGNOSTICS));
+    }
 
-        Xpp3Dom compilerArgs = createOrGetCompilerArgs(compilerExecution.getConfiguration());
-        addPluginArgument(propertyName, compilerArgs, evaluator);
-        addCompilerArguments(compilerArgs, evaluator);
-        if (isTrue(fork, evaluator)) {
-            addJvmStrongEncapsulationArguments(compilerArgs, evaluator);
+    private static List<String> getMissingJvmOptions(List<String> jvmArgs) {
+        if (SystemUtils.isJavaVersionAtMost(JavaVersion.JAVA_15)) {
+            return List.of();
         }
+        return getMissingJvmOptions(jvmArgs, ModuleLayer.boot().findModule("jdk.compiler").orElse(null),
+                CompilerConfiguration.class.getClassLoader().getUnnamedModule());
     }
 
-    private void addAnnotationProcessorPaths(List<Dependency> dependencies, Xpp3Dom configuration, PluginParameterExpressionEvaluator evaluator) {
-        for (Dependency dependency : dependencies) {
-            if ("errorprone".equals(dependency.getType())) {
-                addAnnotationProcessorPath(configuration, dependency, evaluator);
-            }
-        }
+    /**
+     * @return the {@link #JVM_ARGS_STRONG_ENCAPSULATION} options, without the
+     *         {@code -J} prefix, whose package is not exported or opened by the
+     *         compiler module to the given module
+     */
+    static List<String> getMissingJvmOptions(Module compilerModule, Module module) {
+        return getMissingJvmOptions(JVM_ARGS_STRONG_ENCAPSULATION, compilerModule, module);
     }
 
-    private void addJvmStrongEncapsulationArguments(Xpp3Dom compilerArgs, PluginParameterExpressionEvaluator evaluator) {
-        for (String jvmArg : JVM_ARGS_STRONG_ENCAPSULATION) {
-            if (!hasCompilerArg(compilerArgs.getChildren(), jvmArg, evaluator)) {
-                LOGGER.debug("Adding compiler argument \"{}\"", jvmArg);
-                Xpp3Dom compilerArg = new Xpp3Dom("arg");
-                compilerArg.setValue(jvmArg);
-                compilerArgs.addChild(compilerArg);
+    static List<String> getMissingJvmOptions(List<String> jvmArgs, Module compilerModule, Module module) {
+        List<String> missing = new ArrayList<>();
+        for (String jvmArg : jvmArgs) {
+            String option = jvmArg.substring("-J".length());
+            String packageName = option.substring(option.indexOf('/') + 1, option.lastIndexOf('='));
+            if (compilerModule == null || !(option.startsWith("--add-opens=")
+                    ? compilerModule.isOpen(packageName, module)
+                    : compilerModule.isExported(packageName, module))) {
+                missing.add(option);
             }
         }
+        return missing;
     }
 
-    private void addCompilerArguments(Xpp3Dom compilerArgs, PluginParameterExpressionEvaluator evaluator) {
-        for (String arg : COMPILER_ARGS) {
-            if (!hasCompilerArg(compilerArgs.getChildren(), arg, evaluator)) {
-                LOGGER.debug("Adding compiler argument \"{}\"", arg);
-                Xpp3Dom compilerArg = new Xpp3Dom("arg");
-                compilerArg.setValue(arg);
-                compilerArgs.addChild(compilerArg);
-            }
+    String getParameterValue(MavenSession session, MojoExecution mojoExecution, Xpp3Dom value) {
+        if (value == null) {
+            return null;
         }
+        return new ExecutionConfiguration(session, mojoExecution).getParameterValue(value);
     }
 
-    private void addPluginArgument(String propertyName, Xpp3Dom compilerArgs, PluginParameterExpressionEvaluator evaluator) {
-        if (!hasCompilerArg(compilerArgs.getChildren(), "-Xplugin:ErrorProne", evaluator)) {
-            LOGGER.debug("Adding compiler argument \"${{}}\"", propertyName);
-            Xpp3Dom compilerArg = new Xpp3Dom("arg");
-            compilerArg.setValue("${" + propertyName + "}");
-            compilerArgs.addChild(compilerArg);
+    private void configureCompilerPlugin(MavenSession session, MavenProject project, List<Dependency> checkers,
+            MojoExecution compilerExecution, CompilerSettings settings) {
+        LOGGER.debug("Configuring compiler plugin for execution {}", compilerExecution.getExecutionId());
+        ExecutionConfiguration configuration = new ExecutionConfiguration(session, compilerExecution);
+
+        boolean processorPath = addProcessorPath(session, project, settings, configuration);
+        if (!processorPath) {
+            addAnnotationProcessorPaths(checkers, configuration);
         }
+
+        boolean fork = setForkIfNeeded(compilerExecution, configuration);
+
+        addPluginArgument(settings.propertyName(), configuration);
+        if (settings.reporter() != null) {
+            addReporter(settings, configuration, !processorPath);
+        }
+        if (!configuration.hasCompilerArg(CompilePolicy.COMPILER_ARG_PREFIX)) {
+            addCompilerArguments(List.of(settings.compilePolicy().getCompilerArg()), configuration);
+        }
+        addCompilerArguments(COMPILER_ARGS, configuration);
+        if (fork) {
+            addCompilerArguments(JVM_ARGS_STRONG_ENCAPSULATION, configuration);
+            if (settings.diagnostics()) {
+                addCompilerArguments(List.of(JVM_ARG_DIAGNOSTICS), configuration);
+            }
+            addCompilerArguments(settings.jvmArguments().stream().map(jvmArgument -> "-J" + jvmArgument).toList(),
+                    configuration);
+            // the archive is only valid for the JDK running Maven, not for an executable or a toolchain
+            if (settings.classDataSharing() && configuration.getJavac(toolchainManager) == null) {
+                addCompilerArguments(classDataSharing
+                        .getJvmArguments(session.getRepositorySession(), project, settings.jvmArguments(), true)
+                        .stream().map(jvmArgument -> "-J" + jvmArgument).toList(), configuration);
+            }
+        } else if (settings.diagnostics() && !getMissingDiagnosticsJvmOptions().isEmpty()) {
+            LOGGER.warn("The Error Prone findings of the in-process compiler execution {} are not streamed, add the"
+                    + " following options to .mvn/jvm.config: {}", compilerExecution.getExecutionId(),
+                    String.join(" ", getMissingDiagnosticsJvmOptions()));
+        }
+        configuration.apply();
     }
 
-    private Xpp3Dom createOrGetCompilerArgs(Xpp3Dom configuration) {
-        Xpp3Dom compilerArgs = configuration.getChild("compilerArgs");
-        if (compilerArgs == null) {
-            compilerArgs = new Xpp3Dom("compilerArgs");
-            configuration.addChild(compilerArgs);
+    /**
+     * Passes the processor path resolved by the {@link ProcessorPathResolver},
+     * which is shared by all projects with the same checkers, as compiler
+     * argument, instead of letting the compiler plugin resolve it again for
+     * every compiler execution. This is only done if the execution has neither
+     * annotation processor paths nor a processor path of its own, which the
+     * compiler plugin has to resolve anyway, and only if it is
+     * {@link CompilerSettings#resolvedProcessorPath() enabled}, as it replaces
+     * the discovery of annotation processors on the classpath.
+     *
+     * @return whether the processor path is passed
+     */
+    private boolean addProcessorPath(MavenSession session, MavenProject project, CompilerSettings settings,
+            ExecutionConfiguration configuration) {
+        if (!settings.resolvedProcessorPath() || !configuration.getAnnotationProcessorPathDependencies().isEmpty()
+                || configuration.hasCompilerArg("-processorpath") || configuration.hasCompilerArg("--processor-path")) {
+            return false;
         }
-        return compilerArgs;
+        List<Path> processorPath;
+        try {
+            processorPath = new ArrayList<>(processorPathResolver.resolve(session.getRepositorySession(), project));
+        } catch (DependencyResolutionException e) {
+            LOGGER.debug("Failed to resolve the Error Prone processor path, leaving it to the compiler plugin", e);
+            return false;
+        }
+        if (settings.reporter() != null) {
+            processorPath.add(settings.reporterFile());
+        }
+        LOGGER.debug("Adding processor path {}", processorPath);
+        configuration.addCompilerArg("-processorpath");
+        configuration.addCompilerArg(
+                processorPath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        return true;
     }
 
-    private Xpp3Dom setForkIfNeeded(Xpp3Dom configuration, PluginParameterExpressionEvaluator evaluator) {
-        Xpp3Dom fork = configuration.getChild("fork");
-        if (StrongEncapsulationHelperJava.CURRENT_JVM_NEEDS_FORKING && !isTrue(fork, evaluator)) {
-            if (fork == null) {
-                fork = new Xpp3Dom("fork");
-                configuration.addChild(fork);
+    private void addAnnotationProcessorPaths(List<Dependency> checkers, ExecutionConfiguration configuration) {
+        for (Dependency dependency : checkers) {
+            if (!configuration.hasAnnotationProcessorPath(dependency)) {
+                LOGGER.debug("Adding annotation processor path for dependency {}:{}", dependency.getGroupId(),
+                        dependency.getArtifactId());
+                configuration.addAnnotationProcessorPath(dependency);
             }
-            fork.setValue("true");
-            LOGGER.debug("Set fork to true");
         }
-        return fork;
     }
 
-    private void addAnnotationProcessorPath(Xpp3Dom configuration, Dependency dependency, PluginParameterExpressionEvaluator evaluator) {
-        Xpp3Dom annotationProcessorPaths = configuration.getChild("annotationProcessorPaths");
-        if (annotationProcessorPaths == null) {
-            annotationProcessorPaths = new Xpp3Dom("annotationProcessorPaths");
-            configuration.addChild(annotationProcessorPaths);
-        }
-        if (!hasDependency(annotationProcessorPaths.getChildren(), dependency, evaluator)) {
-            LOGGER.debug("Adding annotation processor path for dependency {}:{}", dependency.getGroupId(),
-                    dependency.getArtifactId());
-            Xpp3Dom path = new Xpp3Dom("path");
-            annotationProcessorPaths.addChild(path);
-            Xpp3Dom groupId = new Xpp3Dom("groupId");
-            groupId.setValue(dependency.getGroupId());
-            path.addChild(groupId);
-            Xpp3Dom artifactId = new Xpp3Dom("artifactId");
-            artifactId.setValue(dependency.getArtifactId());
-            path.addChild(artifactId);
-            if (dependency.getVersion() != null) {
-                Xpp3Dom version = new Xpp3Dom("version");
-                version.setValue(dependency.getVersion());
-                path.addChild(version);
+    private void addCompilerArguments(List<String> args, ExecutionConfiguration configuration) {
+        for (String arg : args) {
+            if (!configuration.hasCompilerArg(arg)) {
+                LOGGER.debug("Adding compiler argument \"{}\"", arg);
+                configuration.addCompilerArg(arg);
             }
         }
     }
 
-    private boolean isTrue(Xpp3Dom child, PluginParameterExpressionEvaluator evaluator) {
-        return Boolean.parseBoolean(getParameterValue(evaluator, child));
+    private void addPluginArgument(String propertyName, ExecutionConfiguration configuration) {
+        if (!configuration.hasCompilerArg("-Xplugin:ErrorProne")) {
+            LOGGER.debug("Adding compiler argument \"${{}}\"", propertyName);
+            configuration.addCompilerArg("${" + propertyName + "}");
+        }
     }
 
-    private boolean hasDependency(Xpp3Dom[] paths, Dependency dependency, PluginParameterExpressionEvaluator evaluator) {
-        for (Xpp3Dom path : paths) {
-            String groupId = getParameterValue(evaluator, path.getChild("groupId"));
-            String artifactId = getParameterValue(evaluator, path.getChild("artifactId"));
-            if (dependency.getGroupId().equals(groupId) && dependency.getArtifactId().equals(artifactId)) {
-                return true;
-            }
+    private void addReporter(CompilerSettings settings, ExecutionConfiguration configuration,
+            boolean annotationProcessorPath) {
+        if (annotationProcessorPath && !configuration.hasAnnotationProcessorPath(settings.reporter())) {
+            LOGGER.debug("Adding annotation processor path for reporter {}:{}", settings.reporter().getGroupId(),
+                    settings.reporter().getArtifactId());
+            configuration.addAnnotationProcessorPath(settings.reporter());
+        }
+        if (!configuration.hasCompilerArg("-Xplugin:" + ReporterPlugin.NAME)) {
+            LOGGER.debug("Adding compiler argument \"${{}}\"", settings.reporterPropertyName());
+            configuration.addCompilerArg("${" + settings.reporterPropertyName() + "}");
         }
-        return false;
     }
 
-    private boolean hasCompilerArg(Xpp3Dom[] compilerArgs, String arg, PluginParameterExpressionEvaluator evaluator) {
-        for (Xpp3Dom compilerArg : compilerArgs) {
-            String value = getParameterValue(evaluator, compilerArg);
-            if (value != null && value.startsWith(arg)) {
-                return true;
-            }
+    private boolean setForkIfNeeded(MojoExecution compilerExecution, ExecutionConfiguration configuration) {
+        FlightRecorderEvents.ForkDecision event = new FlightRecorderEvents.ForkDecision();
+        event.begin();
+        boolean fork;
+        String reason;
+        if (configuration.isTrue(configuration.getConfiguration().getChild("fork"))) {
+            fork = true;
+            reason = "configured";
+        } else if (StrongEncapsulationHelperJava.CURRENT_JVM_NEEDS_FORKING) {
+            configuration.setValue("fork", "true");
+            LOGGER.debug("Set fork to true");
+            fork = true;
+            reason = "jdk.compiler packages not accessible";
+        } else {
+            fork = false;
+            reason = "jdk.compiler packages accessible";
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.execution = compilerExecution.getExecutionId();
+            event.fork = fork;
+            event.reason = reason;
+            event.commit();
         }
-        return false;
+        return fork;
     }
 
     private static class StrongEncapsulationHelperJava {
-        static final boolean CURRENT_JVM_NEEDS_FORKING = currentJvmNeedsForking();
-
-        private static boolean currentJvmNeedsForking() {
-            if (SystemUtils.isJavaVersionAtMost(JavaVersion.JAVA_15)) {
-                return false;
-            }
-            try {
-                Module unnamedModule = StrongEncapsulationHelperJava.class.getClassLoader().getUnnamedModule();
-                for (String className : new String[] { //
-                        "com.sun.tools.javac.api.BasicJavacTask", //
-                        "com.sun.tools.javac.api.JavacTrees", //
-                        "com.sun.tools.javac.file.JavacFileManager", //
-                        "com.sun.tools.javac.main.JavaCompiler", //
-                        "com.sun.tools.javac.model.JavacElements", //
-                        "com.sun.tools.javac.parser.JavacParser", //
-                        "com.sun.tools.javac.processing.JavacProcessingEnvironment", //
-                        "com.sun.tools.javac.tree.JCTree", //
-                        "com.sun.tools.javac.util.JCDiagnostic", //
-                }) {
-                    Class<?> clazz = Class.forName(className);
-                    if (!clazz.getModule().isExported(clazz.getPackageName(), unnamedModule)) {
-                        return true;
-                    }
-                }
-                for (String className : new String[] { //
-                        "com.sun.tools.javac.code.Symbol", //
-                        "com.sun.tools.javac.comp.Enter", //
-                }) {
-                    Class<?> clazz = Class.forName(className);
-                    if (!clazz.getModule().isOpen(clazz.getPackageName(), unnamedModule)) {
-                        return true;
-                    }
-                }
-            } catch (ClassNotFoundException ignored) {
-                return true;
-            }
-            return false;
-        }
+        static final boolean CURRENT_JVM_NEEDS_FORKING = !getMissingJvmOptions().isEmpty();
     }
 }
@@ -0,0 +1,255 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The heap and GC history of the forked compilers of a source set, used to
+ * size the JVMs of later builds.
+ * <p>
+ * Every forked compiler writes a GC log, which is folded into the history by
+ * the next configuration of the source set. The history keeps the last
+ * {@value #BUILDS} builds, each with the peak heap usage, the time spent in GC
+ * pauses and the run time of its forked compilers. It is kept outside of the
+ * build directory, so it survives a clean build.
+ */
+final class CompilerJvmHistory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompilerJvmHistory.class);
+
+    private static final String HISTORY_FILE = "history";
+    private static final String LOG_PREFIX = "gc-";
+    private static final int BUILDS = 5;
+
+    private static final long KB_PER_MB = 1024;
+    private static final long MIN_HEAP_KB = 256 * KB_PER_MB;
+    private static final long SERIAL_GC_MAX_HEAP_KB = 1024 * KB_PER_MB;
+    private static final double HIGH_GC_OVERHEAD = 0.1;
+    private static final long SHORT_RUN_MILLIS = 20_000;
+
+    private static final Pattern UPTIME = Pattern.compile("^\\[(\\d+)[.,](\\d{3})s\\]");
+    private static final Pattern PAUSE = Pattern
+            .compile(" GC\\(\\d+\\) Pause .* (\\d+)([KMG])->\\d+[KMG]\\(\\d+[KMG]\\) ([\\d.,]+)ms$");
+    private static final Pattern HEAP_AT_EXIT = Pattern.compile(" total \\d+K, used (\\d+)K");
+
+    /**
+     * The forked compilers of a build.
+     *
+     * @param peakHeapKb
+     *            the highest heap usage seen before a GC or at exit
+     * @param gcMillis
+     *            the time spent in GC pauses
+     * @param runMillis
+     *            the run time of all forked compilers
+     * @param longestRunMillis
+     *            the run time of the longest running forked compiler
+     */
+    record Build(long peakHeapKb, long gcMillis, long runMillis, long longestRunMillis) {
+
+        double gcOverhead() {
+            return runMillis == 0 ? 0 : (double) gcMillis / runMillis;
+        }
+
+    }
+
+    private final Path directory;
+    private final List<Build> builds;
+
+    private CompilerJvmHistory(Path directory, List<Build> builds) {
+        this.directory = directory;
+        this.builds = builds;
+    }
+
+    /**
+     * Updates the history of a source set, kept in the local repository per
+     * project base directory, and chooses the JVM arguments of its forked
+     * compilers from it.
+     *
+     * @param configuredJvmArguments
+     *            the configured JVM arguments, which are never overridden
+     * @return the chosen JVM arguments followed by the one writing the GC log,
+     *         or none if the GC log can't be written
+     */
+    static List<String> prepareJvmArguments(Path localRepository, Path basedir, String sourceSet,
+            List<String> configuredJvmArguments) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        Digests.update(digest, basedir.toAbsolutePath().toString());
+        Path directory = localRepository.resolve(".cache/errorprone-maven-plugin/jvm-history")
+                .resolve(Digests.toHex(digest)).resolve(sourceSet);
+        CompilerJvmHistory history = update(directory);
+        Optional<String> logArgument = history.getLogArgument();
+        if (logArgument.isEmpty()) {
+            LOGGER.warn("A forked compiler uses the default heap and GC settings, as its GC log can't be written"
+                    + " to {}.", directory);
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(history.chooseJvmArguments(configuredJvmArguments));
+        LOGGER.info("A forked compiler uses {} ({}).",
+                result.isEmpty() ? "the default heap and GC settings" : String.join(" ", result), history.summary());
+        result.add(logArgument.get());
+        return result;
+    }
+
+    /**
+     * Reads the history, after adding the build of the GC logs written since
+     * the last call.
+     */
+    static CompilerJvmHistory update(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path historyFile = directory.resolve(HISTORY_FILE);
+        List<Build> builds = new ArrayList<>();
+        if (Files.isRegularFile(historyFile)) {
+            for (String line : Files.readAllLines(historyFile)) {
+                String[] values = line.split(" ");
+                if (values.length == 4) {
+                    builds.add(new Build(Long.parseLong(values[0]), Long.parseLong(values[1]),
+                            Long.parseLong(values[2]), Long.parseLong(values[3])));
+                }
+            }
+        }
+        List<Path> logs = listLogs(directory);
+        if (!logs.isEmpty()) {
+            builds.add(parse(logs));
+            while (builds.size() > BUILDS) {
+                builds.remove(0);
+            }
+            Files.write(historyFile, builds.stream().map(build -> build.peakHeapKb() + " " + build.gcMillis() + " "
+                    + build.runMillis() + " " + build.longestRunMillis()).toList());
+            for (Path log : logs) {
+                Files.delete(log);
+            }
+        }
+        return new CompilerJvmHistory(directory, builds);
+    }
+
+    /**
+     * @return the recorded builds, the last one being the latest
+     */
+    List<Build> getBuilds() {
+        return builds;
+    }
+
+    /**
+     * @return the JVM argument writing the GC log of a forked compiler, empty
+     *         if the history directory can't be passed to {@code -Xlog}
+     */
+    Optional<String> getLogArgument() {
+        // every forked JVM writes its own log, as the shards of an analysis run concurrently
+        String file = directory.resolve(LOG_PREFIX + "%p.log").toString();
+        if (file.indexOf('"') >= 0) {
+            return Optional.empty();
+        }
+        // quoted, as -Xlog splits its options on colons, like the one of a Windows drive
+        return Optional.of("-Xlog:gc,gc+heap+exit:file=\"" + file + "\":uptime");
+    }
+
+    /**
+     * Chooses the heap size, the GC and whether C2 is used from the history.
+     * The heap is twice the peak usage, three times with a high GC overhead. A
+     * small heap uses the serial GC, a larger one the parallel GC, as only the
+     * throughput matters for a compiler. Short running compilers only use C1.
+     *
+     * @param configuredJvmArguments
+     *            the configured JVM arguments, which are never overridden
+     * @return the chosen JVM arguments, empty without history
+     */
+    List<String> chooseJvmArguments(List<String> configuredJvmArguments) {
+        List<String> result = new ArrayList<>();
+        if (builds.isEmpty()) {
+            return result;
+        }
+        long peakHeapKb = builds.stream().mapToLong(Build::peakHeapKb).max().orElseThrow();
+        long longestRunMillis = builds.stream().mapToLong(Build::longestRunMillis).max().orElseThrow();
+        double gcOverhead = builds.get(builds.size() - 1).gcOverhead();
+        long heapKb = Math.max(MIN_HEAP_KB, peakHeapKb * (gcOverhead > HIGH_GC_OVERHEAD ? 3 : 2));
+        long heapMb = (heapKb + 64 * KB_PER_MB - 1) / (64 * KB_PER_MB) * 64;
+        if (!isConfigured(configuredJvmArguments, "-Xmx")) {
+            result.add("-Xmx" + heapMb + "m");
+        }
+        if (configuredJvmArguments.stream()
+                .noneMatch(argument -> argument.startsWith("-XX:+Use") && argument.endsWith("GC"))) {
+            result.add(heapMb * KB_PER_MB <= SERIAL_GC_MAX_HEAP_KB ? "-XX:+UseSerialGC" : "-XX:+UseParallelGC");
+        }
+        if (longestRunMillis < SHORT_RUN_MILLIS && !isConfigured(configuredJvmArguments, "-XX:TieredStopAtLevel")) {
+            result.add("-XX:TieredStopAtLevel=1");
+        }
+        return result;
+    }
+
+    /**
+     * @return a summary of the last build
+     */
+    String summary() {
+        if (builds.isEmpty()) {
+            return "no history yet";
+        }
+        Build last = builds.get(builds.size() - 1);
+        return String.format(Locale.ROOT, "last build peak heap %d MB, GC %.1f%% of %.1f s",
+                last.peakHeapKb() / KB_PER_MB, last.gcOverhead() * 100, last.runMillis() / 1000.0);
+    }
+
+    private static boolean isConfigured(List<String> jvmArguments, String prefix) {
+        return jvmArguments.stream().anyMatch(argument -> argument.startsWith(prefix));
+    }
+
+    private static Build parse(List<Path> logs) throws IOException {
+        long peakHeapKb = 0;
+        double gcMillis = 0;
+        long runMillis = 0;
+        long longestRunMillis = 0;
+        for (Path log : logs) {
+            long uptimeMillis = 0;
+            long heapAtExitKb = 0;
+            try (BufferedReader reader = Files.newBufferedReader(log)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    Matcher uptime = UPTIME.matcher(line);
+                    if (uptime.find()) {
+                        uptimeMillis = Long.parseLong(uptime.group(1)) * 1000 + Long.parseLong(uptime.group(2));
+                    }
+                    Matcher pause = PAUSE.matcher(line);
+                    if (pause.find()) {
+                        peakHeapKb = Math.max(peakHeapKb, toKb(Long.parseLong(pause.group(1)), pause.group(2)));
+                        gcMillis += Double.parseDouble(pause.group(3).replace(',', '.'));
+                    }
+                    Matcher heapAtExit = HEAP_AT_EXIT.matcher(line);
+                    if (heapAtExit.find()) {
+                        // the generations are listed separately, except for G1
+                        heapAtExitKb += Long.parseLong(heapAtExit.group(1));
+                    }
+                }
+            }
+            peakHeapKb = Math.max(peakHeapKb, heapAtExitKb);
+            runMillis += uptimeMillis;
+            longestRunMillis = Math.max(longestRunMillis, uptimeMillis);
+        }
+        return new Build(peakHeapKb, Math.round(gcMillis), runMillis, longestRunMillis);
+    }
+
+    private static long toKb(long value, String unit) {
+        return switch (unit) {
+        case "G" -> value * 1024 * KB_PER_MB;
+        case "M" -> value * KB_PER_MB;
+        default -> value;
+        };
+    }
+
+    private static List<Path> listLogs(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(LOG_PREFIX)).sorted().toList();
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+
+/**
+ * Settings of a configuration mojo which are applied to the compiler
+ * executions.
+ *
+ * @param propertyName
+ *            name of the project property holding the Error Prone argument
+ * @param jvmArguments
+ *            additional arguments for the JVM of a forked compiler
+ * @param classDataSharing
+ *            whether a forked compiler uses a {@link ClassDataSharing class
+ *            data sharing archive}
+ * @param compilePolicy
+ *            the resolved compile policy, unless one is configured for the
+ *            compiler
+ * @param reporter
+ *            the dependency providing the {@link ReporterPlugin}, or
+ *            {@code null} if the reporter is not used
+ * @param reporterFile
+ *            the artifact file of the {@link #reporter()}
+ * @param diagnostics
+ *            whether the reporter streams the findings with the
+ *            {@link DiagnosticsSink}
+ * @param resolvedProcessorPath
+ *            whether the processor path resolved by the
+ *            {@link ProcessorPathResolver} is passed to compiler executions
+ *            without annotation processor paths of their own
+ */
+record CompilerSettings(String propertyName, List<String> jvmArguments, boolean classDataSharing,
+        CompilePolicy compilePolicy, Dependency reporter, Path reporterFile, boolean diagnostics,
+        boolean resolvedProcessorPath) {
+
+    /**
+     * @return the name of the project property holding the argument for the
+     *         {@link ReporterPlugin}
+     */
+    String reporterPropertyName() {
+        return propertyName + ".reporter";
+    }
+
+    /**
+     * @return the name of the project property holding the
+     *         {@link ConfigurationFingerprint fingerprint} of the Error Prone
+     *         configuration
+     */
+    String fingerprintPropertyName() {
+        return propertyName + ".fingerprint";
+    }
+
+}
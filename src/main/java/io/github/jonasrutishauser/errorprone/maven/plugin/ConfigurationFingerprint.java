@@ -0,0 +1,111 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+
+/**
+ * Computes a fingerprint of everything influencing the Error Prone analysis of
+ * a source set apart from the sources and the classpath: the Error Prone flags,
+ * the settings selecting the analyzed source files, the compiler arguments
+ * added by this plugin, the checksums of the processor path and the JDK
+ * version. Of the compiler executions, the evaluated compiler
+ * arguments and the coordinates of the annotation processor paths are included
+ * as well, with the project base directory replaced by {@code .}, so that the
+ * fingerprint does not depend on where the project is checked out.
+ * <p>
+ * Build caches can use it as an input, so that a cached compiler output is only
+ * reused for the same Error Prone configuration. The checksums of the
+ * processor path entries are computed once per session by the
+ * {@link ProcessorPathResolver}.
+ */
+@Named
+@SessionScoped
+class ConfigurationFingerprint {
+
+    static final String FILE_NAME = "fingerprint";
+
+    private final ProcessorPathResolver processorPathResolver;
+
+    @Inject
+    ConfigurationFingerprint(ProcessorPathResolver processorPathResolver) {
+        this.processorPathResolver = processorPathResolver;
+    }
+
+    /**
+     * @param sourceSelection
+     *            the settings selecting the analyzed source files, such as the
+     *            sample, without any paths
+     */
+    String compute(RepositorySystemSession repositorySession, MavenProject project, CompilePolicy compilePolicy,
+            List<String> flags, List<String> sourceSelection, List<ExecutionConfiguration> compilerExecutions)
+            throws IOException, DependencyResolutionException {
+        MessageDigest digest = Digests.newDigest();
+        Digests.update(digest, System.getProperty("java.version"));
+        Digests.update(digest, compilePolicy.getCompilerArg());
+        for (String compilerArg : CompilerConfiguration.COMPILER_ARGS) {
+            Digests.update(digest, compilerArg);
+        }
+        for (String flag : flags) {
+            Digests.update(digest, flag);
+        }
+        for (String setting : sourceSelection) {
+            Digests.update(digest, setting);
+        }
+        String basedir = project.getBasedir() == null ? null : project.getBasedir().getAbsolutePath();
+        for (ExecutionConfiguration compilerExecution : compilerExecutions) {
+            for (String compilerArg : compilerExecution.getCompilerArguments()) {
+                if (isAnalysisArgument(compilerArg, compilePolicy)) {
+                    Digests.update(digest, basedir == null ? compilerArg : compilerArg.replace(basedir, "."));
+                }
+            }
+            for (Dependency path : compilerExecution.getAnnotationProcessorPathDependencies()) {
+                Digests.update(digest, path.getGroupId() + ':' + path.getArtifactId() + ':' + path.getVersion() + ':'
+                        + path.getClassifier());
+            }
+        }
+        for (String checksum : processorPathResolver.getChecksums(repositorySession, project)) {
+            Digests.update(digest, checksum);
+        }
+        return Digests.toHex(digest);
+    }
+
+    /**
+     * @return whether the compiler argument may change the result of the
+     *         analysis and is not already part of the fingerprint: the Error
+     *         Prone arguments are part of the flags, the arguments added by this
+     *         plugin are included anyway, and JVM arguments do not change the
+     *         result
+     */
+    private static boolean isAnalysisArgument(String compilerArg, CompilePolicy compilePolicy) {
+        return !compilerArg.isBlank() && !compilerArg.startsWith("-Xplugin:ErrorProne")
+                && !compilerArg.startsWith("-Xplugin:" + ReporterPlugin.NAME) && !compilerArg.startsWith("-J")
+                && !compilerArg.equals(compilePolicy.getCompilerArg())
+                && !CompilerConfiguration.COMPILER_ARGS.contains(compilerArg);
+    }
+
+    /**
+     * Writes the fingerprint to the given file, unless it already holds it. The
+     * file is therefore only touched if the fingerprint changes.
+     */
+    static void write(Path file, String fingerprint) throws IOException {
+        if (Files.isRegularFile(file) && fingerprint.equals(Files.readString(file, StandardCharsets.UTF_8).trim())) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, fingerprint + '\n', StandardCharsets.UTF_8);
+    }
+
+}
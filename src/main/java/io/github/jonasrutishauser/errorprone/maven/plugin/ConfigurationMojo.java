@@ -1,9 +1,19 @@
 package io.github.jonasrutishauser.errorprone.maven.plugin;
 
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 
+/**
+ * Configures Error Prone for the compilation of the main sources.
+ * <p>
+ * The goal does not require the dependencies to be resolved, the classpath is
+ * only resolved by the {@link ProjectClasspath} if a feature needs it.
+ */
 @Mojo(name = "configuration", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
 public class ConfigurationMojo extends AbstractConfigurationMojo {
 
@@ -19,4 +29,24 @@ public class ConfigurationMojo extends AbstractConfigurationMojo {
         return compilingTestOnlyCode;
     }
 
+    @Override
+    protected String getSourceSet() {
+        return "main";
+    }
+
+    @Override
+    protected String getCompilerGoal() {
+        return "compile";
+    }
+
+    @Override
+    protected List<String> getCompileSourceRoots(MavenProject project) {
+        return project.getCompileSourceRoots();
+    }
+
+    @Override
+    protected List<String> getClasspathElements(MavenProject project) throws MojoExecutionException {
+        return resolveDependencies(project, ProjectClasspath.COMPILE_SCOPES);
+    }
+
 }
@@ -0,0 +1,413 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.toolchain.ToolchainManager;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs Error Prone in the background once a compiler execution has finished,
+ * instead of inside the compiler execution itself. Downstream projects
+ * therefore do not wait for the analysis of the projects they depend on.
+ * <p>
+ * The sources may be split into shards, which are analyzed by concurrent javac
+ * processes. Each of them only compiles its own shard and takes the classes of
+ * the others from the output of the compiler execution. The output of the
+ * shards is logged in the order of the shards. If the compiler may run
+ * in-process, the analyses run inside the Maven JVM and share the class loaders
+ * of their processor paths for the whole session. Otherwise they fork the javac
+ * the compiler plugin would fork: the {@code executable} of a forking compiler
+ * execution or the javac of the JDK toolchain, and the javac of the JDK running
+ * Maven without either of them. At most half of the
+ * available processors run analyses at the same time, as every forked javac
+ * brings its own compiler and garbage collector threads.
+ * <p>
+ * The javac options are taken from the evaluated configuration of the compiler
+ * execution: the release or source and target, the encoding, the compiler
+ * arguments and the annotation processor paths, which are put on the processor
+ * path for their {@code -Xplugin} arguments. Annotation processors do not run
+ * again, the sources they generated are analyzed like the other sources.
+ * Processors which modify the compiled classes instead of generating sources,
+ * like Lombok, are therefore not supported, and neither are modules with a
+ * {@code module-info.java}, as the analysis only uses the classpath.
+ * <p>
+ * The analyses are started by {@link DeferredAnalysisMojoExecutionListener} and
+ * joined by the {@link JoinMojo join goal} of a project, after the last project
+ * of the reactor by {@link ErrorproneConfigurationProjectExecutionListener} or
+ * at the end of the session by {@link DeferredAnalysisLifecycleParticipant}.
+ */
+@Named
+@SessionScoped
+class DeferredAnalysis {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeferredAnalysis.class);
+
+    static final List<String> JAVAC_OPTIONS = List.of( //
+            "--should-stop=ifNoError=FLOW", //
+            "-proc:none", //
+            "-implicit:none");
+
+    /**
+     * Compiler arguments of the compiler execution which are replaced by the
+     * options of the analysis.
+     */
+    private static final List<String> REPLACED_COMPILER_ARG_PREFIXES = List.of("-Xplugin:ErrorProne",
+            "-Xplugin:" + ReporterPlugin.NAME, "-proc:", "--should-stop=", "-implicit:", "-J");
+
+    private static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * An analysis prepared by a configuration mojo.
+     *
+     * @param sourceSet
+     *            name of the source set
+     * @param workDirectory
+     *            work directory of the source set
+     * @param compileSourceRoots
+     *            supplies the compile source roots once the compiler has
+     *            generated its sources
+     * @param classpathElements
+     *            classpath of the compilation
+     * @param pluginArguments
+     *            the {@code -Xplugin} arguments
+     * @param diagnostics
+     *            whether the {@link ReporterPlugin} streams the findings
+     * @param additionalProcessorPath
+     *            processor path entries in addition to the checkers
+     * @param jvmArguments
+     *            additional arguments for the JVM of javac
+     * @param shards
+     *            number of javac processes analyzing a part of the sources each
+     * @param joinAfterCompiler
+     *            whether the analysis is joined right after the compiler
+     *            execution instead of running in the background
+     * @param classDataSharing
+     *            whether forked analyses use a {@link ClassDataSharing class data
+     *            sharing archive}
+     * @param compilePolicy
+     *            the resolved compile policy
+     */
+    record Request(String sourceSet, Path workDirectory, Supplier<List<String>> compileSourceRoots,
+            List<String> classpathElements, List<String> pluginArguments, boolean diagnostics,
+            List<Path> additionalProcessorPath, List<String> jvmArguments, int shards, boolean joinAfterCompiler,
+            boolean classDataSharing, CompilePolicy compilePolicy) {
+    }
+
+    private final ProcessorPathResolver processorPathResolver;
+    private final IncrementalAnalysis incrementalAnalysis;
+    private final ErrorProneClassLoaders classLoaders;
+    private final ClassDataSharing classDataSharing;
+    private final ToolchainManager toolchainManager;
+    private final Map<String, Request> requests = new ConcurrentHashMap<>();
+    private final Map<String, List<Future<ErrorProneAnalysis.Result>>> analyses = new ConcurrentHashMap<>();
+    private final Set<String> builtProjects = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger finishedProjects = new AtomicInteger();
+    private ExecutorService executor;
+
+    @Inject
+    DeferredAnalysis(ProcessorPathResolver processorPathResolver, IncrementalAnalysis incrementalAnalysis,
+            ErrorProneClassLoaders classLoaders, ClassDataSharing classDataSharing, ToolchainManager toolchainManager) {
+        this.processorPathResolver = processorPathResolver;
+        this.incrementalAnalysis = incrementalAnalysis;
+        this.classLoaders = classLoaders;
+        this.classDataSharing = classDataSharing;
+        this.toolchainManager = toolchainManager;
+    }
+
+    /**
+     * Prepares an analysis, which is started after the compiler execution with
+     * the given goal.
+     */
+    void prepare(MavenProject project, String compilerGoal, Request request) {
+        requests.put(project.getId() + ' ' + compilerGoal, request);
+    }
+
+    /**
+     * Starts the analysis prepared for the given compiler execution, if there is
+     * any.
+     *
+     * @return the analyses which failed, if the analysis is
+     *         {@link Request#joinAfterCompiler() joined after the compiler}
+     */
+    List<String> start(MavenSession session, MavenProject project, MojoExecution compilerExecution) {
+        Request request = requests.remove(project.getId() + ' ' + compilerExecution.getGoal());
+        if (request == null) {
+            return List.of();
+        }
+        ExecutionConfiguration configuration = new ExecutionConfiguration(session, compilerExecution);
+        List<Path> sourceFiles;
+        List<List<Path>> shards;
+        try {
+            sourceFiles = SourceFiles.find(request.compileSourceRoots().get());
+            shards = SourceFiles.partition(sourceFiles, request.shards());
+        } catch (IOException e) {
+            LOGGER.error("Failed to find the sources of {}", project.getId(), e);
+            return List.of(project.getId());
+        }
+        if (sourceFiles.isEmpty()) {
+            return List.of();
+        }
+        List<String> classpathElements = new ArrayList<>(request.classpathElements());
+        if (shards.size() > 1) {
+            // the classes of the other shards are taken from the compiler output
+            classpathElements.add(0, configuration
+                    .getParameterValue(configuration.getConfiguration().getChild("outputDirectory")));
+        }
+        List<String> compilerArgs = configuration.getCompilerArguments();
+        List<String> options = getOptions(configuration, compilerArgs, classpathElements, request.compilePolicy(),
+                request.pluginArguments());
+        List<String> jvmArguments = new ArrayList<>(CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION);
+        if (request.diagnostics()) {
+            jvmArguments.add(CompilerConfiguration.JVM_ARG_DIAGNOSTICS);
+        }
+        // -J options are not allowed in the argument file
+        compilerArgs.stream().filter(compilerArg -> compilerArg.startsWith("-J")).forEach(jvmArguments::add);
+        request.jvmArguments().forEach(jvmArgument -> jvmArguments.add("-J" + jvmArgument));
+
+        // like the compiler, the analysis only forks if it has to or is configured to, or uses a toolchain
+        String javac = configuration.getJavac(toolchainManager);
+        boolean inProcess = javac == null && !configuration.isTrue(configuration.getConfiguration().getChild("fork"))
+                && CompilerConfiguration.canCompileInProcess();
+        // the archive belongs to the JDK running Maven
+        if (!inProcess && javac == null && request.classDataSharing()) {
+            // concurrent shards must not write the same archive
+            classDataSharing.getJvmArguments(session.getRepositorySession(), project, request.jvmArguments(),
+                    shards.size() == 1).forEach(jvmArgument -> jvmArguments.add("-J" + jvmArgument));
+        }
+
+        String name = project.getId() + " (" + request.sourceSet() + ")";
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        List<Dependency> annotationProcessorPaths = configuration.getAnnotationProcessorPathDependencies();
+        CompletableFuture<List<Path>> processorPath = CompletableFuture.supplyAsync(() -> {
+            try {
+                List<Path> path = new ArrayList<>(
+                        processorPathResolver.resolve(repositorySession, project, annotationProcessorPaths));
+                path.addAll(request.additionalProcessorPath());
+                return path;
+            } catch (DependencyResolutionException e) {
+                throw new CompletionException(e);
+            }
+        }, getExecutor());
+        List<Future<ErrorProneAnalysis.Result>> started = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            String fileName = shards.size() == 1 ? "analysis" : "analysis-shard-" + (i + 1);
+            String analysisName = shards.size() == 1 ? name : name + " shard " + (i + 1) + " of " + shards.size();
+            ErrorProneAnalysis analysis = javac == null
+                    ? new ErrorProneAnalysis(analysisName, request.workDirectory(), fileName, jvmArguments, options)
+                    : new ErrorProneAnalysis(analysisName, request.workDirectory(), fileName, javac, jvmArguments,
+                            options);
+            List<Path> shard = shards.get(i);
+            started.add(processorPath.thenApplyAsync(path -> {
+                try {
+                    if (inProcess) {
+                        try (ErrorProneClassLoaders.Lease classLoader = classLoaders.get(path)) {
+                            return analysis.runInProcess(classLoader.classLoader(), shard);
+                        }
+                    }
+                    return analysis.run(path, shard);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }, getExecutor()));
+        }
+        LOGGER.info("Started Error Prone analysis of {} source files of {}{}", sourceFiles.size(), name,
+                shards.size() > 1 ? " in " + shards.size() + " shards" : "");
+        if (request.joinAfterCompiler()) {
+            return join(project.getId(), started);
+        }
+        analyses.computeIfAbsent(project.getId(), id -> new CopyOnWriteArrayList<>()).addAll(started);
+        return List.of();
+    }
+
+    /**
+     * Stores the {@link IncrementalAnalysis incremental analysis} state of a
+     * project which has been built successfully, or leaves it to the join of
+     * its outstanding analyses, as they list the analyzed source files.
+     */
+    void commitIncrementalState(MavenProject project) {
+        if (analyses.containsKey(project.getId())) {
+            builtProjects.add(project.getId());
+        } else {
+            incrementalAnalysis.commit(project);
+        }
+    }
+
+    /**
+     * Counts a project whose execution has finished, successfully or not.
+     *
+     * @return whether it is the last project of the reactor, after which no
+     *         analysis is started anymore
+     */
+    boolean finish(MavenSession session) {
+        return finishedProjects.incrementAndGet() == session.getProjects().size();
+    }
+
+    /**
+     * Waits for the analyses of the given project and logs their output.
+     *
+     * @return the analyses which failed
+     */
+    List<String> join(MavenProject project) {
+        List<Future<ErrorProneAnalysis.Result>> projectAnalyses = analyses.remove(project.getId());
+        if (projectAnalyses == null) {
+            return List.of();
+        }
+        List<String> failures = join(project.getId(), projectAnalyses);
+        if (builtProjects.remove(project.getId())) {
+            if (failures.isEmpty()) {
+                incrementalAnalysis.commit(project);
+            } else {
+                incrementalAnalysis.discard(project);
+            }
+        }
+        return failures;
+    }
+
+    private List<String> join(String projectId, List<Future<ErrorProneAnalysis.Result>> projectAnalyses) {
+        List<String> failures = new ArrayList<>();
+        for (Future<ErrorProneAnalysis.Result> analysis : projectAnalyses) {
+            try {
+                ErrorProneAnalysis.Result result = analysis.get();
+                List<String> output = result.output();
+                if (result.succeeded()) {
+                    if (!output.isEmpty()) {
+                        LOGGER.info("Error Prone analysis of {}:{}{}", result.name(), System.lineSeparator(),
+                                String.join(System.lineSeparator(), output));
+                    }
+                } else {
+                    LOGGER.error("Error Prone analysis of {} failed:{}{}", result.name(), System.lineSeparator(),
+                            String.join(System.lineSeparator(), output));
+                }
+                if (!result.succeeded()) {
+                    failures.add(result.name());
+                    incrementalAnalysis.reset(result.logFile().getParent());
+                }
+            } catch (ExecutionException e) {
+                LOGGER.error("Error Prone analysis of {} failed", projectId, e.getCause());
+                failures.add(projectId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(projectId);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Waits for all outstanding analyses.
+     *
+     * @return the analyses which failed
+     */
+    List<String> joinAll(MavenSession session) {
+        List<String> failures = new ArrayList<>();
+        for (MavenProject project : session.getProjects()) {
+            failures.addAll(join(project));
+        }
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+        classLoaders.close();
+        return failures;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(MAX_THREADS,
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "errorprone-deferred-analysis");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return executor;
+    }
+
+    private static List<String> getOptions(ExecutionConfiguration configuration, List<String> compilerArgs,
+            List<String> classpathElements, CompilePolicy compilePolicy, List<String> pluginArguments) {
+        List<String> options = new ArrayList<>();
+        if (!configuration.hasCompilerArg(CompilePolicy.COMPILER_ARG_PREFIX)) {
+            options.add(compilePolicy.getCompilerArg());
+        }
+        options.addAll(CompilerConfiguration.COMPILER_ARGS);
+        options.addAll(JAVAC_OPTIONS);
+        options.addAll(getCompilerOptions(configuration, compilerArgs));
+        options.add("-classpath");
+        options.add(String.join(File.pathSeparator, classpathElements));
+        options.addAll(pluginArguments);
+        return options;
+    }
+
+    /**
+     * @return the options of the compiler execution: the release or source and
+     *         target, the encoding and the compiler arguments which are not
+     *         replaced by the options of an analysis
+     */
+    static List<String> getCompilerOptions(ExecutionConfiguration configuration, List<String> compilerArgs) {
+        List<String> options = new ArrayList<>();
+        String release = configuration.getParameterValue("release", "${maven.compiler.release}");
+        if (release != null && !release.isBlank()) {
+            options.add("--release");
+            options.add(release);
+        } else {
+            addOption(options, "-source", configuration.getParameterValue("source", "${maven.compiler.source}"));
+            addOption(options, "-target", configuration.getParameterValue("target", "${maven.compiler.target}"));
+        }
+        addOption(options, "-encoding", configuration.getParameterValue("encoding", "${project.build.sourceEncoding}"));
+        if (Boolean.parseBoolean(configuration.getParameterValue("parameters", "${maven.compiler.parameters}"))
+                && !compilerArgs.contains("-parameters")) {
+            options.add("-parameters");
+        }
+        if (Boolean.parseBoolean(configuration.getParameterValue("enablePreview", "${maven.compiler.enablePreview}"))
+                && !compilerArgs.contains("--enable-preview")) {
+            options.add("--enable-preview");
+        }
+        for (String compilerArg : compilerArgs) {
+            if (!compilerArg.isBlank()
+                    && REPLACED_COMPILER_ARG_PREFIXES.stream().noneMatch(compilerArg::startsWith)) {
+                options.add(compilerArg);
+            }
+        }
+        return options;
+    }
+
+    private static void addOption(List<String> options, String option, String value) {
+        if (value != null && !value.isBlank()) {
+            options.add(option);
+            options.add(value);
+        }
+    }
+
+}
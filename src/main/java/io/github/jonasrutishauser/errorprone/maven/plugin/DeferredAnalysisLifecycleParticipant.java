@@ -0,0 +1,50 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Joins the {@link DeferredAnalysis deferred analyses} which are still
+ * outstanding at the end of the session and fails the build if any of them
+ * failed. Usually they are joined after the last project already, this only
+ * happens if the build stopped before, so the failure is reported after the
+ * reactor summary. Afterwards the {@link FlightRecordings flight recordings} of the
+ * forked compilers are merged, as the deferred analyses may still be writing
+ * theirs until then. Finally the startup savings of the
+ * {@link ClassDataSharing class data sharing archives} are reported, which may
+ * have been created by the last forked compiler.
+ */
+@Named
+public class DeferredAnalysisLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    private final Provider<DeferredAnalysis> deferredAnalysis;
+    private final Provider<FlightRecordings> flightRecordings;
+    private final Provider<ClassDataSharing> classDataSharing;
+
+    @Inject
+    DeferredAnalysisLifecycleParticipant(Provider<DeferredAnalysis> deferredAnalysis,
+            Provider<FlightRecordings> flightRecordings, Provider<ClassDataSharing> classDataSharing) {
+        this.deferredAnalysis = deferredAnalysis;
+        this.flightRecordings = flightRecordings;
+        this.classDataSharing = classDataSharing;
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+        List<String> failures = deferredAnalysis.get().joinAll(session);
+        flightRecordings.get().mergeAll();
+        classDataSharing.get().reportSavings();
+        if (!failures.isEmpty()) {
+            throw new MavenExecutionException("Deferred Error Prone analysis failed for " + String.join(", ", failures),
+                    session.getRequest().getPom());
+        }
+    }
+
+}
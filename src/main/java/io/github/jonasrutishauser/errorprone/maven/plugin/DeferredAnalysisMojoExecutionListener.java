@@ -0,0 +1,51 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.maven.execution.MojoExecutionEvent;
+import org.apache.maven.execution.MojoExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Starts a {@link DeferredAnalysis deferred analysis} once the compiler
+ * execution it waits for has succeeded. Analyses which are joined right after
+ * the compiler fail the compiler execution.
+ */
+@Named
+public class DeferredAnalysisMojoExecutionListener implements MojoExecutionListener {
+
+    private final Provider<DeferredAnalysis> deferredAnalysis;
+
+    @Inject
+    DeferredAnalysisMojoExecutionListener(Provider<DeferredAnalysis> deferredAnalysis) {
+        this.deferredAnalysis = deferredAnalysis;
+    }
+
+    @Override
+    public void beforeMojoExecution(MojoExecutionEvent event) {
+        // nothing to do
+    }
+
+    @Override
+    public void afterMojoExecutionSuccess(MojoExecutionEvent event) throws MojoExecutionException {
+        MojoExecution execution = event.getExecution();
+        if ("org.apache.maven.plugins".equals(execution.getGroupId())
+                && "maven-compiler-plugin".equals(execution.getArtifactId())) {
+            List<String> failures = deferredAnalysis.get().start(event.getSession(), event.getProject(), execution);
+            if (!failures.isEmpty()) {
+                throw new MojoExecutionException("Error Prone analysis failed for " + String.join(", ", failures));
+            }
+        }
+    }
+
+    @Override
+    public void afterExecutionFailure(MojoExecutionEvent event) {
+        // nothing to do
+    }
+
+}
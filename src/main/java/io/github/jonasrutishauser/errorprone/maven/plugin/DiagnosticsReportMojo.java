@@ -0,0 +1,126 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Merges the findings streamed with {@code diagnostics} enabled of all projects
+ * in the reactor into a single SARIF report.
+ * <p>
+ * The findings are copied line by line, so the report is never held in memory
+ * as a whole.
+ */
+@Mojo(name = "diagnostics-report", aggregator = true, threadSafe = true)
+public class DiagnosticsReportMojo extends AbstractMojo {
+
+    /**
+     * The file the SARIF report is written to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/errorprone/diagnostics-report.sarif", required = true)
+    private File reportFile;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    private PluginDescriptor plugin;
+
+    @Inject
+    private MavenSession session;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        Map<String, Integer> counts = new TreeMap<>();
+        int diagnosticsFiles = 0;
+        try {
+            Files.createDirectories(reportFile.toPath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(reportFile.toPath())) {
+                writer.write("{\n");
+                writer.write("  \"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\",\n");
+                writer.write("  \"version\": \"2.1.0\",\n");
+                writer.write("  \"runs\": [{\n");
+                writer.write("    \"tool\": {\"driver\": {\"name\": \"Error Prone\", "
+                        + "\"informationUri\": \"https://errorprone.info\"}},\n");
+                writer.write("    \"results\": [");
+                String separator = "\n";
+                for (MavenProject project : session.getProjects()) {
+                    for (Path workDirectory : WorkDirectories.get(project, plugin)) {
+                        Path file = workDirectory.resolve(Finding.FILE_NAME);
+                        if (Files.isRegularFile(file)) {
+                            separator = copy(file, writer, separator, counts);
+                            diagnosticsFiles++;
+                        }
+                    }
+                }
+                writer.write("\n    ]\n  }]\n}\n");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write Error Prone diagnostics report", e);
+        }
+        if (diagnosticsFiles == 0) {
+            getLog().warn("No Error Prone diagnostics found, enable them with -Derrorprone.diagnostics");
+            return;
+        }
+        getLog().info("Error Prone diagnostics report written to " + reportFile);
+        getLog().info(String.format("Error Prone reported %d findings in %d compilations",
+                counts.values().stream().mapToInt(Integer::intValue).sum(), diagnosticsFiles));
+        counts.forEach((check, count) -> getLog().info(String.format("  %-50s %8d", check, count)));
+    }
+
+    private static String copy(Path file, BufferedWriter writer, String separator, Map<String, Integer> counts)
+            throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                Finding finding = Finding.parse(line);
+                if (finding != null) {
+                    writer.write(separator);
+                    writer.write(toSarif(finding));
+                    separator = ",\n";
+                    counts.merge(finding.check(), 1, Integer::sum);
+                }
+            }
+        }
+        return separator;
+    }
+
+    private static String toSarif(Finding finding) {
+        StringBuilder result = new StringBuilder("      {\"ruleId\": ").append(Finding.quote(finding.check()))
+                .append(", \"level\": ").append(Finding.quote(getLevel(finding.severity())))
+                .append(", \"message\": {\"text\": ").append(Finding.quote(finding.message())).append('}');
+        if (finding.file() != null) {
+            result.append(", \"locations\": [{\"physicalLocation\": {\"artifactLocation\": {\"uri\": ")
+                    .append(Finding.quote(finding.file())).append('}');
+            if (finding.line() > 0) {
+                result.append(", \"region\": {\"startLine\": ").append(finding.line());
+                if (finding.column() > 0) {
+                    result.append(", \"startColumn\": ").append(finding.column());
+                }
+                result.append('}');
+            }
+            result.append("}}]");
+        }
+        return result.append('}').toString();
+    }
+
+    private static String getLevel(String severity) {
+        return switch (severity) {
+        case "ERROR" -> "error";
+        case "WARNING", "MANDATORY_WARNING" -> "warning";
+        default -> "note";
+        };
+    }
+
+}
@@ -0,0 +1,227 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Streams the Error Prone findings of a compilation to a JSON lines file, and
+ * passes at most a given number of findings per check on to the console. All
+ * other diagnostics, and findings reported as errors, are passed on unchanged.
+ * Only a counter per check is kept, so the memory used does not depend on the
+ * number of findings.
+ * <p>
+ * javac has no API to add a diagnostic listener to a running compilation, so
+ * the listener of its log is replaced using reflection. This requires the
+ * package {@code com.sun.tools.javac.util} to be open. Like the
+ * {@link ReporterPlugin}, it must not use any Maven API.
+ */
+final class DiagnosticsSink implements DiagnosticListener<JavaFileObject>, TaskListener {
+
+    private static final String ERROR_PRONE_CODE_SUFFIX = ".error.prone";
+
+    private final Path file;
+    private final int consoleLimit;
+    private final DiagnosticListener<? super JavaFileObject> previous;
+    private final Object log;
+    private final Field diagListener;
+    private final Method writeDiagnostic;
+    private final PrintWriter warnings;
+    private Object compiler;
+    private Method printCount;
+    private Object errorKind;
+    private final Map<String, Integer> counts = new TreeMap<>();
+    private BufferedWriter writer;
+
+    DiagnosticsSink(Path file, int consoleLimit, DiagnosticListener<? super JavaFileObject> previous,
+            Object log, Field diagListener, Method writeDiagnostic, PrintWriter warnings) throws IOException {
+        this.file = file;
+        this.consoleLimit = consoleLimit;
+        this.previous = previous;
+        this.log = log;
+        this.diagListener = diagListener;
+        this.writeDiagnostic = writeDiagnostic;
+        this.warnings = warnings;
+        Files.createDirectories(file.getParent());
+        this.writer = Files.newBufferedWriter(file);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void install(JavacTask task, Path file, int consoleLimit) throws ReflectiveOperationException, IOException {
+        Object context = task.getClass().getMethod("getContext").invoke(task);
+        Class<?> logClass = Class.forName("com.sun.tools.javac.util.Log", true, task.getClass().getClassLoader());
+        Object log = logClass.getMethod("instance", context.getClass()).invoke(null, context);
+        Field diagListener = logClass.getDeclaredField("diagListener");
+        diagListener.setAccessible(true);
+        Method writeDiagnostic = logClass.getDeclaredMethod("writeDiagnostic",
+                Class.forName("com.sun.tools.javac.util.JCDiagnostic", true, logClass.getClassLoader()));
+        writeDiagnostic.setAccessible(true);
+        Object warningKind = getWriterKind(logClass, "WARNING");
+        PrintWriter warnings = (PrintWriter) logClass.getMethod("getWriter", warningKind.getClass()).invoke(log,
+                warningKind);
+        DiagnosticsSink sink = new DiagnosticsSink(file, consoleLimit,
+                (DiagnosticListener<? super JavaFileObject>) diagListener.get(log), log, diagListener, writeDiagnostic,
+                warnings);
+        if (sink.previous == null) {
+            // javac only prints the number of errors and warnings without a listener
+            Class<?> compilerClass = Class.forName("com.sun.tools.javac.main.JavaCompiler", true,
+                    logClass.getClassLoader());
+            sink.compiler = compilerClass.getMethod("instance", context.getClass()).invoke(null, context);
+            sink.printCount = compilerClass.getMethod("printCount", String.class, int.class);
+            sink.errorKind = getWriterKind(logClass, "ERROR");
+        }
+        diagListener.set(log, sink);
+        task.addTaskListener(sink);
+    }
+
+    private static Object getWriterKind(Class<?> logClass, String name) {
+        for (Method method : logClass.getMethods()) {
+            if ("getWriter".equals(method.getName()) && method.getParameterCount() == 1) {
+                for (Object kind : method.getParameterTypes()[0].getEnumConstants()) {
+                    if (name.equals(((Enum<?>) kind).name())) {
+                        return kind;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("No writer kind " + name + " in " + logClass);
+    }
+
+    @Override
+    public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+        String check = getCheck(diagnostic);
+        if (check == null) {
+            passOn(diagnostic);
+            return;
+        }
+        int count = counts.merge(check, 1, Integer::sum);
+        write(check, diagnostic);
+        if (count <= consoleLimit || diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+            passOn(diagnostic);
+        }
+    }
+
+    @Override
+    public void finished(TaskEvent e) {
+        if (e.getKind() != TaskEvent.Kind.COMPILATION) {
+            return;
+        }
+        close();
+        for (var entry : counts.entrySet()) {
+            if (entry.getValue() > consoleLimit) {
+                warnings.println("warning: [" + ReporterPlugin.NAME + "] " + (entry.getValue() - consoleLimit)
+                        + " more findings of [" + entry.getKey() + "] are written to " + file);
+            }
+        }
+        warnings.flush();
+        if (compiler != null) {
+            try {
+                printCounts();
+            } catch (ReflectiveOperationException ex) {
+                warnings.println("warning: [" + ReporterPlugin.NAME + "] Failed to print counts: " + ex);
+            }
+        }
+    }
+
+    /**
+     * Prints the counts like {@code JavaCompiler.compile} does if there is no
+     * diagnostic listener.
+     */
+    private void printCounts() throws ReflectiveOperationException {
+        int errorCount = (int) compiler.getClass().getMethod("errorCount").invoke(compiler);
+        int warningCount = (int) compiler.getClass().getMethod("warningCount").invoke(compiler);
+        printCount.invoke(compiler, "error", errorCount);
+        printCount.invoke(compiler, "warn", warningCount);
+        printSuppressedCount(errorCount, log.getClass().getField("nsuppressederrors").getInt(log),
+                "count.error.recompile");
+        printSuppressedCount(warningCount, log.getClass().getField("nsuppressedwarns").getInt(log),
+                "count.warn.recompile");
+    }
+
+    /**
+     * Like the private {@code JavaCompiler.printSuppressedCount}.
+     */
+    private void printSuppressedCount(int shown, int suppressed, String key) throws ReflectiveOperationException {
+        if (suppressed > 0) {
+            log.getClass().getMethod("printLines", errorKind.getClass(), String.class, Object[].class).invoke(log,
+                    errorKind, key, new Object[] {String.valueOf(shown), String.valueOf(shown + suppressed)});
+            log.getClass().getMethod("flush", errorKind.getClass()).invoke(log, errorKind);
+        }
+    }
+
+    private void write(String check, Diagnostic<? extends JavaFileObject> diagnostic) {
+        if (writer == null) {
+            return;
+        }
+        String message = diagnostic.getMessage(Locale.ROOT);
+        Finding finding = new Finding(check, diagnostic.getKind().name(),
+                diagnostic.getSource() == null ? null : diagnostic.getSource().toUri().toString(),
+                diagnostic.getLineNumber(), diagnostic.getColumnNumber(),
+                message.substring(message.indexOf(']') + 1).strip());
+        try {
+            writer.write(finding.toJson());
+            writer.newLine();
+        } catch (IOException ex) {
+            warnings.println("warning: [" + ReporterPlugin.NAME + "] Failed to write " + file + ": " + ex);
+            close();
+        }
+    }
+
+    private void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                warnings.println("warning: [" + ReporterPlugin.NAME + "] Failed to write " + file + ": " + ex);
+            }
+            writer = null;
+        }
+    }
+
+    private void passOn(Diagnostic<? extends JavaFileObject> diagnostic) {
+        if (previous != null) {
+            previous.report(diagnostic);
+            return;
+        }
+        // the log passes diagnostics to its listener instead of writing them
+        try {
+            diagListener.set(log, null);
+            try {
+                writeDiagnostic.invoke(log, diagnostic);
+            } finally {
+                diagListener.set(log, this);
+            }
+        } catch (ReflectiveOperationException ex) {
+            warnings.println(diagnostic);
+        }
+    }
+
+    /**
+     * @return the name of the check reporting the diagnostic, or {@code null} if
+     *         it is not reported by Error Prone
+     */
+    private static String getCheck(Diagnostic<? extends JavaFileObject> diagnostic) {
+        if (diagnostic.getCode() == null || !diagnostic.getCode().endsWith(ERROR_PRONE_CODE_SUFFIX)) {
+            return null;
+        }
+        String message = diagnostic.getMessage(Locale.ROOT);
+        int end = message.indexOf(']');
+        return message.startsWith("[") && end > 1 ? message.substring(1, end) : null;
+    }
+
+}
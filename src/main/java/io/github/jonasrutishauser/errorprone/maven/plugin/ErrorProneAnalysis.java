@@ -0,0 +1,176 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * An Error Prone analysis of a source set in a forked javac, separate from the
+ * compilation which produces the classes.
+ * <p>
+ * Alternatively the analysis runs in-process with a class loader for the
+ * processor path, which is shared between analyses and therefore not loaded
+ * again for each of them.
+ * <p>
+ * The javac options are passed in an argument file, so that the command line
+ * length does not limit the number of source files. Everything javac prints is
+ * written to a log file.
+ */
+final class ErrorProneAnalysis {
+
+    /**
+     * @param name
+     *            describes the analyzed source set
+     * @param exitCode
+     *            exit code of javac
+     * @param logFile
+     *            file holding the output of javac
+     */
+    record Result(String name, int exitCode, Path logFile) {
+
+        boolean succeeded() {
+            return exitCode == 0;
+        }
+
+        List<String> output() {
+            try {
+                return Files.isRegularFile(logFile) ? Files.readAllLines(logFile) : List.of();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private final String name;
+    private final Path workDirectory;
+    private final String fileName;
+    private final String javac;
+    private final List<String> jvmArguments;
+    private final List<String> options;
+
+    /**
+     * @param name
+     *            describes the analyzed source set
+     * @param workDirectory
+     *            directory for the argument and log file
+     * @param fileName
+     *            name of the argument and log file without extension
+     * @param jvmArguments
+     *            arguments for the JVM of javac, prefixed with {@code -J}
+     * @param options
+     *            javac options including the {@code -Xplugin} arguments
+     */
+    ErrorProneAnalysis(String name, Path workDirectory, String fileName, List<String> jvmArguments,
+            List<String> options) {
+        this(name, workDirectory, fileName, Path.of(System.getProperty("java.home"), "bin", "javac").toString(),
+                jvmArguments, options);
+    }
+
+    /**
+     * @param javac
+     *            the javac executable of a forked analysis, like the one of a
+     *            JDK toolchain
+     * @see #ErrorProneAnalysis(String, Path, String, List, List)
+     */
+    ErrorProneAnalysis(String name, Path workDirectory, String fileName, String javac, List<String> jvmArguments,
+            List<String> options) {
+        this.name = name;
+        this.workDirectory = workDirectory;
+        this.fileName = fileName;
+        this.javac = javac;
+        this.jvmArguments = jvmArguments;
+        this.options = options;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Result run(List<Path> processorPath, List<Path> sourceFiles) throws IOException, InterruptedException {
+        Path classesDirectory = Files.createDirectories(workDirectory.resolve("deferred-classes"));
+        Path argumentFile = workDirectory.resolve(fileName + ".args");
+        Path logFile = workDirectory.resolve(fileName + ".log");
+        List<String> arguments = new ArrayList<>(options);
+        arguments.add("-processorpath");
+        arguments.add(processorPath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        arguments.add("-d");
+        arguments.add(classesDirectory.toString());
+        for (Path sourceFile : sourceFiles) {
+            arguments.add(sourceFile.toString());
+        }
+        Files.write(argumentFile, arguments.stream().map(ErrorProneAnalysis::quote).toList());
+
+        List<String> command = new ArrayList<>();
+        command.add(javac);
+        command.addAll(jvmArguments);
+        command.add("@" + argumentFile);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile.toFile())
+                .start();
+        return new Result(name, process.waitFor(), logFile);
+    }
+
+    Result runInProcess(ClassLoader processorClassLoader, List<Path> sourceFiles) throws IOException {
+        Path classesDirectory = Files.createDirectories(workDirectory.resolve("deferred-classes"));
+        Path logFile = workDirectory.resolve(fileName + ".log");
+        List<String> arguments = new ArrayList<>(options);
+        arguments.add("-d");
+        arguments.add(classesDirectory.toString());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (Writer log = Files.newBufferedWriter(logFile);
+                StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            boolean success = compiler
+                    .getTask(log, new ProcessorClassLoaderFileManager(fileManager, processorClassLoader), null,
+                            arguments, null, fileManager.getJavaFileObjectsFromPaths(sourceFiles))
+                    .call();
+            return new Result(name, success ? 0 : 1, logFile);
+        }
+    }
+
+    private static String quote(String argument) {
+        return '"' + argument.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * Provides the shared class loader as annotation processor path. javac closes
+     * the processor class loader at the end of the compilation if it is
+     * closeable, so it is wrapped into one which is not.
+     */
+    static class ProcessorClassLoaderFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final ClassLoader processorClassLoader;
+
+        ProcessorClassLoaderFileManager(StandardJavaFileManager fileManager, ClassLoader processorClassLoader) {
+            super(fileManager);
+            this.processorClassLoader = processorClassLoader;
+        }
+
+        @Override
+        public boolean hasLocation(Location location) {
+            return location == StandardLocation.ANNOTATION_PROCESSOR_PATH || super.hasLocation(location);
+        }
+
+        @Override
+        public ClassLoader getClassLoader(Location location) {
+            if (location == StandardLocation.ANNOTATION_PROCESSOR_PATH) {
+                return new ClassLoader(processorClassLoader) {
+                };
+            }
+            return super.getClassLoader(location);
+        }
+
+    }
+
+}
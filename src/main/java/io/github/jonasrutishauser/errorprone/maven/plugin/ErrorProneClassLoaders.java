@@ -0,0 +1,167 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.tools.ToolProvider;
+
+import org.apache.maven.SessionScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the class loaders of Error Prone processor paths for in-process
+ * compilations, so that the checker classes stay loaded and warm for the whole
+ * session.
+ * <p>
+ * Only the compilations run by this plugin use the cache: the
+ * {@link DeferredAnalysis deferred analyses} and the {@link WatchMojo watch
+ * goal}. The compiler plugin has no way to take a class loader for the
+ * annotation processors, it creates its own for every compiler execution.
+ * <p>
+ * The class loaders are keyed by the processor path, including the size and
+ * modification time of its entries, and the JDK version. At most
+ * {@value #MAXIMUM_SIZE} class loaders are cached, the least recently used one
+ * is evicted. A class loader is leased by its users and closed once it is
+ * evicted and no longer leased. The remaining ones are closed at the end of the
+ * session.
+ */
+@Named
+@SessionScoped
+class ErrorProneClassLoaders {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorProneClassLoaders.class);
+
+    static final int MAXIMUM_SIZE = 4;
+
+    /**
+     * A class loader in use, which is released by {@link #close()}.
+     */
+    final class Lease implements AutoCloseable {
+
+        private final Entry entry;
+        private boolean released;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        ClassLoader classLoader() {
+            return entry.classLoader;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ErrorProneClassLoaders.this) {
+                if (!released) {
+                    released = true;
+                    entry.leases--;
+                    closeIfUnused(entry);
+                }
+            }
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final URLClassLoader classLoader;
+        private int leases;
+        private boolean evicted;
+
+        Entry(URLClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+    }
+
+    private final Map<String, Entry> classLoaders = new LinkedHashMap<>(MAXIMUM_SIZE, 0.75f, true);
+    private final List<Entry> evicted = new ArrayList<>();
+
+    /**
+     * @return a lease of the class loader for the given processor path, which
+     *         must be closed once the class loader is no longer used
+     */
+    synchronized Lease get(List<Path> processorPath) throws IOException {
+        String key = getKey(processorPath);
+        Entry entry = classLoaders.get(key);
+        if (entry == null) {
+            LOGGER.debug("Creating Error Prone class loader for {}", processorPath);
+            entry = new Entry(new URLClassLoader("errorprone", toUrls(processorPath), getCompilerClassLoader()));
+            classLoaders.put(key, entry);
+            for (Iterator<Entry> iterator = classLoaders.values().iterator(); classLoaders.size() > MAXIMUM_SIZE;) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                eldest.evicted = true;
+                evicted.add(eldest);
+                closeIfUnused(eldest);
+            }
+        }
+        entry.leases++;
+        return new Lease(entry);
+    }
+
+    /**
+     * @return the number of class loaders which are not closed yet
+     */
+    synchronized int size() {
+        return classLoaders.size() + evicted.size();
+    }
+
+    synchronized void close() {
+        List<Entry> all = new ArrayList<>(evicted);
+        all.addAll(classLoaders.values());
+        evicted.clear();
+        classLoaders.clear();
+        all.forEach(ErrorProneClassLoaders::close);
+    }
+
+    private void closeIfUnused(Entry entry) {
+        if (entry.evicted && entry.leases == 0 && evicted.remove(entry)) {
+            LOGGER.debug("Closing evicted Error Prone class loader");
+            close(entry);
+        }
+    }
+
+    private static void close(Entry entry) {
+        try {
+            entry.classLoader.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close Error Prone class loader", e);
+        }
+    }
+
+    private static String getKey(List<Path> processorPath) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        Digests.update(digest, System.getProperty("java.version"));
+        for (Path entry : processorPath) {
+            Digests.update(digest, entry + ":" + Files.size(entry) + ":" + Files.getLastModifiedTime(entry).toMillis());
+        }
+        return Digests.toHex(digest);
+    }
+
+    private static URL[] toUrls(List<Path> processorPath) throws MalformedURLException {
+        URL[] urls = new URL[processorPath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = processorPath.get(i).toUri().toURL();
+        }
+        return urls;
+    }
+
+    private static ClassLoader getCompilerClassLoader() {
+        ClassLoader classLoader = ToolProvider.getSystemJavaCompiler().getClass().getClassLoader();
+        return classLoader == null ? ClassLoader.getPlatformClassLoader() : classLoader;
+    }
+
+}
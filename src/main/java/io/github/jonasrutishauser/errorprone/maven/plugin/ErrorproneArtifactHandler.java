@@ -4,6 +4,13 @@ import javax.inject.Named;
 
 import org.apache.maven.artifact.handler.ArtifactHandler;
 
+/**
+ * Handles the dependencies of type {@code errorprone}: they are neither added
+ * to the classpath nor do they include their dependencies. Maven still
+ * resolves their transitive dependencies with the project dependencies for
+ * every goal requiring the dependency resolution, like the compiler goals, as
+ * an artifact handler cannot exclude a dependency from the resolution.
+ */
 @Named("errorprone")
 public class ErrorproneArtifactHandler implements ArtifactHandler {
 
@@ -1,9 +1,12 @@
 package io.github.jonasrutishauser.errorprone.maven.plugin;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.execution.ProjectExecutionEvent;
 import org.apache.maven.execution.ProjectExecutionListener;
 import org.apache.maven.lifecycle.LifecycleExecutionException;
@@ -13,10 +16,15 @@ import org.apache.maven.plugin.MojoExecution;
 public class ErrorproneConfigurationProjectExecutionListener implements ProjectExecutionListener {
 
     private final Provider<CompilerConfiguration> compilerConfiguration;
+    private final Provider<IncrementalAnalysis> incrementalAnalysis;
+    private final Provider<DeferredAnalysis> deferredAnalysis;
 
     @Inject
-    ErrorproneConfigurationProjectExecutionListener(Provider<CompilerConfiguration> compilerConfiguration) {
+    ErrorproneConfigurationProjectExecutionListener(Provider<CompilerConfiguration> compilerConfiguration,
+            Provider<IncrementalAnalysis> incrementalAnalysis, Provider<DeferredAnalysis> deferredAnalysis) {
         this.compilerConfiguration = compilerConfiguration;
+        this.incrementalAnalysis = incrementalAnalysis;
+        this.deferredAnalysis = deferredAnalysis;
     }
 
     @Override
@@ -26,29 +34,57 @@ public class ErrorproneConfigurationProjectExecutionListener implements ProjectE
 
     @Override
     public void beforeProjectLifecycleExecution(ProjectExecutionEvent event) throws LifecycleExecutionException {
+        FlightRecorderEvents.ExecutionPlan executionPlanEvent = new FlightRecorderEvents.ExecutionPlan();
+        executionPlanEvent.begin();
         CompilerConfiguration configuration = compilerConfiguration.get();
-        configuration.setCompilerExecutions(event.getProject(), event.getExecutionPlan().stream()
-                .filter(execution -> isJavacCompilerExecution(configuration, execution)).toList());
+        List<MojoExecution> compilerExecutions = event.getExecutionPlan().stream()
+                .filter(execution -> isJavacCompilerExecution(configuration, event.getSession(), execution)).toList();
+        configuration.setCompilerExecutions(event.getProject(), compilerExecutions);
+        executionPlanEvent.end();
+        if (executionPlanEvent.shouldCommit()) {
+            executionPlanEvent.project = event.getProject().getId();
+            executionPlanEvent.mojoExecutions = event.getExecutionPlan().size();
+            executionPlanEvent.compilerExecutions = compilerExecutions.size();
+            executionPlanEvent.commit();
+        }
     }
 
-    private boolean isJavacCompilerExecution(CompilerConfiguration configuration, MojoExecution mojoExecution) {
+    private boolean isJavacCompilerExecution(CompilerConfiguration configuration, MavenSession session,
+            MojoExecution mojoExecution) {
         if ("org.apache.maven.plugins".equals(mojoExecution.getGroupId())
                 && "maven-compiler-plugin".equals(mojoExecution.getArtifactId())
                 && ("compile".equals(mojoExecution.getGoal()) || "testCompile".equals(mojoExecution.getGoal()))) {
-            String value = configuration.getParameterValue(mojoExecution, mojoExecution.getConfiguration().getChild("compilerId"));
+            String value = configuration.getParameterValue(session, mojoExecution,
+                    mojoExecution.getConfiguration().getChild("compilerId"));
             return value == null || "javac".equals(value);
         }
         return false;
     }
 
+    /**
+     * Joins the outstanding deferred analyses after the last project of the
+     * reactor, so that a failed analysis fails this project and shows up in the
+     * reactor summary, instead of failing the build after it.
+     */
     @Override
     public void afterProjectExecutionSuccess(ProjectExecutionEvent event) throws LifecycleExecutionException {
         compilerConfiguration.get().clearCompilerExecutions(event.getProject());
+        DeferredAnalysis analysis = deferredAnalysis.get();
+        analysis.commitIncrementalState(event.getProject());
+        if (analysis.finish(event.getSession())) {
+            List<String> failures = analysis.joinAll(event.getSession());
+            if (!failures.isEmpty()) {
+                throw new LifecycleExecutionException(
+                        "Deferred Error Prone analysis failed for " + String.join(", ", failures), event.getProject());
+            }
+        }
     }
 
     @Override
     public void afterProjectExecutionFailure(ProjectExecutionEvent event) {
         compilerConfiguration.get().clearCompilerExecutions(event.getProject());
+        incrementalAnalysis.get().discard(event.getProject());
+        deferredAnalysis.get().finish(event.getSession());
     }
 
 }
@@ -0,0 +1,114 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds patterns for {@code -XepExcludedPaths}.
+ * <p>
+ * Error Prone matches the pattern against the whole path of the source file
+ * URI, so every file is written as its absolute URI path. Whitespace is escaped
+ * as it would otherwise split the {@code -Xplugin:ErrorProne} argument.
+ * <p>
+ * Lists of files are written as a trie of their path segments, so that common
+ * directories are matched only once instead of once per file.
+ */
+final class ExcludedPaths {
+
+    private ExcludedPaths() {
+    }
+
+    /**
+     * Creates a pattern matching every file except the given ones.
+     */
+    static String allExcept(Collection<Path> files) {
+        if (files.isEmpty()) {
+            return ".*";
+        }
+        return "(?!(?:" + anyOf(files) + ")$).*";
+    }
+
+    /**
+     * Creates a pattern matching exactly the given files.
+     */
+    static String anyOf(Collection<Path> files) {
+        Segment root = new Segment();
+        for (Path file : files) {
+            Segment segment = root;
+            for (String name : toPath(file).split("/", -1)) {
+                segment = segment.children.computeIfAbsent(name, key -> new Segment());
+            }
+            segment.file = true;
+        }
+        return root.childrenPattern();
+    }
+
+    /**
+     * Creates a pattern matching every file in the given directories.
+     */
+    static String anyUnder(Collection<Path> directories) {
+        if (directories.isEmpty()) {
+            return null;
+        }
+        return "(?:" + anyOf(directories) + ")/.*";
+    }
+
+    /**
+     * Combines the given patterns, so that a file is excluded if any of them
+     * matches. {@code null} or blank patterns are ignored.
+     */
+    static String merge(Collection<String> patterns) {
+        List<String> nonBlank = patterns.stream().filter(pattern -> pattern != null && !pattern.isBlank()).toList();
+        if (nonBlank.size() <= 1) {
+            return nonBlank.isEmpty() ? null : nonBlank.get(0);
+        }
+        return "(?:" + String.join(")|(?:", nonBlank) + ")";
+    }
+
+    static String toPath(Path file) {
+        return file.toAbsolutePath().normalize().toUri().getPath();
+    }
+
+    private static final class Segment {
+
+        private final SortedMap<String, Segment> children = new TreeMap<>();
+        private boolean file;
+
+        String childrenPattern() {
+            List<String> alternatives = new ArrayList<>(children.size());
+            for (var child : children.entrySet()) {
+                alternatives.add(quote(child.getKey()) + child.getValue().suffixPattern());
+            }
+            return String.join("|", alternatives);
+        }
+
+        private String suffixPattern() {
+            if (children.isEmpty()) {
+                return "";
+            }
+            String suffix = "/" + (children.size() == 1 ? childrenPattern() : "(?:" + childrenPattern() + ")");
+            return file ? "(?:" + suffix + ")?" : suffix;
+        }
+
+    }
+
+    static String quote(String path) {
+        StringBuilder quoted = new StringBuilder(path.length() + 16);
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                quoted.append(String.format("\\x{%x}", (int) c));
+            } else if (c < 128 && !Character.isLetterOrDigit(c) && c != '/' && c != '_' && c != '-') {
+                quoted.append('\\').append(c);
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.toString();
+    }
+
+}
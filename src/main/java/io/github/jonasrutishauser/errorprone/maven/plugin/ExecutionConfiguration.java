@@ -0,0 +1,272 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.PluginParameterExpressionEvaluator;
+import org.apache.maven.toolchain.Toolchain;
+import org.apache.maven.toolchain.ToolchainManager;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * The configuration of a single compiler execution, evaluated at most once per
+ * expression.
+ * <p>
+ * The compiler arguments and annotation processor paths are indexed on first
+ * use, so that checking for an existing entry does not evaluate the whole list
+ * again.
+ * <p>
+ * The configuration of the execution is never modified in place, as its nodes
+ * may be shared with other executions. The first modification works on a copy,
+ * which {@link #apply()} sets on the execution.
+ */
+class ExecutionConfiguration {
+
+    /**
+     * The result of evaluating an expression.
+     *
+     * @param value
+     *            the value, or {@code null} if the expression evaluates to
+     *            nothing or failed to evaluate
+     * @param failed
+     *            whether the expression failed to evaluate
+     */
+    private record Evaluation(String value, boolean failed) {
+        static final Evaluation FAILED = new Evaluation(null, true);
+    }
+
+    private final MavenSession session;
+    private final PluginParameterExpressionEvaluator evaluator;
+    private final MojoExecution execution;
+    private Xpp3Dom configuration;
+    private boolean copied;
+    private final Map<String, Evaluation> evaluatedExpressions = new HashMap<>();
+
+    private List<String> compilerArgs;
+    private Set<String> annotationProcessorPaths;
+
+    ExecutionConfiguration(MavenSession session, MojoExecution execution) {
+        this.session = session;
+        this.evaluator = new PluginParameterExpressionEvaluator(session, execution);
+        this.execution = execution;
+        this.configuration = execution.getConfiguration();
+    }
+
+    /**
+     * Sets the modified configuration on the execution, if there is any.
+     */
+    void apply() {
+        if (copied) {
+            execution.setConfiguration(configuration);
+        }
+    }
+
+    String getExecutionId() {
+        return execution.getExecutionId();
+    }
+
+    Xpp3Dom getConfiguration() {
+        return configuration;
+    }
+
+    String getParameterValue(Xpp3Dom value) {
+        if (value == null) {
+            return null;
+        }
+        Evaluation evaluation = evaluatedExpressions.computeIfAbsent(value.getValue(), this::evaluate);
+        if (evaluation.failed()) {
+            return null;
+        }
+        return evaluation.value() == null ? value.getAttribute("default-value") : evaluation.value();
+    }
+
+    /**
+     * @param defaultExpression
+     *            evaluated if the configuration does not contain the parameter,
+     *            like a configuration taken from the project model, which lacks
+     *            the default values of the mojo
+     */
+    String getParameterValue(String name, String defaultExpression) {
+        Xpp3Dom value = configuration.getChild(name);
+        if (value != null) {
+            return getParameterValue(value);
+        }
+        return evaluatedExpressions.computeIfAbsent(defaultExpression, this::evaluate).value();
+    }
+
+    boolean isTrue(Xpp3Dom value) {
+        return Boolean.parseBoolean(getParameterValue(value));
+    }
+
+    /**
+     * Takes the javac of the compiler execution like the compiler plugin: the
+     * {@code executable} if the execution forks, otherwise the javac of the JDK
+     * toolchain, which makes the compiler plugin fork as well. The toolchain is
+     * the one matching the {@code jdkToolchain} requirements of the execution,
+     * or the one selected by the toolchains plugin.
+     *
+     * @return the javac executable, or {@code null} for the javac of the JDK
+     *         running Maven
+     */
+    String getJavac(ToolchainManager toolchainManager) {
+        String executable = getParameterValue(configuration.getChild("executable"));
+        if (isTrue(configuration.getChild("fork")) && executable != null && !executable.isBlank()) {
+            return executable;
+        }
+        Toolchain toolchain = null;
+        Xpp3Dom jdkToolchain = configuration.getChild("jdkToolchain");
+        if (jdkToolchain != null && jdkToolchain.getChildCount() > 0) {
+            Map<String, String> requirements = new HashMap<>();
+            for (Xpp3Dom requirement : jdkToolchain.getChildren()) {
+                requirements.put(requirement.getName(), getParameterValue(requirement));
+            }
+            toolchain = toolchainManager.getToolchains(session, "jdk", requirements).stream().findFirst()
+                    .orElse(null);
+        }
+        if (toolchain == null) {
+            toolchain = toolchainManager.getToolchainFromBuildContext("jdk", session);
+        }
+        return toolchain == null ? null : toolchain.findTool("javac");
+    }
+
+    boolean hasCompilerArg(String prefix) {
+        for (String compilerArg : getCompilerArgs()) {
+            if (compilerArg.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void setValue(String name, String value) {
+        Xpp3Dom child = createOrGetChild(getWritableConfiguration(), name);
+        child.setValue(value);
+    }
+
+    void addCompilerArg(String value) {
+        List<String> args = getCompilerArgs();
+        Xpp3Dom compilerArg = new Xpp3Dom("arg");
+        compilerArg.setValue(value);
+        createOrGetChild(getWritableConfiguration(), "compilerArgs").addChild(compilerArg);
+        String evaluated = getParameterValue(compilerArg);
+        if (evaluated != null) {
+            args.add(evaluated);
+        }
+    }
+
+    boolean hasAnnotationProcessorPath(Dependency dependency) {
+        return getAnnotationProcessorPaths().contains(dependency.getGroupId() + ':' + dependency.getArtifactId());
+    }
+
+    void addAnnotationProcessorPath(Dependency dependency) {
+        Set<String> paths = getAnnotationProcessorPaths();
+        Xpp3Dom path = new Xpp3Dom("path");
+        createOrGetChild(getWritableConfiguration(), "annotationProcessorPaths").addChild(path);
+        Xpp3Dom groupId = new Xpp3Dom("groupId");
+        groupId.setValue(dependency.getGroupId());
+        path.addChild(groupId);
+        Xpp3Dom artifactId = new Xpp3Dom("artifactId");
+        artifactId.setValue(dependency.getArtifactId());
+        path.addChild(artifactId);
+        if (dependency.getVersion() != null) {
+            Xpp3Dom version = new Xpp3Dom("version");
+            version.setValue(dependency.getVersion());
+            path.addChild(version);
+        }
+        paths.add(dependency.getGroupId() + ':' + dependency.getArtifactId());
+    }
+
+    /**
+     * @return the evaluated compiler arguments
+     */
+    List<String> getCompilerArguments() {
+        return List.copyOf(getCompilerArgs());
+    }
+
+    /**
+     * @return the evaluated annotation processor paths, without a version if it
+     *         is managed
+     */
+    List<Dependency> getAnnotationProcessorPathDependencies() {
+        List<Dependency> dependencies = new ArrayList<>();
+        Xpp3Dom paths = configuration.getChild("annotationProcessorPaths");
+        if (paths != null) {
+            for (Xpp3Dom path : paths.getChildren()) {
+                Dependency dependency = new Dependency();
+                dependency.setGroupId(getParameterValue(path.getChild("groupId")));
+                dependency.setArtifactId(getParameterValue(path.getChild("artifactId")));
+                dependency.setVersion(getParameterValue(path.getChild("version")));
+                dependency.setClassifier(getParameterValue(path.getChild("classifier")));
+                if (dependency.getGroupId() != null && dependency.getArtifactId() != null) {
+                    dependencies.add(dependency);
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private List<String> getCompilerArgs() {
+        if (compilerArgs == null) {
+            compilerArgs = new ArrayList<>();
+            Xpp3Dom args = configuration.getChild("compilerArgs");
+            if (args != null) {
+                for (Xpp3Dom arg : args.getChildren()) {
+                    String value = getParameterValue(arg);
+                    if (value != null) {
+                        compilerArgs.add(value);
+                    }
+                }
+            }
+        }
+        return compilerArgs;
+    }
+
+    private Set<String> getAnnotationProcessorPaths() {
+        if (annotationProcessorPaths == null) {
+            annotationProcessorPaths = new HashSet<>();
+            Xpp3Dom paths = configuration.getChild("annotationProcessorPaths");
+            if (paths != null) {
+                for (Xpp3Dom path : paths.getChildren()) {
+                    annotationProcessorPaths.add(getParameterValue(path.getChild("groupId")) + ':'
+                            + getParameterValue(path.getChild("artifactId")));
+                }
+            }
+        }
+        return annotationProcessorPaths;
+    }
+
+    private Xpp3Dom getWritableConfiguration() {
+        if (!copied) {
+            configuration = new Xpp3Dom(configuration);
+            copied = true;
+        }
+        return configuration;
+    }
+
+    private Evaluation evaluate(String expression) {
+        try {
+            Object evaluated = evaluator.evaluate(expression);
+            return new Evaluation(evaluated == null ? null : evaluated.toString(), false);
+        } catch (ExpressionEvaluationException e) {
+            return Evaluation.FAILED;
+        }
+    }
+
+    private static Xpp3Dom createOrGetChild(Xpp3Dom parent, String name) {
+        Xpp3Dom child = parent.getChild(name);
+        if (child == null) {
+            child = new Xpp3Dom(name);
+            parent.addChild(child);
+        }
+        return child;
+    }
+
+}
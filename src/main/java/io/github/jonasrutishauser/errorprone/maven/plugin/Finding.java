@@ -0,0 +1,101 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single Error Prone finding, as streamed by the {@link DiagnosticsSink} to
+ * a JSON lines file, one finding per line.
+ * <p>
+ * Used inside the compiler as well, so it must not use any Maven API.
+ *
+ * @param check
+ *            name of the check
+ * @param severity
+ *            the {@link javax.tools.Diagnostic.Kind kind} of the diagnostic
+ * @param file
+ *            URI of the source file, or {@code null} if there is none
+ * @param line
+ *            line number, or a negative number if there is none
+ * @param column
+ *            column number, or a negative number if there is none
+ * @param message
+ *            the message without the check name
+ */
+record Finding(String check, String severity, String file, long line, long column, String message) {
+
+    static final String FILE_NAME = "diagnostics.jsonl";
+
+    private static final String STRING = "\"((?:[^\"\\\\]|\\\\.)*)\"";
+    private static final Pattern JSON = Pattern.compile("\\{\"check\": " + STRING + ", \"severity\": " + STRING
+            + ", \"file\": (?:null|" + STRING + "), \"line\": (-?\\d+), \"column\": (-?\\d+), \"message\": " + STRING
+            + "\\}");
+
+    String toJson() {
+        return "{\"check\": " + quote(check) + ", \"severity\": " + quote(severity) + ", \"file\": "
+                + (file == null ? "null" : quote(file)) + ", \"line\": " + line + ", \"column\": " + column
+                + ", \"message\": " + quote(message) + "}";
+    }
+
+    /**
+     * @return the finding of a line written with {@link #toJson()}, or
+     *         {@code null} if the line is not a finding
+     */
+    static Finding parse(String json) {
+        Matcher matcher = JSON.matcher(json);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new Finding(unquote(matcher.group(1)), unquote(matcher.group(2)),
+                matcher.group(3) == null ? null : unquote(matcher.group(3)), Long.parseLong(matcher.group(4)),
+                Long.parseLong(matcher.group(5)), unquote(matcher.group(6)));
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"' -> quoted.append("\\\"");
+            case '\\' -> quoted.append("\\\\");
+            case '\n' -> quoted.append("\\n");
+            case '\r' -> quoted.append("\\r");
+            case '\t' -> quoted.append("\\t");
+            default -> {
+                if (c < 0x20) {
+                    quoted.append(String.format("\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String unquote(String value) {
+        StringBuilder unquoted = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                unquoted.append(c);
+                continue;
+            }
+            char escaped = value.charAt(++i);
+            switch (escaped) {
+            case 'n' -> unquoted.append('\n');
+            case 'r' -> unquoted.append('\r');
+            case 't' -> unquoted.append('\t');
+            case 'b' -> unquoted.append('\b');
+            case 'f' -> unquoted.append('\f');
+            case 'u' -> {
+                unquoted.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                i += 4;
+            }
+            default -> unquoted.append(escaped);
+            }
+        }
+        return unquoted.toString();
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Java Flight Recorder events of the plugin. They are only recorded if a
+ * recording is running in the JVM, for Maven itself for example with
+ * {@code -XX:StartFlightRecording} in {@code MAVEN_OPTS}.
+ * <p>
+ * {@link AnalyzedFile} is emitted inside the compiler by the
+ * {@link ReporterPlugin}, the other events inside Maven.
+ */
+final class FlightRecorderEvents {
+
+    private static final String PREFIX = "io.github.jonasrutishauser.errorprone.";
+
+    private FlightRecorderEvents() {
+    }
+
+    @Name(PREFIX + "Configuration")
+    @Label("Error Prone Configuration")
+    @Description("Execution of a configuration goal")
+    @Category({ "Maven", "Error Prone" })
+    static class Configuration extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("Source Set")
+        String sourceSet;
+
+        @Label("Analyze")
+        @Description("Whether Error Prone runs for the source set")
+        boolean analyze;
+    }
+
+    @Name(PREFIX + "CompilerConfiguration")
+    @Label("Compiler Configuration")
+    @Description("Configuration of the compiler executions of a project")
+    @Category({ "Maven", "Error Prone" })
+    static class CompilerConfiguration extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("Compiler Executions")
+        int compilerExecutions;
+    }
+
+    @Name(PREFIX + "ExecutionPlan")
+    @Label("Execution Plan Filtering")
+    @Description("Search for the javac compiler executions in the execution plan of a project")
+    @Category({ "Maven", "Error Prone" })
+    static class ExecutionPlan extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("Mojo Executions")
+        int mojoExecutions;
+
+        @Label("Compiler Executions")
+        int compilerExecutions;
+    }
+
+    @Name(PREFIX + "ForkDecision")
+    @Label("Fork Decision")
+    @Description("Decision whether a compiler execution is forked")
+    @Category({ "Maven", "Error Prone" })
+    static class ForkDecision extends Event {
+        @Label("Execution")
+        String execution;
+
+        @Label("Fork")
+        boolean fork;
+
+        @Label("Reason")
+        String reason;
+    }
+
+    @Name(PREFIX + "AnalyzedFile")
+    @Label("Analyzed File")
+    @Description("Analysis of a source file by javac and Error Prone, from the start of the analysis or the end of "
+            + "the previous one, whatever is later")
+    @Category({ "Java Compiler", "Error Prone" })
+    static class AnalyzedFile extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Class")
+        String className;
+    }
+
+}
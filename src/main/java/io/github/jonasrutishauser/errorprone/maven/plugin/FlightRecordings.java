@@ -0,0 +1,95 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The flight recordings of the forked compilers. Every forked JVM writes its
+ * own recording, which are merged into a single recording per source set at
+ * the end of the session. As a recording consists of self-contained chunks,
+ * merging is a concatenation of the files.
+ */
+@Named
+@SessionScoped
+class FlightRecordings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecordings.class);
+
+    static final String FILE_NAME = "compiler.jfr";
+
+    private static final String PARTS_DIRECTORY = "recordings";
+
+    private final Set<Path> workDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Removes the recordings of an earlier build of the source set and
+     * registers it for {@link #mergeAll() merging}.
+     *
+     * @return the JVM argument starting a recording in a forked compiler
+     */
+    String prepare(Path workDirectory) throws IOException {
+        Path parts = workDirectory.resolve(PARTS_DIRECTORY);
+        for (Path part : list(parts)) {
+            Files.delete(part);
+        }
+        Files.createDirectories(parts);
+        workDirectories.add(workDirectory);
+        // JFR names the file after the process in a directory, so concurrent forks do not clash
+        return "-XX:StartFlightRecording=dumponexit=true,filename=" + parts;
+    }
+
+    /**
+     * Merges the recordings of all registered source sets.
+     */
+    void mergeAll() {
+        for (Path workDirectory : workDirectories) {
+            Path target = workDirectory.resolve(FILE_NAME);
+            try {
+                List<Path> parts = list(workDirectory.resolve(PARTS_DIRECTORY));
+                if (parts.isEmpty()) {
+                    continue;
+                }
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    for (Path part : parts) {
+                        try (FileChannel in = FileChannel.open(part)) {
+                            for (long position = 0; position < in.size();) {
+                                position += in.transferTo(position, in.size() - position, out);
+                            }
+                        }
+                    }
+                }
+                for (Path part : parts) {
+                    Files.delete(part);
+                }
+                LOGGER.info("Merged {} flight recordings of the compiler into {}", parts.size(), target);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to merge flight recordings into {}", target, e);
+            }
+        }
+        workDirectories.clear();
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jfr")).sorted().toList();
+        }
+    }
+
+}
@@ -0,0 +1,559 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.apache.maven.project.MavenProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the source files which were successfully analyzed by Error
+ * Prone, and of the inputs of the last successful analysis. A new state only
+ * replaces the stored one once the project has been built successfully.
+ * <p>
+ * A source file is analyzed again if it changed, or if it references a type
+ * declared in a changed or removed source file, or in a source file extending
+ * such a type. The references are found by the identifiers in the source
+ * text, which is an approximation: it includes source files which only use an
+ * identifier with the same name, but misses the ones which use a changed type
+ * without naming it, like through an inherited member, a static import on
+ * demand or an inferred type. Findings depending on such a use are only
+ * updated once the source file is analyzed again.
+ * <p>
+ * The findings of an analysis are streamed to a file, and stored with the
+ * state, so that the findings of the source files which are not analyzed again
+ * can be replayed.
+ * <p>
+ * The compiler may not analyze the source files at all, like if it finds
+ * nothing to compile. The {@link ReporterPlugin} therefore lists the analyzed
+ * source files in the {@link #ANALYZED_FILE}, and only those become part of
+ * the stored state.
+ */
+@Named
+@SessionScoped
+class IncrementalAnalysis {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalAnalysis.class);
+
+    /**
+     * Name of the file in the work directory listing the URIs of the source
+     * files analyzed by the compiler.
+     */
+    static final String ANALYZED_FILE = "analyzed-files";
+
+    private static final String STATE_FILE = "analysis-state";
+    private static final String INPUTS_FILE = "analysis-inputs";
+    private static final String FINDINGS_FILE = "analysis-findings";
+    private static final String PENDING_SUFFIX = ".pending";
+
+    private static final String IDENTIFIER = "[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*";
+    private static final Pattern IDENTIFIERS = Pattern.compile(IDENTIFIER);
+    private static final Pattern TYPE_DECLARATION = Pattern
+            .compile("\\b(?:class|interface|enum|record)\\s+(" + IDENTIFIER + ")([^{;]*)");
+
+    /**
+     * The identifiers of a source file, the types it declares and the
+     * identifiers of the headers of its type declarations, which contain its
+     * super types.
+     */
+    private record Source(Set<String> identifiers, Set<String> declaredTypes, Set<String> superTypes) {
+    }
+
+    /**
+     * The findings replayed for a source set, which are stored together with the
+     * findings of the analysis once the project has been built successfully.
+     */
+    private record PendingFindings(Path workDirectory, String configurationKey, Set<String> skippedUris,
+            List<Finding> replayed, Path diagnosticsFile) {
+    }
+
+    /**
+     * The state of a source set, which replaces the stored one once the project
+     * has been built successfully. The source files to analyze only become part
+     * of it if they were analyzed.
+     */
+    private record PendingState(Path workDirectory, String configurationKey, Map<Path, String> unchangedFiles,
+            Map<Path, String> filesToAnalyze) {
+    }
+
+    /**
+     * The key of the inputs of an analysis, which replaces the stored one once
+     * the project has been built successfully, if all source files were
+     * analyzed.
+     */
+    private record PendingInputs(Path workDirectory, String inputsKey, List<Path> sourceFiles) {
+    }
+
+    /**
+     * The pending states per project.
+     */
+    private final Map<String, List<PendingState>> pendingStates = new ConcurrentHashMap<>();
+
+    /**
+     * The pending inputs per project.
+     */
+    private final Map<String, List<PendingInputs>> pendingInputs = new ConcurrentHashMap<>();
+
+    /**
+     * The pending findings per project and work directory, as the source sets
+     * of a project are analyzed separately.
+     */
+    private final Map<String, Map<Path, PendingFindings>> pendingFindings = new ConcurrentHashMap<>();
+
+    /**
+     * @param checkerChecksums
+     *            the {@link ProcessorPathResolver#getChecksums checksums} of the
+     *            processor path, so that a rebuilt snapshot or a republished
+     *            checker changes the key
+     * @param classpathAbi
+     *            the {@link ClasspathAbi ABI digest} of the classpath
+     * @param streamedFindings
+     *            whether the findings are streamed to a file, as only then they
+     *            can be replayed
+     */
+    String getConfigurationKey(List<String> flags, List<String> checkerChecksums, String classpathAbi,
+            boolean streamedFindings) {
+        MessageDigest digest = Digests.newDigest();
+        Digests.update(digest, System.getProperty("java.version"));
+        for (String flag : flags) {
+            Digests.update(digest, flag);
+        }
+        for (String checksum : checkerChecksums) {
+            Digests.update(digest, checksum);
+        }
+        Digests.update(digest, classpathAbi);
+        Digests.update(digest, String.valueOf(streamedFindings));
+        return Digests.toHex(digest);
+    }
+
+    /**
+     * Determines which of the given source files have to be analyzed, which
+     * are the changed ones and their dependents, and records the pending state
+     * for the project. The source files which are not analyzed after all,
+     * because the compiler did not run, are analyzed again the next time.
+     */
+    Set<Path> getFilesToAnalyze(MavenProject project, Path workDirectory, String configurationKey,
+            Collection<Path> sourceFiles) throws IOException {
+        Map<Path, String> previous = read(workDirectory.resolve(STATE_FILE), configurationKey);
+        Map<Path, String> current = new TreeMap<>();
+        Map<Path, String> hashes = new TreeMap<>();
+        Set<String> changedTypes = new HashSet<>();
+        for (var entry : previous.entrySet()) {
+            if (Files.isRegularFile(entry.getKey())) {
+                current.put(entry.getKey(), entry.getValue());
+            } else {
+                changedTypes.add(getTypeName(entry.getKey()));
+            }
+        }
+        Set<Path> filesToAnalyze = new TreeSet<>();
+        Map<Path, Source> unchangedFiles = new TreeMap<>();
+        for (Path sourceFile : sourceFiles) {
+            byte[] content = Files.readAllBytes(sourceFile);
+            String hash = Digests.hash(content);
+            Source source = parse(sourceFile, content);
+            if (hash.equals(previous.get(sourceFile))) {
+                unchangedFiles.put(sourceFile, source);
+            } else {
+                filesToAnalyze.add(sourceFile);
+                changedTypes.addAll(source.declaredTypes());
+            }
+            hashes.put(sourceFile, hash);
+        }
+        if (!previous.isEmpty()) {
+            filesToAnalyze.addAll(getDependents(changedTypes, unchangedFiles));
+        }
+        Map<Path, String> hashesToAnalyze = new TreeMap<>();
+        for (var entry : hashes.entrySet()) {
+            if (filesToAnalyze.contains(entry.getKey())) {
+                hashesToAnalyze.put(entry.getKey(), entry.getValue());
+                current.remove(entry.getKey());
+            } else {
+                current.put(entry.getKey(), entry.getValue());
+            }
+        }
+        deleteAnalyzedFiles(workDirectory);
+        pendingStates.computeIfAbsent(project.getId(), id -> new CopyOnWriteArrayList<>())
+                .add(new PendingState(workDirectory, configurationKey, current, hashesToAnalyze));
+        return filesToAnalyze;
+    }
+
+    /**
+     * @return the unchanged source files which reference one of the changed
+     *         types or a type extending one of them
+     */
+    private static Set<Path> getDependents(Set<String> changedTypes, Map<Path, Source> unchangedFiles) {
+        Set<String> types = new HashSet<>(changedTypes);
+        for (boolean added = !types.isEmpty(); added;) {
+            added = false;
+            for (Source source : unchangedFiles.values()) {
+                if (!types.containsAll(source.declaredTypes())
+                        && !Collections.disjoint(source.superTypes(), types)) {
+                    added |= types.addAll(source.declaredTypes());
+                }
+            }
+        }
+        Set<Path> dependents = new TreeSet<>();
+        for (var entry : unchangedFiles.entrySet()) {
+            if (!Collections.disjoint(entry.getValue().identifiers(), types)) {
+                dependents.add(entry.getKey());
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Replays the stored findings of the source files which are not analyzed
+     * again, and records them as pending findings of the source set with the
+     * given work directory.
+     *
+     * @param diagnosticsFile
+     *            the file the findings of the analysis are streamed to, or
+     *            {@code null} if they are not streamed
+     * @return the replayed findings
+     */
+    List<Finding> replayFindings(MavenProject project, Path workDirectory, String configurationKey,
+            Collection<Path> skippedFiles, Path diagnosticsFile) throws IOException {
+        List<Finding> replayed = new ArrayList<>();
+        Set<String> skippedUris = new HashSet<>();
+        skippedFiles.forEach(file -> skippedUris.add(file.toUri().toString()));
+        Path findingsFile = workDirectory.resolve(FINDINGS_FILE);
+        if (diagnosticsFile != null && Files.isRegularFile(findingsFile)) {
+            List<String> lines = Files.readAllLines(findingsFile);
+            if (!lines.isEmpty() && configurationKey.equals(lines.get(0))) {
+                for (String line : lines.subList(1, lines.size())) {
+                    Finding finding = Finding.parse(line);
+                    if (finding != null && finding.file() != null && skippedUris.contains(finding.file())) {
+                        replayed.add(finding);
+                    }
+                }
+            }
+        }
+        pendingFindings.computeIfAbsent(project.getId(), id -> new ConcurrentHashMap<>()).put(workDirectory,
+                new PendingFindings(workDirectory, configurationKey, skippedUris, replayed, diagnosticsFile));
+        return replayed;
+    }
+
+    /**
+     * Compares the key of the inputs of an analysis with the one of the last
+     * successful analysis, and records the pending state if they differ. The
+     * pending state is only stored if all the given source files are analyzed.
+     *
+     * @return whether the inputs are unchanged
+     */
+    boolean isUnchanged(MavenProject project, Path workDirectory, String inputsKey, List<Path> sourceFiles)
+            throws IOException {
+        Path inputsFile = workDirectory.resolve(INPUTS_FILE);
+        if (Files.isRegularFile(inputsFile) && inputsKey.equals(Files.readString(inputsFile).trim())) {
+            return true;
+        }
+        deleteAnalyzedFiles(workDirectory);
+        pendingInputs.computeIfAbsent(project.getId(), id -> new CopyOnWriteArrayList<>())
+                .add(new PendingInputs(workDirectory, inputsKey, sourceFiles));
+        return false;
+    }
+
+    /**
+     * Compares the inputs of an analysis with those of the last successful one:
+     * the configuration fingerprint, the excluded paths, the contents of the
+     * source files and the ABI of the classpath.
+     *
+     * @param excludedPaths
+     *            the paths excluded in addition to the configured ones, as they
+     *            change the analyzed source files
+     * @return whether the inputs are unchanged
+     */
+    boolean isUnchangedSinceLastAnalysis(MavenProject project, Path workDirectory, String fingerprint,
+            String excludedPaths, List<Path> sourceFiles, String classpathAbi) throws IOException {
+        MessageDigest digest = Digests.newDigest();
+        Digests.update(digest, fingerprint);
+        Digests.update(digest, String.valueOf(excludedPaths));
+        for (Path sourceFile : sourceFiles) {
+            Digests.update(digest, sourceFile + " " + Digests.hash(sourceFile));
+        }
+        Digests.update(digest, classpathAbi);
+        boolean unchanged = isUnchanged(project, workDirectory, Digests.toHex(digest), sourceFiles);
+        LOGGER.info(unchanged
+                ? "Source files and classpath ABI are unchanged since the last successful analysis, "
+                        + "Error Prone does not run."
+                : "Source files or classpath ABI changed since the last successful analysis.");
+        return unchanged;
+    }
+
+    /**
+     * Selects the source files to analyze again, and logs the replayed findings
+     * of the others, at most {@code consoleLimit} per check.
+     *
+     * @param flags
+     *            the Error Prone flags without the paths excluded to select the
+     *            source files
+     * @param checkerChecksums
+     *            the checksums of the processor path
+     * @param diagnosticsFile
+     *            the file the findings of the analysis are streamed to, or
+     *            {@code null} if they are not streamed
+     * @return the paths to exclude from the analysis, or {@code null} if all
+     *         source files are analyzed
+     */
+    String selectFilesToAnalyze(MavenProject project, Path workDirectory, List<String> flags,
+            List<String> checkerChecksums, String classpathAbi, List<Path> sourceFiles, Path diagnosticsFile,
+            int consoleLimit) throws IOException {
+        String configurationKey = getConfigurationKey(flags, checkerChecksums, classpathAbi,
+                diagnosticsFile != null);
+        Set<Path> filesToAnalyze = getFilesToAnalyze(project, workDirectory, configurationKey, sourceFiles);
+        LOGGER.info("Analyzing {} of {} source files, the others and the source files they depend on are unchanged"
+                + " since the last successful analysis.", filesToAnalyze.size(), sourceFiles.size());
+        List<Path> skippedFiles = sourceFiles.stream().filter(file -> !filesToAnalyze.contains(file)).toList();
+        List<Finding> replayed = replayFindings(project, workDirectory, configurationKey, skippedFiles,
+                diagnosticsFile);
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Finding finding : replayed) {
+            if (counts.merge(finding.check(), 1, Integer::sum) > consoleLimit) {
+                continue;
+            }
+            String message = Path.of(URI.create(finding.file())) + ":[" + finding.line() + ',' + finding.column()
+                    + "] [" + finding.check() + "] " + finding.message() + " (unchanged since the last analysis)";
+            if (finding.severity().endsWith("WARNING")) {
+                LOGGER.warn(message);
+            } else {
+                LOGGER.info(message);
+            }
+        }
+        for (var entry : counts.entrySet()) {
+            if (entry.getValue() > consoleLimit) {
+                LOGGER.warn("{} more findings of [{}] of unchanged source files are in {}",
+                        entry.getValue() - consoleLimit, entry.getKey(), workDirectory.resolve(Finding.FILE_NAME));
+            }
+        }
+        return skippedFiles.isEmpty() ? null : ExcludedPaths.allExcept(filesToAnalyze);
+    }
+
+    void commit(MavenProject project) {
+        Map<Path, PendingFindings> findings = pendingFindings.remove(project.getId());
+        if (findings != null) {
+            findings.values().forEach(IncrementalAnalysis::commit);
+        }
+        List<PendingState> states = pendingStates.remove(project.getId());
+        if (states != null) {
+            states.forEach(this::commit);
+        }
+        List<PendingInputs> inputs = pendingInputs.remove(project.getId());
+        if (inputs != null) {
+            inputs.forEach(IncrementalAnalysis::commit);
+        }
+    }
+
+    void discard(MavenProject project) {
+        pendingFindings.remove(project.getId());
+        pendingStates.remove(project.getId());
+        pendingInputs.remove(project.getId());
+    }
+
+    /**
+     * Removes the stored state, so that all source files are analyzed again.
+     */
+    void reset(Path workDirectory) {
+        try {
+            for (String stateFile : List.of(STATE_FILE, INPUTS_FILE, FINDINGS_FILE, ANALYZED_FILE)) {
+                Files.deleteIfExists(workDirectory.resolve(stateFile));
+                Files.deleteIfExists(pending(workDirectory.resolve(stateFile)));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to reset analysis state in {}", workDirectory, e);
+        }
+    }
+
+    /**
+     * Stores the replayed findings together with the findings of the analysis,
+     * and adds the replayed ones to the streamed findings, so that they are
+     * complete for reports. Without streamed findings, the stored ones are
+     * removed.
+     */
+    private static void commit(PendingFindings findings) {
+        Path findingsFile = findings.workDirectory().resolve(FINDINGS_FILE);
+        try {
+            if (findings.diagnosticsFile() == null) {
+                Files.deleteIfExists(findingsFile);
+                return;
+            }
+            List<String> lines = new ArrayList<>();
+            if (Files.isRegularFile(findings.diagnosticsFile())) {
+                // the findings of skipped files are left over if the compiler did not run
+                for (String line : Files.readAllLines(findings.diagnosticsFile())) {
+                    Finding finding = Finding.parse(line);
+                    if (finding == null || !findings.skippedUris().contains(finding.file())) {
+                        lines.add(line);
+                    }
+                }
+            }
+            findings.replayed().forEach(finding -> lines.add(finding.toJson()));
+            Files.write(findings.diagnosticsFile(), lines);
+            lines.add(0, findings.configurationKey());
+            Path temporaryFile = pending(findingsFile);
+            Files.write(temporaryFile, lines);
+            Files.move(temporaryFile, findingsFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store findings {}", findingsFile, e);
+        }
+    }
+
+    /**
+     * Stores the state of the unchanged source files and of the analyzed ones.
+     */
+    private void commit(PendingState state) {
+        Path stateFile = state.workDirectory().resolve(STATE_FILE);
+        try {
+            Set<Path> analyzedFiles = readAnalyzedFiles(state.workDirectory());
+            Map<Path, String> current = new TreeMap<>(state.unchangedFiles());
+            for (var entry : state.filesToAnalyze().entrySet()) {
+                if (analyzedFiles.contains(entry.getKey().toAbsolutePath().normalize())) {
+                    current.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (current.size() < state.unchangedFiles().size() + state.filesToAnalyze().size()) {
+                LOGGER.debug("{} source files were not analyzed, they are analyzed again the next time",
+                        state.unchangedFiles().size() + state.filesToAnalyze().size() - current.size());
+            }
+            write(pending(stateFile), state.configurationKey(), current);
+            Files.move(pending(stateFile), stateFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store analysis state {}", stateFile, e);
+        }
+    }
+
+    /**
+     * Stores the key of the inputs if all source files were analyzed.
+     */
+    private static void commit(PendingInputs inputs) {
+        Path inputsFile = inputs.workDirectory().resolve(INPUTS_FILE);
+        try {
+            Set<Path> analyzedFiles = readAnalyzedFiles(inputs.workDirectory());
+            if (!inputs.sourceFiles().stream()
+                    .allMatch(sourceFile -> analyzedFiles.contains(sourceFile.toAbsolutePath().normalize()))) {
+                LOGGER.debug("Not all source files were analyzed, not storing the analysis inputs {}", inputsFile);
+                return;
+            }
+            Files.writeString(pending(inputsFile), inputs.inputsKey() + '\n');
+            Files.move(pending(inputsFile), inputsFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store analysis state {}", inputsFile, e);
+        }
+    }
+
+    /**
+     * Removes the list of the analyzed source files before an analysis, as the
+     * {@link ReporterPlugin} appends to it.
+     */
+    private static void deleteAnalyzedFiles(Path workDirectory) throws IOException {
+        Files.createDirectories(workDirectory);
+        Files.deleteIfExists(workDirectory.resolve(ANALYZED_FILE));
+    }
+
+    private static Set<Path> readAnalyzedFiles(Path workDirectory) throws IOException {
+        Set<Path> analyzedFiles = new HashSet<>();
+        Path analyzedFile = workDirectory.resolve(ANALYZED_FILE);
+        if (Files.isRegularFile(analyzedFile)) {
+            for (String line : Files.readAllLines(analyzedFile)) {
+                if (!line.isBlank()) {
+                    analyzedFiles.add(Path.of(URI.create(line.trim())).toAbsolutePath().normalize());
+                }
+            }
+        }
+        return analyzedFiles;
+    }
+
+    private static Path pending(Path stateFile) {
+        return stateFile.resolveSibling(stateFile.getFileName() + PENDING_SUFFIX);
+    }
+
+    private static String getTypeName(Path sourceFile) {
+        String fileName = sourceFile.getFileName().toString();
+        return fileName.endsWith(".java") ? fileName.substring(0, fileName.length() - ".java".length()) : fileName;
+    }
+
+    /**
+     * Reads the identifiers of a source file. Every byte is read as one
+     * character, so this does not depend on the encoding of the source files:
+     * an identifier with other characters than ASCII is split the same way in
+     * every source file.
+     */
+    private static Source parse(Path sourceFile, byte[] content) {
+        String text = new String(content, StandardCharsets.ISO_8859_1);
+        Set<String> identifiers = new HashSet<>();
+        Matcher identifier = IDENTIFIERS.matcher(text);
+        while (identifier.find()) {
+            identifiers.add(identifier.group());
+        }
+        Set<String> declaredTypes = new HashSet<>();
+        declaredTypes.add(getTypeName(sourceFile));
+        Set<String> superTypes = new HashSet<>();
+        Matcher declaration = TYPE_DECLARATION.matcher(text);
+        while (declaration.find()) {
+            declaredTypes.add(declaration.group(1));
+            Matcher header = IDENTIFIERS.matcher(declaration.group(2));
+            while (header.find()) {
+                superTypes.add(header.group());
+            }
+        }
+        return new Source(identifiers, declaredTypes, superTypes);
+    }
+
+    private Map<Path, String> read(Path stateFile, String configurationKey) throws IOException {
+        Map<Path, String> state = new TreeMap<>();
+        if (!Files.isRegularFile(stateFile)) {
+            return state;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(stateFile)) {
+            if (!configurationKey.equals(reader.readLine())) {
+                LOGGER.debug("Configuration changed since last analysis, discarding state {}", stateFile);
+                return state;
+            }
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                int separator = line.indexOf(' ');
+                if (separator > 0) {
+                    state.put(Path.of(line.substring(separator + 1)), line.substring(0, separator));
+                }
+            }
+        }
+        return state;
+    }
+
+    private void write(Path stateFile, String configurationKey, Map<Path, String> state) throws IOException {
+        Files.createDirectories(stateFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(stateFile)) {
+            writer.write(configurationKey);
+            writer.newLine();
+            for (var entry : state.entrySet()) {
+                writer.write(entry.getValue() + ' ' + entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Waits for the deferred Error Prone analyses of the project and fails if any
+ * of them failed.
+ * <p>
+ * Without this goal, deferred analyses are joined at the end of the build.
+ */
+@Mojo(name = "join", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class JoinMojo extends AbstractMojo {
+
+    @Inject
+    private MavenProject project;
+
+    @Inject
+    private DeferredAnalysis deferredAnalysis;
+
+    @Override
+    public void execute() throws MojoFailureException {
+        List<String> failures = deferredAnalysis.join(project);
+        if (!failures.isEmpty()) {
+            throw new MojoFailureException("Deferred Error Prone analysis failed for " + String.join(", ", failures));
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Merges the Error Prone patches of all projects in the reactor, written for
+ * {@code patchChecks}, into one patch relative to the top-level project, which
+ * can be applied with {@code git apply}.
+ * <p>
+ * The goal runs once after the build which wrote the patches, for example
+ * {@code mvn clean verify errorprone:merge-patches
+ * -Derrorprone.patchChecks=MissingOverride}. Run on its own, it merges the
+ * patches found in the output directory configured for the plugin in each
+ * project.
+ */
+@Mojo(name = "merge-patches", aggregator = true, threadSafe = true)
+public class MergePatchesMojo extends AbstractMojo {
+
+    /**
+     * The merged patch.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/errorprone/" + Patches.FILE_NAME,
+            property = "errorprone.patchFile", required = true)
+    private File patchFile;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    private PluginDescriptor plugin;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        try {
+            List<Path> patchFiles = new ArrayList<>();
+            for (MavenProject project : session.getProjects()) {
+                for (Path directory : getPatchDirectories(project)) {
+                    Path file = directory.resolve(Patches.FILE_NAME);
+                    if (Files.isRegularFile(file)) {
+                        patchFiles.add(file);
+                    }
+                }
+            }
+            String patch = Patches.merge(session.getTopLevelProject().getBasedir().toPath(), patchFiles);
+            Files.deleteIfExists(patchFile.toPath());
+            if (patch.isEmpty()) {
+                getLog().info("No Error Prone patches to merge.");
+                return;
+            }
+            Files.createDirectories(patchFile.toPath().getParent());
+            Files.writeString(patchFile.toPath(), patch);
+            getLog().info("Merged " + patchFiles.size() + " Error Prone patches changing " + Patches.countFiles(patch)
+                    + " files into " + patchFile + ".");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to merge the Error Prone patches", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Path> getPatchDirectories(MavenProject project) throws IOException {
+        List<Path> directories = (List<Path>) project.getContextValue(Patches.DIRECTORIES);
+        if (directories != null) {
+            return directories;
+        }
+        return WorkDirectories.get(project, plugin).stream().map(workDirectory -> workDirectory.resolve("patch"))
+                .filter(Files::isDirectory).toList();
+    }
+
+}
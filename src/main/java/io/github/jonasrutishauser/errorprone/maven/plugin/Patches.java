@@ -0,0 +1,127 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Merges the patches written by Error Prone for {@code -XepPatchChecks} into
+ * one patch.
+ * <p>
+ * Error Prone writes the paths of a patch relative to its directory. In the
+ * merged patch they are relative to a common root with the {@code a/} and
+ * {@code b/} prefixes of git, and the files are sorted by path, so the same
+ * fixes always result in the same patch.
+ */
+final class Patches {
+
+    /**
+     * Name of the patch file written by Error Prone.
+     */
+    static final String FILE_NAME = "error-prone.patch";
+
+    /**
+     * Key of the project context value holding the patch directories of the
+     * source sets of the project.
+     */
+    static final String DIRECTORIES = Patches.class.getName() + ".directories";
+
+    private static final Pattern HUNK = Pattern.compile("@@ -\\d+(?:,(\\d+))? \\+\\d+(?:,(\\d+))? @@");
+
+    private Patches() {
+    }
+
+    /**
+     * @return the directory Error Prone writes the patch of a source set to
+     */
+    static Path getDirectory(Path workDirectory) {
+        return workDirectory.resolve("patch");
+    }
+
+    /**
+     * Registers the patch directory of a source set for the
+     * {@link MergePatchesMojo merge-patches goal}. Before an analysis, the patch
+     * of the last one is removed, as Error Prone only replaces it if there are
+     * fixes. A skipped analysis keeps it.
+     */
+    @SuppressWarnings("unchecked")
+    static void prepareDirectory(MavenProject project, Path workDirectory, boolean analyze) throws IOException {
+        Path directory = getDirectory(workDirectory);
+        if (analyze) {
+            Files.deleteIfExists(Files.createDirectories(directory).resolve(FILE_NAME));
+        }
+        List<Path> directories = (List<Path>) project.getContextValue(DIRECTORIES);
+        if (directories == null) {
+            directories = new ArrayList<>();
+            project.setContextValue(DIRECTORIES, directories);
+        }
+        if (!directories.contains(directory)) {
+            directories.add(directory);
+        }
+    }
+
+    /**
+     * @return the merged patch, empty if the patch files contain no changes
+     */
+    static String merge(Path root, List<Path> patchFiles) throws IOException {
+        Map<String, List<String>> files = new TreeMap<>();
+        for (Path patchFile : patchFiles) {
+            List<String> lines = Files.readAllLines(patchFile);
+            List<String> hunks = null;
+            // the lines of the current hunk still to come, which may look like a header
+            int oldLines = 0;
+            int newLines = 0;
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (oldLines > 0 || newLines > 0) {
+                    // "\ No newline at end of file" belongs to the line before
+                    if (!line.startsWith("\\")) {
+                        oldLines -= line.startsWith("+") ? 0 : 1;
+                        newLines -= line.startsWith("-") ? 0 : 1;
+                    }
+                    hunks.add(line);
+                } else if (line.startsWith("--- ") && i + 1 < lines.size() && lines.get(i + 1).startsWith("+++ ")) {
+                    String path = getPath(root, patchFile.getParent(), line.substring(4));
+                    hunks = files.computeIfAbsent(path, key -> new ArrayList<>());
+                    i++;
+                } else if (hunks != null) {
+                    Matcher hunk = HUNK.matcher(line);
+                    if (hunk.lookingAt()) {
+                        oldLines = hunk.group(1) == null ? 1 : Integer.parseInt(hunk.group(1));
+                        newLines = hunk.group(2) == null ? 1 : Integer.parseInt(hunk.group(2));
+                    }
+                    hunks.add(line);
+                }
+            }
+        }
+        StringBuilder merged = new StringBuilder();
+        for (var file : files.entrySet()) {
+            merged.append("--- a/").append(file.getKey()).append('\n');
+            merged.append("+++ b/").append(file.getKey()).append('\n');
+            file.getValue().forEach(line -> merged.append(line).append('\n'));
+        }
+        return merged.toString();
+    }
+
+    /**
+     * @return the number of files changed by the given merged patch
+     */
+    static int countFiles(String patch) {
+        return (int) patch.lines().filter(line -> line.startsWith("+++ b/")).count();
+    }
+
+    private static String getPath(Path root, Path patchDirectory, String header) {
+        int tab = header.indexOf('\t');
+        Path file = patchDirectory.resolve(tab < 0 ? header : header.substring(0, tab)).normalize();
+        return root.toAbsolutePath().normalize().relativize(file.toAbsolutePath()).toString().replace('\\', '/');
+    }
+
+}
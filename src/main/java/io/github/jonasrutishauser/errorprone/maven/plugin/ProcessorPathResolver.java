@@ -0,0 +1,212 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+
+/**
+ * Resolves the processor path of Error Prone: the dependencies of type
+ * {@code errorprone} with their transitive dependencies, as the compiler plugin
+ * does for annotation processor paths. {@link CompilerConfiguration} passes it
+ * to compiler executions without annotation processor paths of their own. An
+ * analysis outside of the compiler execution resolves them together with the
+ * annotation processor paths of the execution.
+ * <p>
+ * Every distinct set of checkers is resolved once per session and shared by
+ * all projects using it. The checkers are sorted by their coordinates, so the
+ * order in which a project declares them does not matter.
+ * <p>
+ * The separation from the project dependencies is limited to this plugin: the
+ * {@link ProjectClasspath} leaves the checkers out, but the compiler plugin
+ * still requires the dependency resolution of the project, and Maven then
+ * resolves the dependencies of type {@code errorprone} with their transitive
+ * dependencies as part of it, once per project. The {@link
+ * ErrorproneArtifactHandler} only keeps them off the classpath.
+ */
+@Named
+@SessionScoped
+class ProcessorPathResolver {
+
+    private final RepositorySystem repositorySystem;
+    private final Map<String, CompletableFuture<List<Artifact>>> resolutions = new ConcurrentHashMap<>();
+    private final Map<Path, String> checksums = new ConcurrentHashMap<>();
+
+    @Inject
+    ProcessorPathResolver(RepositorySystem repositorySystem) {
+        this.repositorySystem = repositorySystem;
+    }
+
+    /**
+     * @return the dependencies of type {@code errorprone} of the project,
+     *         including the managed ones, each artifact only once
+     */
+    static List<Dependency> getCheckers(MavenProject project) {
+        Map<String, Dependency> checkers = new LinkedHashMap<>();
+        addCheckers(checkers, project.getDependencies());
+        if (project.getDependencyManagement() != null) {
+            addCheckers(checkers, project.getDependencyManagement().getDependencies());
+        }
+        return List.copyOf(checkers.values());
+    }
+
+    List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project)
+            throws DependencyResolutionException {
+        return resolve(repositorySession, project, List.of());
+    }
+
+    /**
+     * @param additionalDependencies
+     *            dependencies resolved together with the checkers, like the
+     *            annotation processor paths of a compiler execution; a missing
+     *            version is taken from the dependency management of the project
+     */
+    List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project,
+            List<Dependency> additionalDependencies) throws DependencyResolutionException {
+        return resolveArtifacts(repositorySession, project, additionalDependencies).stream()
+                .map(artifact -> artifact.getFile().toPath()).toList();
+    }
+
+    /**
+     * @return the checksums of the entries of the processor path, each computed
+     *         once per session, or the path itself for an entry which is not a
+     *         file
+     */
+    List<String> getChecksums(RepositorySystemSession repositorySession, MavenProject project)
+            throws DependencyResolutionException, IOException {
+        List<String> result = new ArrayList<>();
+        try {
+            for (Path entry : resolve(repositorySession, project)) {
+                result.add(checksums.computeIfAbsent(entry, ProcessorPathResolver::checksum));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return result;
+    }
+
+    /**
+     * @return the resolved artifacts of the processor path, which tell the
+     *         versions actually resolved
+     * @see #resolve(RepositorySystemSession, MavenProject, List)
+     */
+    List<Artifact> resolveArtifacts(RepositorySystemSession repositorySession, MavenProject project,
+            List<Dependency> additionalDependencies) throws DependencyResolutionException {
+        Map<String, Dependency> dependencies = new LinkedHashMap<>();
+        addCheckers(dependencies, getCheckers(project));
+        for (Dependency dependency : additionalDependencies) {
+            dependencies.putIfAbsent(dependency.getGroupId() + ':' + dependency.getArtifactId(),
+                    withManagedVersion(project, dependency));
+        }
+        List<Dependency> checkers = dependencies.values().stream()
+                .sorted(Comparator.comparing(Dependency::getManagementKey)).toList();
+        List<RemoteRepository> repositories = project.getRemoteProjectRepositories();
+        StringBuilder key = new StringBuilder();
+        for (Dependency checker : checkers) {
+            key.append(checker.getManagementKey()).append(':').append(checker.getVersion())
+                    .append(checker.getExclusions().stream()
+                            .map(exclusion -> exclusion.getGroupId() + ':' + exclusion.getArtifactId()).toList())
+                    .append(' ');
+        }
+        repositories.forEach(repository -> key.append(repository.getId()).append('=').append(repository.getUrl())
+                .append(' '));
+        CompletableFuture<List<Artifact>> resolution = new CompletableFuture<>();
+        CompletableFuture<List<Artifact>> existing = resolutions.putIfAbsent(key.toString(), resolution);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof DependencyResolutionException resolutionException) {
+                    throw resolutionException;
+                }
+                throw e;
+            }
+        }
+        try {
+            resolution.complete(resolve(repositorySession, checkers, repositories));
+        } catch (DependencyResolutionException | RuntimeException e) {
+            resolutions.remove(key.toString(), resolution);
+            resolution.completeExceptionally(e);
+            throw e;
+        }
+        return resolution.join();
+    }
+
+    private List<Artifact> resolve(RepositorySystemSession repositorySession, List<Dependency> checkers,
+            List<RemoteRepository> repositories) throws DependencyResolutionException {
+        List<org.eclipse.aether.graph.Dependency> dependencies = new ArrayList<>();
+        for (Dependency checker : checkers) {
+            List<Exclusion> exclusions = checker.getExclusions().stream()
+                    .map(exclusion -> new Exclusion(exclusion.getGroupId(), exclusion.getArtifactId(), "*", "*"))
+                    .toList();
+            dependencies.add(new org.eclipse.aether.graph.Dependency(new DefaultArtifact(checker.getGroupId(),
+                    checker.getArtifactId(), checker.getClassifier(), "jar", checker.getVersion()), "runtime",
+                    false, exclusions));
+        }
+        CollectRequest collectRequest = new CollectRequest(dependencies, null, repositories);
+        List<Artifact> processorPath = new ArrayList<>();
+        for (ArtifactResult result : repositorySystem
+                .resolveDependencies(repositorySession, new DependencyRequest(collectRequest, null))
+                .getArtifactResults()) {
+            processorPath.add(result.getArtifact());
+        }
+        return List.copyOf(processorPath);
+    }
+
+    private static String checksum(Path file) {
+        try {
+            return Files.isRegularFile(file) ? Digests.hash(file) : file.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Dependency withManagedVersion(MavenProject project, Dependency dependency) {
+        if (dependency.getVersion() != null || project.getDependencyManagement() == null) {
+            return dependency;
+        }
+        for (Dependency managed : project.getDependencyManagement().getDependencies()) {
+            if (managed.getGroupId().equals(dependency.getGroupId())
+                    && managed.getArtifactId().equals(dependency.getArtifactId())) {
+                Dependency versioned = dependency.clone();
+                versioned.setVersion(managed.getVersion());
+                return versioned;
+            }
+        }
+        return dependency;
+    }
+
+    private static void addCheckers(Map<String, Dependency> checkers, List<Dependency> dependencies) {
+        for (Dependency dependency : dependencies) {
+            if ("errorprone".equals(dependency.getType())) {
+                checkers.putIfAbsent(dependency.getGroupId() + ':' + dependency.getArtifactId(), dependency);
+            }
+        }
+    }
+
+}
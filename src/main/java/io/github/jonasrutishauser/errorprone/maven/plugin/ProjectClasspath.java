@@ -0,0 +1,88 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.maven.SessionScoped;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactProperties;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.util.artifact.JavaScopes;
+
+/**
+ * Resolves the dependencies of a project for the features which need its
+ * classpath before the compiler runs: the {@link ClasspathAbi ABI} of an
+ * incremental analysis and the classpath of a forked analysis. The
+ * configuration goals therefore do not require the dependency resolution of
+ * the project, which Maven would otherwise do in every build, even without
+ * these features.
+ * <p>
+ * The dependencies of type {@code errorprone} and their transitive
+ * dependencies are left out, as they are only on the processor path. Every
+ * project is resolved once per session and set of scopes.
+ */
+@Named
+@SessionScoped
+class ProjectClasspath {
+
+    static final Set<String> COMPILE_SCOPES = Set.of(JavaScopes.COMPILE, JavaScopes.PROVIDED, JavaScopes.SYSTEM);
+    static final Set<String> TEST_SCOPES = Set.of(JavaScopes.COMPILE, JavaScopes.PROVIDED, JavaScopes.SYSTEM,
+            JavaScopes.RUNTIME, JavaScopes.TEST);
+
+    private final ProjectDependenciesResolver dependenciesResolver;
+    private final Map<String, List<String>> classpaths = new ConcurrentHashMap<>();
+
+    @Inject
+    ProjectClasspath(ProjectDependenciesResolver dependenciesResolver) {
+        this.dependenciesResolver = dependenciesResolver;
+    }
+
+    /**
+     * @return the files of the dependencies of the project with the given
+     *         scopes, in the order of the resolution, without the output
+     *         directories of the project itself
+     */
+    List<String> resolve(MavenSession session, MavenProject project, Set<String> scopes)
+            throws DependencyResolutionException {
+        String key = project.getId() + ' ' + new TreeSet<>(scopes);
+        List<String> classpath = classpaths.get(key);
+        if (classpath == null) {
+            DefaultDependencyResolutionRequest request = new DefaultDependencyResolutionRequest(project,
+                    session.getRepositorySession());
+            request.setResolutionFilter((node, parents) -> node.getDependency() != null
+                    && scopes.contains(node.getDependency().getScope()) && !isChecker(node)
+                    && parents.stream().noneMatch(ProjectClasspath::isChecker));
+            classpath = new ArrayList<>();
+            for (Dependency dependency : dependenciesResolver.resolve(request).getDependencies()) {
+                Artifact artifact = dependency.getArtifact();
+                if (artifact.getFile() != null && scopes.contains(dependency.getScope())
+                        && Boolean.parseBoolean(artifact.getProperty(ArtifactProperties.CONSTITUTES_BUILD_PATH,
+                                Boolean.TRUE.toString()))) {
+                    classpath.add(artifact.getFile().getPath());
+                }
+            }
+            classpath = List.copyOf(classpath);
+            classpaths.put(key, classpath);
+        }
+        return classpath;
+    }
+
+    private static boolean isChecker(DependencyNode node) {
+        return node.getArtifact() != null
+                && "errorprone".equals(node.getArtifact().getProperty(ArtifactProperties.TYPE, null));
+    }
+
+}
@@ -0,0 +1,225 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * A javac plugin running next to Error Prone, which reports on the Error Prone
+ * analysis.
+ * <p>
+ * The plugin is loaded from the annotation processor path inside the compiler
+ * and must therefore not use any Maven API. Its arguments are of the form
+ * {@code <name>=<value>}:
+ * <ul>
+ * <li>{@code timings=<file uri>} writes the Error Prone timings</li>
+ * <li>{@code diagnostics=<file uri>} streams the findings with a
+ * {@link DiagnosticsSink}</li>
+ * <li>{@code consoleLimit=<number>} limits the findings per check passed on to
+ * the console by the {@link DiagnosticsSink}</li>
+ * <li>{@code analyzed=<file uri>} appends the URIs of the analyzed source files
+ * to the file for the {@link IncrementalAnalysis}, appending as the shards of
+ * an analysis share it</li>
+ * <li>{@code events=true} emits a
+ * {@link FlightRecorderEvents.AnalyzedFile flight recorder event} per analyzed
+ * source file</li>
+ * </ul>
+ */
+public class ReporterPlugin implements Plugin {
+
+    static final String NAME = "ErrorProneMavenReporter";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(JavacTask task, String... args) {
+        Path timingsFile = null;
+        Path diagnosticsFile = null;
+        Path analyzedFile = null;
+        int consoleLimit = Integer.MAX_VALUE;
+        boolean events = false;
+        for (String arg : args) {
+            if (arg.startsWith("timings=")) {
+                timingsFile = Path.of(URI.create(arg.substring("timings=".length())));
+            } else if (arg.startsWith("diagnostics=")) {
+                diagnosticsFile = Path.of(URI.create(arg.substring("diagnostics=".length())));
+            } else if (arg.startsWith("analyzed=")) {
+                analyzedFile = Path.of(URI.create(arg.substring("analyzed=".length())));
+            } else if (arg.startsWith("consoleLimit=")) {
+                consoleLimit = Integer.parseInt(arg.substring("consoleLimit=".length()));
+            } else if ("events=true".equals(arg)) {
+                events = true;
+            }
+        }
+        if (events) {
+            task.addTaskListener(new EventsListener());
+        }
+        if (timingsFile != null) {
+            task.addTaskListener(new TimingsListener(task, timingsFile));
+        }
+        if (analyzedFile != null) {
+            task.addTaskListener(new AnalyzedFilesListener(analyzedFile));
+        }
+        if (diagnosticsFile != null) {
+            try {
+                DiagnosticsSink.install(task, diagnosticsFile, consoleLimit);
+            } catch (ReflectiveOperationException | IOException | RuntimeException | LinkageError ex) {
+                System.err.println("warning: [" + NAME + "] Error Prone diagnostics are not streamed to "
+                        + diagnosticsFile + ": " + ex);
+            }
+        }
+    }
+
+    /**
+     * Error Prone analyzes a file once javac has finished analyzing it, so an
+     * event ends when the analysis of its file has finished, and the next one
+     * starts with it, unless javac starts analyzing another file later.
+     */
+    private static class EventsListener implements TaskListener {
+
+        private FlightRecorderEvents.AnalyzedFile event;
+
+        @Override
+        public void started(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.ANALYZE) {
+                event = new FlightRecorderEvents.AnalyzedFile();
+                event.begin();
+            }
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.ANALYZE && event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    if (e.getSourceFile() != null) {
+                        event.file = e.getSourceFile().getName();
+                    }
+                    if (e.getTypeElement() != null) {
+                        event.className = e.getTypeElement().getQualifiedName().toString();
+                    }
+                    event.commit();
+                }
+                event = new FlightRecorderEvents.AnalyzedFile();
+                event.begin();
+            }
+        }
+
+    }
+
+    private static class AnalyzedFilesListener implements TaskListener {
+
+        private final Path analyzedFile;
+        private final Set<URI> analyzedFiles = new LinkedHashSet<>();
+
+        AnalyzedFilesListener(Path analyzedFile) {
+            this.analyzedFile = analyzedFile;
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.ANALYZE && e.getSourceFile() != null) {
+                analyzedFiles.add(e.getSourceFile().toUri());
+            } else if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+                StringBuilder lines = new StringBuilder();
+                analyzedFiles.forEach(uri -> lines.append(uri).append(System.lineSeparator()));
+                try {
+                    // a single write, as the shards of an analysis append concurrently
+                    Files.writeString(analyzedFile, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } catch (IOException ex) {
+                    System.err.println("warning: [" + NAME + "] Failed to write " + analyzedFile + ": " + ex);
+                }
+            }
+        }
+
+    }
+
+    private static class TimingsListener implements TaskListener {
+
+        private final JavacTask task;
+        private final Path timingsFile;
+        private final Set<URI> analyzedFiles = new HashSet<>();
+        private long compilationStart;
+
+        TimingsListener(JavacTask task, Path timingsFile) {
+            this.task = task;
+            this.timingsFile = timingsFile;
+        }
+
+        @Override
+        public void started(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+                compilationStart = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            if (e.getKind() == TaskEvent.Kind.ANALYZE && e.getSourceFile() != null) {
+                analyzedFiles.add(e.getSourceFile().toUri());
+            } else if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+                write(System.nanoTime() - compilationStart);
+            }
+        }
+
+        private void write(long compilationNanos) {
+            Map<String, Long> checks = new TreeMap<>();
+            long errorProneNanos = 0;
+            try {
+                Duration initialization = readErrorProneTimings(task, checks);
+                errorProneNanos = checks.values().stream().reduce(initialization.toNanos(), Long::sum);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+                System.err.println("warning: [" + NAME + "] Error Prone timings are not available: " + ex);
+            }
+            try {
+                new Timings(analyzedFiles.size(), compilationNanos, errorProneNanos, checks).write(timingsFile);
+            } catch (IOException ex) {
+                System.err.println("warning: [" + NAME + "] Failed to write " + timingsFile + ": " + ex);
+            }
+        }
+
+        /**
+         * Reads the time per check from the {@code ErrorProneTimings} of the
+         * compilation, the only place Error Prone keeps them.
+         * <p>
+         * This is the only use of reflection for the timings, and it cannot be
+         * avoided: {@code ErrorProneTimings} is looked up in the javac
+         * {@code Context}, which is not part of the API the plugin is compiled
+         * against, and Error Prone itself is not on the compile classpath of the
+         * plugin. The context is taken from the public {@code getContext()}
+         * method of the javac task implementation, which requires the package
+         * {@code com.sun.tools.javac.api} to be exported.
+         *
+         * @return the initialization time of Error Prone
+         */
+        private static Duration readErrorProneTimings(JavacTask task, Map<String, Long> checks)
+                throws ReflectiveOperationException {
+            Object context = task.getClass().getMethod("getContext").invoke(task);
+            Class<?> timingsClass = Class.forName("com.google.errorprone.ErrorProneTimings", true,
+                    ReporterPlugin.class.getClassLoader());
+            Object timings = timingsClass.getMethod("instance", context.getClass()).invoke(null, context);
+            for (var entry : ((Map<?, ?>) timingsClass.getMethod("timings").invoke(timings)).entrySet()) {
+                checks.put(entry.getKey().toString(), ((Duration) entry.getValue()).toNanos());
+            }
+            return (Duration) timingsClass.getMethod("initializationTime").invoke(timings);
+        }
+
+    }
+
+}
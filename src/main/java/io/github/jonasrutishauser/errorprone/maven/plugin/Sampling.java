@@ -0,0 +1,98 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A deterministic sample of the source files or modules to analyze.
+ * <p>
+ * Everything is assigned to one of {@code ceil(100 / percent)} buckets by a
+ * hash of its name, and the seed selects the bucket to analyze. Consecutive
+ * seeds, such as build numbers, therefore rotate through all buckets, so that
+ * everything is analyzed once within as many builds as there are buckets.
+ *
+ * @param percent
+ *            the share to analyze, rounded to one over the number of buckets
+ * @param seed
+ *            selects the bucket
+ */
+record Sampling(int percent, long seed) {
+
+    /**
+     * @param seed
+     *            a number, or any other string which is hashed
+     */
+    static Sampling of(int percent, String seed) {
+        if (percent < 1 || percent > 100) {
+            throw new IllegalArgumentException("Sampling must be between 1 and 100 percent, but is " + percent);
+        }
+        long value;
+        try {
+            value = Long.parseLong(seed.strip());
+        } catch (NumberFormatException e) {
+            value = seed.hashCode();
+        }
+        return new Sampling(percent, value);
+    }
+
+    int buckets() {
+        return (100 + percent - 1) / percent;
+    }
+
+    int bucket() {
+        return (int) Math.floorMod(seed, (long) buckets());
+    }
+
+    /**
+     * @return the sampling setting, which is part of the
+     *         {@link ConfigurationFingerprint fingerprint}
+     */
+    String getSetting(SamplingScope scope) {
+        return "sampling=" + scope + ':' + bucket() + '/' + buckets();
+    }
+
+    /**
+     * @return the selected bucket, for the log
+     */
+    String describe() {
+        return "bucket " + (bucket() + 1) + " of " + buckets() + " (seed " + seed + ")";
+    }
+
+    /**
+     * @param name
+     *            a name which does not depend on the machine, such as a relative
+     *            path with {@code /} as separator
+     */
+    boolean contains(String name) {
+        // String.hashCode is specified, so the buckets are the same on every machine
+        return Math.floorMod(name.hashCode(), buckets()) == bucket();
+    }
+
+    List<Path> select(Path basedir, List<Path> sourceFiles) {
+        List<Path> selected = new ArrayList<>();
+        for (Path sourceFile : sourceFiles) {
+            if (contains(getName(basedir, sourceFile))) {
+                selected.add(sourceFile);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Writes the names of the sampled source files to the given file, one per
+     * line.
+     */
+    static void write(Path file, Path basedir, List<Path> sampledSourceFiles) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, sampledSourceFiles.stream().map(sourceFile -> getName(basedir, sourceFile)).toList());
+    }
+
+    static String getName(Path basedir, Path sourceFile) {
+        Path path = sourceFile.startsWith(basedir) ? basedir.relativize(sourceFile) : sourceFile;
+        return path.toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+}
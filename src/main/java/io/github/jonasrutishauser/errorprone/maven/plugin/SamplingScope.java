@@ -0,0 +1,13 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+public enum SamplingScope {
+    /**
+     * Samples the source files of every module.
+     */
+    FILES,
+    /**
+     * Samples whole modules, a module is either analyzed completely or not at
+     * all.
+     */
+    MODULES
+}
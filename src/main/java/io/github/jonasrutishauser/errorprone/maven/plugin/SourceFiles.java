@@ -0,0 +1,76 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Finds the Java source files of compile source roots.
+ */
+final class SourceFiles {
+
+    private SourceFiles() {
+    }
+
+    /**
+     * @return the absolute and normalized paths of all {@code .java} files in
+     *         the given roots, sorted
+     */
+    static List<Path> find(Collection<String> compileSourceRoots) throws IOException {
+        Set<Path> sourceFiles = new TreeSet<>();
+        for (String compileSourceRoot : compileSourceRoots) {
+            Path root = Path.of(compileSourceRoot);
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> files = Files.walk(root)) {
+                    files.filter(file -> file.getFileName().toString().endsWith(".java"))
+                            .filter(Files::isRegularFile).map(file -> file.toAbsolutePath().normalize())
+                            .forEach(sourceFiles::add);
+                }
+            }
+        }
+        return List.copyOf(sourceFiles);
+    }
+
+    /**
+     * Splits the given source files into at most {@code count} shards of about
+     * the same total file size. The split only depends on the paths and sizes
+     * of the files.
+     */
+    static List<List<Path>> partition(List<Path> sourceFiles, int count) throws IOException {
+        record Sized(Path file, long size) {
+        }
+        List<Sized> files = new ArrayList<>();
+        for (Path sourceFile : sourceFiles) {
+            files.add(new Sized(sourceFile, Files.size(sourceFile)));
+        }
+        files.sort(Comparator.comparingLong(Sized::size).reversed().thenComparing(Sized::file));
+        int shardCount = Math.max(1, Math.min(count, files.size()));
+        long[] shardSizes = new long[shardCount];
+        List<List<Path>> shards = new ArrayList<>();
+        PriorityQueue<Integer> smallest = new PriorityQueue<>(
+                Comparator.<Integer> comparingLong(shard -> shardSizes[shard]).thenComparing(shard -> shard));
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+            smallest.add(i);
+        }
+        for (Sized file : files) {
+            int shard = smallest.remove();
+            shards.get(shard).add(file.file());
+            shardSizes[shard] += file.size();
+            smallest.add(shard);
+        }
+        for (List<Path> shard : shards) {
+            shard.sort(null);
+        }
+        return shards;
+    }
+
+}
@@ -0,0 +1,85 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The source files of a source set selected for an analysis, and the paths
+ * excluded from it to restrict the analysis to them.
+ * <p>
+ * The settings making the selection, like the sample, are part of the
+ * {@link ConfigurationFingerprint fingerprint}, the excluded paths are not, as
+ * they depend on the machine.
+ */
+final class SourceSelection {
+
+    private final List<String> excludedPaths = new ArrayList<>();
+    private final List<String> settings = new ArrayList<>();
+    private List<Path> sourceFiles;
+    private boolean empty;
+
+    /**
+     * @param excludedPaths
+     *            the configured excluded paths, may be {@code null}
+     */
+    SourceSelection(String excludedPaths) {
+        this.excludedPaths.add(excludedPaths);
+    }
+
+    /**
+     * Excludes the paths matching the given pattern, without changing the
+     * selected source files.
+     *
+     * @param pattern
+     *            the paths to exclude, {@code null} to exclude nothing
+     */
+    void exclude(String pattern) {
+        excludedPaths.add(pattern);
+    }
+
+    void addSetting(String setting) {
+        settings.add(setting);
+    }
+
+    /**
+     * Restricts the selection to the selected ones of the candidates, which
+     * are the {@link #getSourceFiles() selected source files} so far.
+     */
+    void restrict(List<Path> selected, List<Path> candidates) {
+        if (selected.isEmpty()) {
+            empty = true;
+        } else if (selected.size() < candidates.size()) {
+            excludedPaths.add(ExcludedPaths.allExcept(selected));
+        }
+        sourceFiles = selected;
+    }
+
+    /**
+     * Selects no source file at all.
+     */
+    void clear() {
+        empty = true;
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @return the selected source files, or {@code null} if the selection is
+     *         not restricted to some of them
+     */
+    List<Path> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    List<String> getSettings() {
+        return settings;
+    }
+
+    String getExcludedPaths() {
+        return ExcludedPaths.merge(excludedPaths);
+    }
+
+}
@@ -0,0 +1,119 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches directories, including the ones created later, for changed source
+ * files.
+ * <p>
+ * Changes in quick succession, like saving several files, are collected until
+ * no further change occurs for the debounce time.
+ */
+final class SourceWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final long debounceMillis;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * @param roots
+     *            the directories to watch, the ones which do not exist are
+     *            ignored
+     */
+    SourceWatcher(Collection<Path> roots, long debounceMillis) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+        try {
+            for (Path root : roots) {
+                if (Files.isDirectory(root)) {
+                    register(root);
+                }
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of watched directories
+     */
+    int getDirectoryCount() {
+        return directories.size();
+    }
+
+    /**
+     * Waits for changed source files.
+     *
+     * @return the absolute and normalized paths of the changed source files,
+     *         empty if no directory is watched anymore
+     */
+    Set<Path> take() throws IOException, InterruptedException {
+        Set<Path> changedFiles = new TreeSet<>();
+        while (changedFiles.isEmpty() && !directories.isEmpty()) {
+            for (WatchKey key = watchService.take(); key != null; key = watchService.poll(debounceMillis,
+                    TimeUnit.MILLISECONDS)) {
+                collect(key, changedFiles);
+            }
+        }
+        return changedFiles;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Collects the changed source files of an event key, and watches the
+     * directories created in the meantime.
+     */
+    private void collect(WatchKey key, Set<Path> changedFiles) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null || event.kind() == OVERFLOW) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                register(path);
+                changedFiles.addAll(SourceFiles.find(List.of(path.toString())));
+            } else if (path.getFileName().toString().endsWith(".java") && Files.isRegularFile(path)) {
+                changedFiles.add(path.toAbsolutePath().normalize());
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void register(Path root) throws IOException {
+        List<Path> subdirectories;
+        try (Stream<Path> files = Files.walk(root)) {
+            subdirectories = files.filter(Files::isDirectory).toList();
+        }
+        for (Path directory : subdirectories) {
+            directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), directory);
+        }
+    }
+
+}
@@ -1,9 +1,20 @@
 package io.github.jonasrutishauser.errorprone.maven.plugin;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 
+/**
+ * Configures Error Prone for the compilation of the test sources.
+ * <p>
+ * The goal does not require the dependencies to be resolved, the classpath is
+ * only resolved by the {@link ProjectClasspath} if a feature needs it.
+ */
 @Mojo(name = "test-configuration", defaultPhase = LifecyclePhase.PROCESS_TEST_RESOURCES, threadSafe = true)
 public class TestConfigurationMojo extends AbstractConfigurationMojo {
 
@@ -19,4 +30,27 @@ public class TestConfigurationMojo extends AbstractConfigurationMojo {
         return compilingTestOnlyCode;
     }
 
+    @Override
+    protected String getSourceSet() {
+        return "test";
+    }
+
+    @Override
+    protected String getCompilerGoal() {
+        return "testCompile";
+    }
+
+    @Override
+    protected List<String> getCompileSourceRoots(MavenProject project) {
+        return project.getTestCompileSourceRoots();
+    }
+
+    @Override
+    protected List<String> getClasspathElements(MavenProject project) throws MojoExecutionException {
+        List<String> classpathElements = new ArrayList<>();
+        classpathElements.add(project.getBuild().getOutputDirectory());
+        classpathElements.addAll(resolveDependencies(project, ProjectClasspath.TEST_SCOPES));
+        return classpathElements;
+    }
+
 }
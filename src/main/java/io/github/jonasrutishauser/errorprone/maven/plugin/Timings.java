@@ -0,0 +1,73 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Timings of an Error Prone analysis as written by the {@link ReporterPlugin}.
+ * <p>
+ * The timings are stored as properties, the time per check with the prefix
+ * {@value #CHECK_PREFIX}. Like the {@link ReporterPlugin}, this must not use
+ * any Maven API.
+ *
+ * @param files
+ *            number of analyzed source files
+ * @param compilationNanos
+ *            wall time of the whole compilation
+ * @param errorProneNanos
+ *            time spent in Error Prone, including its initialization
+ * @param checks
+ *            time spent per check
+ */
+record Timings(int files, long compilationNanos, long errorProneNanos, Map<String, Long> checks) {
+
+    static final String FILE_NAME = "timings.properties";
+
+    private static final String CHECK_PREFIX = "check.";
+
+    static Timings empty() {
+        return new Timings(0, 0, 0, new HashMap<>());
+    }
+
+    static Timings read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        Map<String, Long> checks = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(CHECK_PREFIX)) {
+                checks.put(name.substring(CHECK_PREFIX.length()), Long.parseLong(properties.getProperty(name)));
+            }
+        }
+        return new Timings(Integer.parseInt(properties.getProperty("files", "0")),
+                Long.parseLong(properties.getProperty("compilationNanos", "0")),
+                Long.parseLong(properties.getProperty("errorProneNanos", "0")), checks);
+    }
+
+    void write(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("files", Integer.toString(files));
+        properties.setProperty("compilationNanos", Long.toString(compilationNanos));
+        properties.setProperty("errorProneNanos", Long.toString(errorProneNanos));
+        checks.forEach((check, nanos) -> properties.setProperty(CHECK_PREFIX + check, Long.toString(nanos)));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, "Error Prone timings");
+        }
+    }
+
+    Timings plus(Timings other) {
+        Map<String, Long> merged = new HashMap<>(checks);
+        other.checks.forEach((name, nanos) -> merged.merge(name, nanos, Long::sum));
+        return new Timings(files + other.files, compilationNanos + other.compilationNanos,
+                errorProneNanos + other.errorProneNanos, merged);
+    }
+
+}
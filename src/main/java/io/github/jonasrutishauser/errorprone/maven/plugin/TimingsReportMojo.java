@@ -0,0 +1,114 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Merges the timings recorded with {@code timings} enabled of all projects in
+ * the reactor into a ranking of the Error Prone checks.
+ */
+@Mojo(name = "timings-report", aggregator = true, threadSafe = true)
+public class TimingsReportMojo extends AbstractMojo {
+
+    /**
+     * Number of checks to log, ordered by the time spent in them.
+     */
+    @Parameter(defaultValue = "20", property = "errorprone.timings.top")
+    private int top;
+
+    /**
+     * The file the merged timings are written to, as properties with the time
+     * per check and the number of projects it ran in.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/errorprone/timings-report.properties", required = true)
+    private File reportFile;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    private PluginDescriptor plugin;
+
+    @Inject
+    private MavenSession session;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        Timings total = Timings.empty();
+        Map<String, Integer> modules = new HashMap<>();
+        int timingsFiles = 0;
+        try {
+            for (MavenProject project : session.getProjects()) {
+                Set<String> projectChecks = new HashSet<>();
+                for (Path workDirectory : WorkDirectories.get(project, plugin)) {
+                    Path file = workDirectory.resolve(Timings.FILE_NAME);
+                    if (Files.isRegularFile(file)) {
+                        Timings timings = Timings.read(file);
+                        projectChecks.addAll(timings.checks().keySet());
+                        total = total.plus(timings);
+                        timingsFiles++;
+                    }
+                }
+                projectChecks.forEach(check -> modules.merge(check, 1, Integer::sum));
+            }
+            if (timingsFiles == 0) {
+                getLog().warn("No Error Prone timings found, enable them with -Derrorprone.timings");
+                return;
+            }
+            List<Map.Entry<String, Long>> ranking = new ArrayList<>(total.checks().entrySet());
+            ranking.sort(Map.Entry.<String, Long> comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            write(total, ranking, modules);
+            log(total, ranking, timingsFiles);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write Error Prone timings report", e);
+        }
+    }
+
+    private void write(Timings total, List<Map.Entry<String, Long>> ranking, Map<String, Integer> modules)
+            throws IOException {
+        Properties report = new Properties();
+        report.setProperty("files", Integer.toString(total.files()));
+        report.setProperty("compilationNanos", Long.toString(total.compilationNanos()));
+        report.setProperty("errorProneNanos", Long.toString(total.errorProneNanos()));
+        for (var entry : ranking) {
+            report.setProperty("check." + entry.getKey() + ".nanos", entry.getValue().toString());
+            report.setProperty("check." + entry.getKey() + ".modules", modules.get(entry.getKey()).toString());
+        }
+        Files.createDirectories(reportFile.toPath().getParent());
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath())) {
+            report.store(writer, "Error Prone timings of the reactor");
+        }
+        getLog().info("Error Prone timings report written to " + reportFile);
+    }
+
+    private void log(Timings total, List<Map.Entry<String, Long>> ranking, int timingsFiles) {
+        getLog().info(String.format(
+                "Error Prone analyzed %d files in %d compilations, taking %d ms of %d ms compile time",
+                total.files(), timingsFiles, total.errorProneNanos() / 1_000_000,
+                total.compilationNanos() / 1_000_000));
+        for (var entry : ranking.subList(0, Math.min(top, ranking.size()))) {
+            getLog().info(String.format("  %-50s %8d ms %5.1f%%", entry.getKey(), entry.getValue() / 1_000_000,
+                    total.errorProneNanos() == 0 ? 0.0 : 100.0 * entry.getValue() / total.errorProneNanos()));
+        }
+    }
+
+}
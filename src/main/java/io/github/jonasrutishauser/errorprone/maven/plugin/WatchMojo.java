@@ -0,0 +1,193 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+
+/**
+ * Watches the compile source roots of the project and analyzes the changed
+ * source files with Error Prone, until the build is interrupted.
+ * <p>
+ * All source files are analyzed once at the start, with the same checks and
+ * options as the compilation. The javac options and the annotation processor
+ * paths are taken from the {@code default-compile} execution of the compiler.
+ * The annotation processors run again, the sources they generated during the
+ * compilation are neither watched nor analyzed. The analyses run inside the
+ * Maven JVM, which needs access to the {@code jdk.compiler} packages, as
+ * described for {@code requireInProcessCompiler}. The checkers stay loaded and
+ * the file manager keeps the classpath open between the analyses, so an
+ * analysis of a few files takes a fraction of a compilation. Changes in quick
+ * succession, like saving several files, are analyzed together.
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends ConfigurationMojo {
+
+    private static final String DEFAULT_EXECUTION = "default-compile";
+
+    /**
+     * Time in milliseconds without further changes after which the changed
+     * source files are analyzed.
+     */
+    @Parameter(defaultValue = "200", property = "errorprone.watch.debounce")
+    private long debounce;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Inject
+    private MavenProject project;
+
+    @Inject
+    private CompilerConfiguration compilerConfiguration;
+
+    @Inject
+    private ProcessorPathResolver processorPathResolver;
+
+    @Inject
+    private ErrorProneClassLoaders classLoaders;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (!CompilerConfiguration.canCompileInProcess()) {
+            throw new MojoExecutionException("The watch goal runs Error Prone in the Maven JVM, add the following"
+                    + " options to .mvn/jvm.config: " + String.join(" ", CompilerConfiguration.getMissingJvmOptions()));
+        }
+        validateChecks();
+        ExecutionConfiguration compilerExecution = getCompilerExecution();
+        Path generatedSourcesDirectory = getGeneratedSourcesDirectory(compilerExecution);
+        List<Path> compileSourceRoots = getCompileSourceRoots(project).stream()
+                .map(root -> Path.of(root).toAbsolutePath().normalize())
+                .filter(root -> !root.startsWith(generatedSourcesDirectory)).toList();
+        ErrorProneClassLoaders.Lease processorClassLoader;
+        List<String> options;
+        try {
+            List<Path> processorPath = processorPathResolver.resolve(session.getRepositorySession(), project,
+                    compilerExecution.getAnnotationProcessorPathDependencies());
+            options = getOptions(compilerExecution, compileSourceRoots);
+            processorClassLoader = classLoaders.get(processorPath);
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to resolve the Error Prone processor path", e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to prepare the Error Prone analysis", e);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (processorClassLoader;
+                StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+                SourceWatcher watcher = new SourceWatcher(compileSourceRoots, debounce)) {
+            analyze(compiler, fileManager, processorClassLoader.classLoader(), options, getSourceFiles().stream()
+                    .filter(sourceFile -> !sourceFile.startsWith(generatedSourcesDirectory)).toList());
+            getLog().info("Watching " + watcher.getDirectoryCount() + " directories for changed source files.");
+            for (Set<Path> changedFiles = watcher.take(); !changedFiles.isEmpty(); changedFiles = watcher.take()) {
+                analyze(compiler, fileManager, processorClassLoader.classLoader(), options, changedFiles);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to watch the source files", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the configuration of the {@code default-compile} execution, or
+     *         else of the first execution of the compiler goal
+     */
+    private ExecutionConfiguration getCompilerExecution() throws MojoExecutionException {
+        List<ExecutionConfiguration> executions = compilerConfiguration.getCompilerExecutions(session, project,
+                getCompilerGoal());
+        return executions.stream().filter(execution -> DEFAULT_EXECUTION.equals(execution.getExecutionId()))
+                .findFirst().or(() -> executions.stream().findFirst())
+                .orElseThrow(() -> new MojoExecutionException("The project has no execution of the "
+                        + CompilerConfiguration.COMPILER_PLUGIN + ":" + getCompilerGoal() + " goal to watch."));
+    }
+
+    private Path getGeneratedSourcesDirectory(ExecutionConfiguration compilerExecution) {
+        String directory = compilerExecution.getParameterValue("generatedSourcesDirectory",
+                "${project.build.directory}/generated-sources/annotations");
+        return Path.of(directory == null ? project.getBuild().getDirectory() + "/generated-sources/annotations"
+                : directory).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Takes the options from the compiler execution. Unlike the
+     * {@link DeferredAnalysis deferred analysis}, the annotation processors run,
+     * as the sources they generate are not watched, and write their sources to
+     * the {@link #getWorkDirectory() work directory}.
+     */
+    private List<String> getOptions(ExecutionConfiguration compilerExecution, List<Path> compileSourceRoots)
+            throws MojoExecutionException, IOException {
+        List<String> compilerArgs = compilerExecution.getCompilerArguments();
+        List<String> options = new ArrayList<>();
+        if (!compilerExecution.hasCompilerArg(CompilePolicy.COMPILER_ARG_PREFIX)) {
+            options.add(resolveCompilePolicy().getCompilerArg());
+        }
+        options.addAll(CompilerConfiguration.COMPILER_ARGS);
+        DeferredAnalysis.JAVAC_OPTIONS.stream().filter(option -> !option.startsWith("-proc:")).forEach(options::add);
+        options.addAll(DeferredAnalysis.getCompilerOptions(compilerExecution, compilerArgs));
+        options.add("-classpath");
+        options.add(String.join(File.pathSeparator, getClasspathElements(project)));
+        // the other source files of the project are attributed from source
+        options.add("-sourcepath");
+        options.add(compileSourceRoots.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        options.add("-s");
+        options.add(Files.createDirectories(getWorkDirectory().resolve("watch-generated-sources")).toString());
+        options.add("-d");
+        options.add(Files.createDirectories(getWorkDirectory().resolve("watch-classes")).toString());
+        options.add("-Xplugin:ErrorProne " + String.join(" ", getFlags()));
+        getLog().debug("Error Prone options: " + options);
+        return options;
+    }
+
+    private void analyze(JavaCompiler compiler, StandardJavaFileManager fileManager, ClassLoader processorClassLoader,
+            List<String> options, Collection<Path> sourceFiles) {
+        long start = System.nanoTime();
+        int[] counts = new int[2];
+        boolean success = compiler.getTask(null,
+                new ErrorProneAnalysis.ProcessorClassLoaderFileManager(fileManager, processorClassLoader),
+                diagnostic -> report(diagnostic, counts), options, null,
+                fileManager.getJavaFileObjectsFromPaths(sourceFiles)).call();
+        getLog().info(String.format(Locale.ROOT, "Analyzed %d source files in %d ms: %d errors, %d warnings%s",
+                sourceFiles.size(), (System.nanoTime() - start) / 1_000_000, counts[0], counts[1],
+                success ? "." : ", the analysis failed."));
+    }
+
+    private void report(Diagnostic<? extends JavaFileObject> diagnostic, int[] counts) {
+        String message = diagnostic.getMessage(Locale.getDefault());
+        if (diagnostic.getSource() != null) {
+            message = diagnostic.getSource().getName() + ":[" + diagnostic.getLineNumber() + ','
+                    + diagnostic.getColumnNumber() + "] " + message;
+        }
+        switch (diagnostic.getKind()) {
+        case ERROR -> {
+            counts[0]++;
+            getLog().error(message);
+        }
+        case WARNING, MANDATORY_WARNING -> {
+            counts[1]++;
+            getLog().warn(message);
+        }
+        default -> getLog().info(message);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Finds the {@link AbstractConfigurationMojo#getWorkDirectory() work
+ * directories} of the source sets of a project for the goals merging their
+ * files over the reactor.
+ * <p>
+ * The configuration goals register their work directory in the project context.
+ * Run on their own, the merging goals take the source set directories of the
+ * {@code outputDirectory} configured for the plugin in the project, which
+ * defaults to {@code ${project.build.directory}/errorprone}.
+ */
+final class WorkDirectories {
+
+    /**
+     * Key of the project context value holding the work directories of the
+     * source sets of the project.
+     */
+    static final String CONTEXT_KEY = WorkDirectories.class.getName();
+
+    private static final String OUTPUT_DIRECTORY = "outputDirectory";
+
+    private WorkDirectories() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static void register(MavenProject project, Path workDirectory) {
+        List<Path> directories = (List<Path>) project.getContextValue(CONTEXT_KEY);
+        if (directories == null) {
+            directories = new ArrayList<>();
+            project.setContextValue(CONTEXT_KEY, directories);
+        }
+        if (!directories.contains(workDirectory)) {
+            directories.add(workDirectory);
+        }
+    }
+
+    /**
+     * @param plugin
+     *            the descriptor of this plugin, to find its configuration in
+     *            the project
+     * @return the registered work directories of the project, or the existing
+     *         source set directories of the configured output directories
+     */
+    @SuppressWarnings("unchecked")
+    static List<Path> get(MavenProject project, PluginDescriptor plugin) throws IOException {
+        List<Path> directories = (List<Path>) project.getContextValue(CONTEXT_KEY);
+        if (directories != null) {
+            return directories;
+        }
+        List<Path> workDirectories = new ArrayList<>();
+        for (Path outputDirectory : getOutputDirectories(project, plugin)) {
+            if (Files.isDirectory(outputDirectory)) {
+                try (Stream<Path> sourceSets = Files.list(outputDirectory)) {
+                    sourceSets.filter(Files::isDirectory).sorted().forEach(workDirectories::add);
+                }
+            }
+        }
+        return workDirectories;
+    }
+
+    /**
+     * @return the output directory configured for the plugin, or the default
+     *         one, and those configured for its executions, as interpolated in
+     *         the project model
+     */
+    private static Set<Path> getOutputDirectories(MavenProject project, PluginDescriptor plugin) {
+        Plugin buildPlugin = plugin == null ? null : project.getPlugin(plugin.getPluginLookupKey());
+        Set<Path> outputDirectories = new LinkedHashSet<>();
+        outputDirectories.add(getOutputDirectory(project, buildPlugin == null ? null : buildPlugin.getConfiguration())
+                .orElseGet(() -> Path.of(project.getBuild().getDirectory(), "errorprone")));
+        if (buildPlugin != null) {
+            for (PluginExecution execution : buildPlugin.getExecutions()) {
+                getOutputDirectory(project, execution.getConfiguration()).ifPresent(outputDirectories::add);
+            }
+        }
+        return outputDirectories;
+    }
+
+    private static Optional<Path> getOutputDirectory(MavenProject project, Object configuration) {
+        Xpp3Dom outputDirectory = configuration instanceof Xpp3Dom dom ? dom.getChild(OUTPUT_DIRECTORY) : null;
+        String value = outputDirectory == null ? null : outputDirectory.getValue();
+        if (value == null || value.isBlank() || value.contains("${")) {
+            return Optional.empty();
+        }
+        return Optional.of(project.getBasedir().toPath().resolve(value.trim()).normalize());
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckCostsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void isEmptyWithoutMeasurements() throws IOException {
+        CheckCosts costs = estimate(10);
+
+        assertTrue(costs.isEmpty());
+        assertEquals(0, costs.totalNanos());
+        assertEquals(List.of(), costs.checksToDisable(0, Set.of()));
+    }
+
+    @Test
+    void normalizesTimingsPerFile() throws IOException {
+        new Timings(4, 0, 0, Map.of("A", 400L, "B", 40L)).write(timingsFile());
+
+        assertEquals(110 * 2, estimate(2).totalNanos());
+        assertEquals(110 * 8, estimate(8).totalNanos());
+    }
+
+    @Test
+    void ignoresTimingsWithoutFiles() throws IOException {
+        new Timings(0, 0, 0, Map.of("A", 400L)).write(timingsFile());
+
+        assertTrue(estimate(2).isEmpty());
+    }
+
+    @Test
+    void keepsSavedCostsOfUnmeasuredChecks() throws IOException {
+        new Timings(1, 0, 0, Map.of("A", 100L, "B", 10L)).write(timingsFile());
+        estimate(1).save(costsFile());
+        new Timings(2, 0, 0, Map.of("B", 40L)).write(timingsFile());
+
+        CheckCosts costs = estimate(3);
+
+        assertFalse(costs.isEmpty());
+        assertEquals((100 + 20) * 3, costs.totalNanos());
+        assertEquals(List.of("A"), costs.checksToDisable(100, Set.of()));
+    }
+
+    @Test
+    void disablesMostExpensiveChecksWithinBudget() throws IOException {
+        new Timings(1, 0, 0, Map.of("A", 50L, "B", 30L, "C", 20L)).write(timingsFile());
+        CheckCosts costs = estimate(1);
+
+        assertEquals(List.of(), costs.checksToDisable(100, Set.of()));
+        assertEquals(List.of("A"), costs.checksToDisable(50, Set.of()));
+        assertEquals(List.of("A", "B"), costs.checksToDisable(20, Set.of()));
+        assertEquals(List.of("B", "C"), costs.checksToDisable(50, Set.of("A")));
+        assertEquals(20, costs.remainingNanos(List.of("A", "B")));
+    }
+
+    private CheckCosts estimate(int sourceFiles) throws IOException {
+        return CheckCosts.estimate(sourceFiles, costsFile(), timingsFile());
+    }
+
+    private Path costsFile() {
+        return directory.resolve(CheckCosts.FILE_NAME);
+    }
+
+    private Path timingsFile() {
+        return directory.resolve(Timings.FILE_NAME);
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.internal.impl.SimpleLocalRepositoryManagerFactory;
+import org.eclipse.aether.repository.LocalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClassDataSharingTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Path> processorPath = new ArrayList<>();
+    private final ClassDataSharing classDataSharing = newClassDataSharing();
+    private final DefaultRepositorySystemSession repositorySession = new DefaultRepositorySystemSession();
+    private final MavenProject project = new MavenProject(new Model());
+
+    @BeforeEach
+    @SuppressWarnings("deprecation")
+    void setLocalRepository() throws Exception {
+        repositorySession.setLocalRepositoryManager(new SimpleLocalRepositoryManagerFactory()
+                .newInstance(repositorySession, new LocalRepository(directory.toFile())));
+    }
+
+    @Test
+    void createsArchiveOnceAndUsesItAfterwards() throws Exception {
+        List<String> creating = classDataSharing.getJvmArguments(repositorySession, project, List.of(), true);
+        assertEquals(1, creating.size());
+        assertTrue(creating.get(0).startsWith("-XX:ArchiveClassesAtExit="), creating.get(0));
+        Path archive = Path.of(creating.get(0).substring("-XX:ArchiveClassesAtExit=".length()));
+        assertTrue(archive.startsWith(directory), archive.toString());
+
+        assertEquals(List.of(), classDataSharing.getJvmArguments(repositorySession, project, List.of(), true));
+
+        Files.writeString(archive, "archive");
+
+        assertEquals(List.of("-XX:SharedArchiveFile=" + archive),
+                classDataSharing.getJvmArguments(repositorySession, project, List.of(), false));
+    }
+
+    @Test
+    void doesNotCreateArchiveIfNotAllowed() {
+        assertEquals(List.of(), classDataSharing.getJvmArguments(repositorySession, project, List.of(), false));
+    }
+
+    @Test
+    void keysArchiveByProcessorPathChecksumsAndRelatedJvmArguments() throws Exception {
+        Path checker = Files.writeString(directory.resolve("checks-1.0-SNAPSHOT.jar"), "first build");
+        processorPath.add(checker);
+        String base = archive(List.of());
+
+        assertEquals(base, archive(List.of("-Xmx1g", "-XX:+UseSerialGC", "-XX:TieredStopAtLevel=1")));
+        assertNotEquals(base, archive(List.of("-XX:+UseCompressedOops")));
+
+        Files.writeString(checker, "rebuilt snapshot");
+
+        assertNotEquals(base, archive(List.of()));
+    }
+
+    private String archive(List<String> jvmArguments) {
+        // a new instance for every call, as an instance hands out an archive to create only once
+        return newClassDataSharing().getJvmArguments(repositorySession, project, jvmArguments, true).get(0);
+    }
+
+    private ClassDataSharing newClassDataSharing() {
+        return new ClassDataSharing(new ProcessorPathResolver(null) {
+            @Override
+            List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project) {
+                return processorPath;
+            }
+        });
+    }
+
+}
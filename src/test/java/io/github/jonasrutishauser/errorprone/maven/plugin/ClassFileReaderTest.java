@@ -0,0 +1,70 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class ClassFileReaderTest {
+
+    @Test
+    void decodesModifiedUtf8() throws IOException {
+        String value = "a\u0000\u00e9\u20ac\ud83d\ude00";
+        ClassFileReader reader = read(value);
+
+        assertEquals(value, reader.utf8(1));
+        assertEquals(ClassFileReader.CONSTANT_UTF8, reader.tag(1));
+        assertEquals(value, reader.classInfo(2));
+        assertEquals(42, reader.value(3));
+    }
+
+    @Test
+    void rejectsMalformedUtf8() throws IOException {
+        byte[] classFile = write("ab");
+        // the first byte of the string, which becomes the start of a two byte sequence without continuation
+        classFile[13] = (byte) 0xC3;
+
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(ByteBuffer.wrap(classFile))
+                .readHeader());
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClassFileReader(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 }))
+                        .readHeader());
+    }
+
+    private static ClassFileReader read(String value) throws IOException {
+        ClassFileReader reader = new ClassFileReader(ByteBuffer.wrap(write(value)));
+        reader.readHeader();
+        return reader;
+    }
+
+    /**
+     * @return the header and the constant pool of a class file with the given
+     *         UTF-8 constant, a class constant with that name and an integer
+     */
+    private static byte[] write(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeInt(61);
+            out.writeShort(4);
+            out.writeByte(ClassFileReader.CONSTANT_UTF8);
+            // writes modified UTF-8 prefixed by its length, like class files
+            out.writeUTF(value);
+            out.writeByte(7);
+            out.writeShort(1);
+            out.writeByte(3);
+            out.writeInt(42);
+        }
+        return bytes.toByteArray();
+    }
+
+}
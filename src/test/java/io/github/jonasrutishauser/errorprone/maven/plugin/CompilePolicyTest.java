@@ -0,0 +1,53 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+
+class CompilePolicyTest {
+
+    @Test
+    void resolvesAutoByErrorProneVersion() {
+        assertEquals(CompilePolicy.BYFILE, CompilePolicy.AUTO.resolve("2.36.0"));
+        assertEquals(CompilePolicy.BYFILE, CompilePolicy.AUTO.resolve("2.41.0"));
+        assertEquals(CompilePolicy.SIMPLE, CompilePolicy.AUTO.resolve("2.35.1"));
+        assertEquals(CompilePolicy.SIMPLE, CompilePolicy.AUTO.resolve("2.36.0-SNAPSHOT"));
+        assertEquals(CompilePolicy.SIMPLE, CompilePolicy.AUTO.resolve(null));
+    }
+
+    @Test
+    void keepsConfiguredPolicy() {
+        assertEquals(CompilePolicy.SIMPLE, CompilePolicy.SIMPLE.resolve("2.41.0"));
+        assertEquals(CompilePolicy.BYFILE, CompilePolicy.BYFILE.resolve("2.10.0"));
+        assertEquals(CompilePolicy.BYFILE, CompilePolicy.BYFILE.resolve(null));
+    }
+
+    @Test
+    void getsErrorProneVersionFromResolvedArtifact() {
+        assertEquals("2.41.0", CompilePolicy.getErrorProneVersion(processorPath("2.41.0")));
+        assertEquals("2.42.0-SNAPSHOT",
+                CompilePolicy.getErrorProneVersion(processorPath("2.42.0-20250101.120000-1")));
+        assertNull(CompilePolicy.getErrorProneVersion(List.of()));
+        assertNull(CompilePolicy.getErrorProneVersion(
+                List.of(new DefaultArtifact("com.example", "error_prone_core", "jar", "2.41.0"))));
+    }
+
+    @Test
+    void requiresResolvedPolicyForCompilerArg() {
+        assertEquals("-XDcompilePolicy=byfile", CompilePolicy.BYFILE.getCompilerArg());
+        assertThrows(IllegalStateException.class, CompilePolicy.AUTO::getCompilerArg);
+    }
+
+    private static List<Artifact> processorPath(String version) {
+        return List.of(new DefaultArtifact("com.google.errorprone", "javac", "jar", "9+181-r4173-1"),
+                new DefaultArtifact("com.google.errorprone", "error_prone_core", "with-dependencies", "jar",
+                        version));
+    }
+
+}
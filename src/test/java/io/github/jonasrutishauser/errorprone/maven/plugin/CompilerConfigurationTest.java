@@ -0,0 +1,132 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompilerConfigurationTest {
+
+    private static final Module COMPILER = ModuleLayer.boot().findModule("jdk.compiler").orElseThrow();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void missingJvmOptionsOfUnnamedModule() {
+        List<String> missing = CompilerConfiguration.getMissingJvmOptions(COMPILER,
+                CompilerConfigurationTest.class.getClassLoader().getUnnamedModule());
+
+        // the tests run without the options, as Maven does without .mvn/jvm.config
+        assertEquals(CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION.stream()
+                .map(jvmArg -> jvmArg.substring("-J".length())).toList(), missing);
+        assertEquals(missing.isEmpty(), CompilerConfiguration.canCompileInProcess());
+        assertEquals(missing, CompilerConfiguration.getMissingJvmOptions());
+    }
+
+    @Test
+    void missingJvmOptionsOfModuleWithQualifiedExports() {
+        // jdk.compiler exports some of its packages to jdk.javadoc, but opens none
+        List<String> missing = CompilerConfiguration.getMissingJvmOptions(COMPILER,
+                ModuleLayer.boot().findModule("jdk.javadoc").orElseThrow());
+
+        assertFalse(missing.contains("--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED"));
+        assertTrue(missing.contains("--add-opens=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED"));
+    }
+
+    @Test
+    void diagnosticsOptionOnlyMissingForDiagnostics() {
+        assertFalse(CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION
+                .contains(CompilerConfiguration.JVM_ARG_DIAGNOSTICS));
+        assertEquals(List.of("--add-opens=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED"),
+                CompilerConfiguration.getMissingDiagnosticsJvmOptions());
+    }
+
+    @Test
+    void everyOptionMissingWithoutCompilerModule() {
+        assertEquals(CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION.size(),
+                CompilerConfiguration.getMissingJvmOptions(null, getClass().getModule()).size());
+    }
+
+    @Test
+    void addsCheckersToAnnotationProcessorPathsByDefault() {
+        SyntheticReactor reactor = new SyntheticReactor(1, directory);
+        MavenProject project = reactor.getProjects().get(0);
+        MojoExecution compile = reactor.getExecutionPlan(project).get(1);
+        compile.getConfiguration().removeChild(getIndex(compile.getConfiguration(), "annotationProcessorPaths"));
+        CompilerConfiguration compilerConfiguration = new CompilerConfiguration(new ProcessorPathResolver(null) {
+            @Override
+            List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project) {
+                throw new AssertionError("resolved without being enabled");
+            }
+        }, new ClassDataSharing(null), null);
+        compilerConfiguration.setCompilerExecutions(project, reactor.getExecutionPlan(project));
+
+        compilerConfiguration.configure(reactor.getSession(project), project, new CompilerSettings(
+                "errorprone.compile.argument", List.of(), false, CompilePolicy.SIMPLE, null, null, false, false));
+
+        assertFalse(getValues(compile.getConfiguration().getChild("compilerArgs")).contains("-processorpath"));
+        assertEquals(List.of("nullaway", "error_prone_core"),
+                Arrays.stream(compile.getConfiguration().getChild("annotationProcessorPaths").getChildren())
+                        .map(path -> path.getChild("artifactId").getValue()).toList());
+    }
+
+    @Test
+    void passesResolvedProcessorPath() {
+        SyntheticReactor reactor = new SyntheticReactor(1, directory);
+        MavenProject project = reactor.getProjects().get(0);
+        MojoExecution compile = reactor.getExecutionPlan(project).get(1);
+        MojoExecution testCompile = reactor.getExecutionPlan(project).get(3);
+        compile.getConfiguration().removeChild(getIndex(compile.getConfiguration(), "annotationProcessorPaths"));
+        List<Path> processorPath = List.of(directory.resolve("error_prone_core.jar"),
+                directory.resolve("nullaway.jar"));
+        CompilerConfiguration compilerConfiguration = new CompilerConfiguration(new ProcessorPathResolver(null) {
+            @Override
+            List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project) {
+                return processorPath;
+            }
+        }, new ClassDataSharing(null), null);
+        compilerConfiguration.setCompilerExecutions(project, reactor.getExecutionPlan(project));
+        Dependency reporter = new Dependency();
+        reporter.setGroupId("io.github.jonasrutishauser.maven");
+        reporter.setArtifactId("errorprone-maven-plugin");
+        Path reporterFile = directory.resolve("errorprone-maven-plugin.jar");
+
+        compilerConfiguration.configure(reactor.getSession(project), project, new CompilerSettings(
+                "errorprone.compile.argument", List.of(), false, CompilePolicy.SIMPLE, reporter, reporterFile, false,
+                true));
+
+        List<String> compilerArgs = getValues(compile.getConfiguration().getChild("compilerArgs"));
+        int index = compilerArgs.indexOf("-processorpath");
+        assertEquals(processorPath.get(0) + File.pathSeparator + processorPath.get(1) + File.pathSeparator
+                + reporterFile, compilerArgs.get(index + 1));
+        assertEquals(null, compile.getConfiguration().getChild("annotationProcessorPaths"));
+        // the compiler plugin resolves the annotation processor paths of the execution anyway
+        assertFalse(getValues(testCompile.getConfiguration().getChild("compilerArgs")).contains("-processorpath"));
+        assertEquals(List.of("lombok", "mapstruct-processor", "error_prone_core", "nullaway",
+                "errorprone-maven-plugin"),
+                Arrays.stream(testCompile.getConfiguration().getChild("annotationProcessorPaths").getChildren())
+                        .map(path -> path.getChild("artifactId").getValue()).toList());
+    }
+
+    private static int getIndex(Xpp3Dom configuration, String name) {
+        return Arrays.asList(configuration.getChildren()).indexOf(configuration.getChild(name));
+    }
+
+    private static List<String> getValues(Xpp3Dom parent) {
+        return Arrays.stream(parent.getChildren()).map(Xpp3Dom::getValue).toList();
+    }
+
+}
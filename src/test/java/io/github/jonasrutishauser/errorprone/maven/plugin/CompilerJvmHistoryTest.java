@@ -0,0 +1,101 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompilerJvmHistoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void choosesNothingWithoutHistory() throws IOException {
+        CompilerJvmHistory history = CompilerJvmHistory.update(directory);
+
+        assertEquals(List.of(), history.getBuilds());
+        assertEquals(List.of(), history.chooseJvmArguments(List.of()));
+    }
+
+    @Test
+    void foldsGcLogsIntoHistory() throws IOException {
+        Files.write(directory.resolve("gc-1.log"), List.of(
+                "[0.012s] Using Serial",
+                "[1.500s] GC(0) Pause Young (Allocation Failure) 100M->20M(256M) 12.500ms",
+                "[3.000s] GC(1) Pause Young (Allocation Failure) 150M->30M(256M) 7.500ms",
+                "[4.250s]  def new generation   total 9216K, used 40960K",
+                "[4.250s]  tenured generation   total 20480K, used 10240K"));
+        Files.write(directory.resolve("gc-2.log"), List.of(
+                "[2.000s] GC(0) Pause Young (G1 Evacuation Pause) 50M->10M(128M) 5.000ms"));
+
+        CompilerJvmHistory history = CompilerJvmHistory.update(directory);
+
+        assertEquals(List.of(new CompilerJvmHistory.Build(150 * 1024, 25, 6250, 4250)), history.getBuilds());
+        assertFalse(Files.exists(directory.resolve("gc-1.log")));
+        assertEquals(history.getBuilds(), CompilerJvmHistory.update(directory).getBuilds());
+    }
+
+    @Test
+    void keepsLastBuilds() throws IOException {
+        for (int i = 1; i <= 7; i++) {
+            Files.write(directory.resolve("gc-" + i + ".log"),
+                    List.of("[1.000s] GC(0) Pause Young " + i + "M->1M(64M) 1.000ms"));
+            CompilerJvmHistory.update(directory);
+        }
+
+        List<CompilerJvmHistory.Build> builds = CompilerJvmHistory.update(directory).getBuilds();
+
+        assertEquals(5, builds.size());
+        assertEquals(7 * 1024, builds.get(4).peakHeapKb());
+    }
+
+    @Test
+    void sizesJvmFromPeakHeap() throws IOException {
+        Files.write(directory.resolve("gc-1.log"),
+                List.of("[30.000s] GC(0) Pause Young 200M->50M(512M) 100.000ms"));
+        CompilerJvmHistory history = CompilerJvmHistory.update(directory);
+
+        assertEquals(List.of("-Xmx448m", "-XX:+UseSerialGC"), history.chooseJvmArguments(List.of()));
+        assertEquals(List.of("-XX:+UseSerialGC"), history.chooseJvmArguments(List.of("-Xmx2g")));
+        assertEquals(List.of("-Xmx448m"), history.chooseJvmArguments(List.of("-XX:+UseG1GC")));
+    }
+
+    @Test
+    void usesMoreHeapParallelGcAndC1ForShortRunsWithHighGcOverhead() throws IOException {
+        Files.write(directory.resolve("gc-1.log"),
+                List.of("[10.000s] GC(0) Pause Full 600M->500M(700M) 2000.000ms"));
+        CompilerJvmHistory history = CompilerJvmHistory.update(directory);
+
+        assertEquals(List.of("-Xmx1856m", "-XX:+UseParallelGC", "-XX:TieredStopAtLevel=1"),
+                history.chooseJvmArguments(List.of()));
+    }
+
+    @Test
+    void logsToDirectoryWithColon() throws Exception {
+        Path historyDirectory = Files.createDirectories(directory.resolve("C:history"));
+        String logArgument = CompilerJvmHistory.update(historyDirectory).getLogArgument().orElseThrow();
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                logArgument, "-version").redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), UTF_8);
+
+        assertEquals(0, process.waitFor(), output);
+        assertEquals(1, CompilerJvmHistory.update(historyDirectory).getBuilds().size());
+    }
+
+    @Test
+    void skipsLogInDirectoryWithQuote() throws IOException {
+        Path historyDirectory = Files.createDirectories(directory.resolve("quoted\"history"));
+
+        assertEquals(Optional.empty(), CompilerJvmHistory.update(historyDirectory).getLogArgument());
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.junit.jupiter.api.Test;
+
+class ConfigurationFingerprintTest {
+
+    private final ConfigurationFingerprint fingerprint = new ConfigurationFingerprint(
+            new ProcessorPathResolver(null) {
+                @Override
+                List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project) {
+                    return List.of();
+                }
+            });
+
+    @Test
+    void includesCompilerArgumentsAndProcessorPaths() throws Exception {
+        String base = compute(project("a"), configuration(List.of("-parameters"), "1.0"));
+
+        assertEquals(base, compute(project("a"), configuration(List.of("-parameters"), "1.0")));
+        assertNotEquals(base, compute(project("a"), configuration(List.of("--enable-preview"), "1.0")));
+        assertNotEquals(base, compute(project("a"), configuration(List.of("-parameters"), "2.0")));
+    }
+
+    @Test
+    void ignoresBaseDirectoryAndJvmArguments() throws Exception {
+        String base = compute(project("a"),
+                configuration(List.of("-Aoutput=" + new File("a", "out").getAbsolutePath(), "-J-Xmx1g"), "1.0"));
+
+        assertEquals(base, compute(project("b"),
+                configuration(List.of("-Aoutput=" + new File("b", "out").getAbsolutePath(), "-J-Xmx2g"), "1.0")));
+    }
+
+    @Test
+    void includesSourceSelection() throws Exception {
+        String base = compute(project("a"), configuration(List.of(), "1.0"));
+
+        assertNotEquals(base, compute(project("a"), configuration(List.of(), "1.0"), "excludeGeneratedSources"));
+        assertNotEquals(compute(project("a"), configuration(List.of(), "1.0"), "sampling=FILES:0/4"),
+                compute(project("a"), configuration(List.of(), "1.0"), "sampling=FILES:1/4"));
+    }
+
+    private String compute(MavenProject project, Xpp3Dom configuration, String... sourceSelection)
+            throws IOException, DependencyResolutionException {
+        @SuppressWarnings("deprecation")
+        MavenSession session = new MavenSession(null, null, new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+        session.setCurrentProject(project);
+        Plugin plugin = new Plugin();
+        plugin.setArtifactId("maven-compiler-plugin");
+        MojoExecution execution = new MojoExecution(plugin, "compile", "default-compile");
+        execution.setConfiguration(configuration);
+        return fingerprint.compute(null, project, CompilePolicy.SIMPLE, List.of("-Xep:Check"),
+                List.of(sourceSelection), List.of(new ExecutionConfiguration(session, execution)));
+    }
+
+    private static MavenProject project(String directory) {
+        MavenProject project = new MavenProject(new Model());
+        project.setFile(new File(directory, "pom.xml").getAbsoluteFile());
+        return project;
+    }
+
+    private static Xpp3Dom configuration(List<String> compilerArgs, String processorVersion) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom args = new Xpp3Dom("compilerArgs");
+        for (String compilerArg : compilerArgs) {
+            args.addChild(value("arg", compilerArg));
+        }
+        configuration.addChild(args);
+        Xpp3Dom paths = new Xpp3Dom("annotationProcessorPaths");
+        Xpp3Dom path = new Xpp3Dom("path");
+        path.addChild(value("groupId", "com.example"));
+        path.addChild(value("artifactId", "processor"));
+        path.addChild(value("version", processorVersion));
+        paths.addChild(path);
+        configuration.addChild(paths);
+        return configuration;
+    }
+
+    private static Xpp3Dom value(String name, String value) {
+        Xpp3Dom dom = new Xpp3Dom(name);
+        dom.setValue(value);
+        return dom;
+    }
+
+}
@@ -0,0 +1,126 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiagnosticsReportMojoTest {
+
+    @TempDir
+    Path directory;
+
+    private SyntheticReactor reactor;
+    private Path reportFile;
+    private DiagnosticsReportMojo mojo;
+
+    @BeforeEach
+    void createMojo() {
+        reactor = new SyntheticReactor(2, directory);
+        for (MavenProject project : reactor.getProjects()) {
+            project.getBuild().setDirectory(directory.resolve(project.getArtifactId()).resolve("target").toString());
+        }
+        reportFile = directory.resolve("target/errorprone/diagnostics-report.sarif");
+        mojo = new DiagnosticsReportMojo();
+        SyntheticReactor.set(mojo, "reportFile", reportFile.toFile());
+        SyntheticReactor.set(mojo, "session", reactor.getSession());
+    }
+
+    @Test
+    void mergesFindingsOfAllProjects() throws Exception {
+        write(reactor.getProjects().get(0), "main",
+                new Finding("MissingOverride", "WARNING", "file:///A.java", 3, 5, "expected @Override").toJson(),
+                "not a finding");
+        write(reactor.getProjects().get(1), "test",
+                new Finding("DeadException", "ERROR", "file:///B.java", 7, -1, "not thrown").toJson(),
+                new Finding("Namespace:Check", "NOTE", null, -1, -1, "\"quoted\"").toJson());
+
+        mojo.execute();
+
+        assertEquals(List.of( //
+                "{", //
+                "  \"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\",", //
+                "  \"version\": \"2.1.0\",", //
+                "  \"runs\": [{", //
+                "    \"tool\": {\"driver\": {\"name\": \"Error Prone\", "
+                        + "\"informationUri\": \"https://errorprone.info\"}},", //
+                "    \"results\": [", //
+                "      {\"ruleId\": \"MissingOverride\", \"level\": \"warning\", "
+                        + "\"message\": {\"text\": \"expected @Override\"}, \"locations\": [{\"physicalLocation\": "
+                        + "{\"artifactLocation\": {\"uri\": \"file:///A.java\"}, "
+                        + "\"region\": {\"startLine\": 3, \"startColumn\": 5}}}]},", //
+                "      {\"ruleId\": \"DeadException\", \"level\": \"error\", "
+                        + "\"message\": {\"text\": \"not thrown\"}, \"locations\": [{\"physicalLocation\": "
+                        + "{\"artifactLocation\": {\"uri\": \"file:///B.java\"}, "
+                        + "\"region\": {\"startLine\": 7}}}]},", //
+                "      {\"ruleId\": \"Namespace:Check\", \"level\": \"note\", "
+                        + "\"message\": {\"text\": \"\\\"quoted\\\"\"}}", //
+                "    ]", //
+                "  }]", //
+                "}"), Files.readAllLines(reportFile));
+    }
+
+    @Test
+    void readsRegisteredAndConfiguredWorkDirectories() throws Exception {
+        PluginDescriptor pluginDescriptor = new PluginDescriptor();
+        pluginDescriptor.setGroupId("io.github.jonasrutishauser.maven");
+        pluginDescriptor.setArtifactId("errorprone-maven-plugin");
+        SyntheticReactor.set(mojo, "plugin", pluginDescriptor);
+        MavenProject registered = reactor.getProjects().get(0);
+        WorkDirectories.register(registered, directory.resolve("registered/main"));
+        write(directory.resolve("registered/main"), new Finding("Registered", "NOTE", null, -1, -1, "").toJson());
+        write(registered, "main", new Finding("Default", "NOTE", null, -1, -1, "").toJson());
+        MavenProject configured = reactor.getProjects().get(1);
+        configured.setFile(directory.resolve(configured.getArtifactId()).resolve("pom.xml").toFile());
+        Plugin plugin = new Plugin();
+        plugin.setGroupId(pluginDescriptor.getGroupId());
+        plugin.setArtifactId(pluginDescriptor.getArtifactId());
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom outputDirectory = new Xpp3Dom("outputDirectory");
+        outputDirectory.setValue(directory.resolve("configured").toString());
+        configuration.addChild(outputDirectory);
+        plugin.setConfiguration(configuration);
+        configured.getBuild().addPlugin(plugin);
+        write(directory.resolve("configured/test"), new Finding("Configured", "NOTE", null, -1, -1, "").toJson());
+        write(configured, "test", new Finding("Default", "NOTE", null, -1, -1, "").toJson());
+
+        mojo.execute();
+
+        String report = String.join("\n", Files.readAllLines(reportFile));
+        assertTrue(report.contains("\"Registered\""), report);
+        assertTrue(report.contains("\"Configured\""), report);
+        assertFalse(report.contains("\"Default\""), report);
+    }
+
+    @Test
+    void writesEmptyReportWithoutDiagnostics() throws Exception {
+        mojo.execute();
+
+        List<String> report = Files.readAllLines(reportFile);
+        assertEquals("    \"results\": [", report.get(5));
+        assertEquals("    ]", report.get(6));
+        assertFalse(String.join("\n", report).contains("ruleId"));
+    }
+
+    private static void write(MavenProject project, String sourceSet, String... lines) throws Exception {
+        write(Path.of(project.getBuild().getDirectory(), "errorprone", sourceSet), lines);
+    }
+
+    private static void write(Path workDirectory, String... lines) throws Exception {
+        Path file = workDirectory.resolve(Finding.FILE_NAME);
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of(lines));
+    }
+
+}
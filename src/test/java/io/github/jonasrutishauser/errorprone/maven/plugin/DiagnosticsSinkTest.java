@@ -0,0 +1,163 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+
+class DiagnosticsSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void passesFindingsOnUpToConsoleLimit() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> passedOn = new ArrayList<>();
+        StringWriter warnings = new StringWriter();
+        Path file = directory.resolve("errorprone").resolve(Finding.FILE_NAME);
+        DiagnosticsSink sink = new DiagnosticsSink(file, 1, passedOn::add, null, null, null,
+                new PrintWriter(warnings));
+
+        sink.report(finding(Diagnostic.Kind.WARNING, "[MissingOverride] first"));
+        sink.report(finding(Diagnostic.Kind.WARNING, "[MissingOverride] second"));
+        sink.report(finding(Diagnostic.Kind.WARNING, "[MissingOverride] third"));
+        sink.report(finding(Diagnostic.Kind.ERROR, "[DeadException] first"));
+        sink.report(finding(Diagnostic.Kind.ERROR, "[DeadException] second"));
+        sink.report(new TestDiagnostic(Diagnostic.Kind.WARNING, "compiler.warn.raw.class.use", "raw type"));
+        sink.finished(new TaskEvent(TaskEvent.Kind.COMPILATION));
+
+        assertEquals(List.of("[MissingOverride] first", "[DeadException] first", "[DeadException] second",
+                "raw type"), passedOn.stream().map(diagnostic -> diagnostic.getMessage(Locale.ROOT)).toList());
+        assertEquals("warning: [" + ReporterPlugin.NAME + "] 1 more findings of [DeadException] are written to "
+                + file + System.lineSeparator() + "warning: [" + ReporterPlugin.NAME
+                + "] 2 more findings of [MissingOverride] are written to " + file + System.lineSeparator(),
+                warnings.toString());
+        List<Finding> findings = Files.readAllLines(file).stream().map(Finding::parse).toList();
+        assertEquals(5, findings.size());
+        assertEquals(new Finding("MissingOverride", "WARNING", null, 3, 5, "first"), findings.get(0));
+        assertEquals(new Finding("DeadException", "ERROR", null, 3, 5, "second"), findings.get(4));
+    }
+
+    @Test
+    void passesOtherDiagnosticsOn() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> passedOn = new ArrayList<>();
+        Path file = directory.resolve(Finding.FILE_NAME);
+        DiagnosticsSink sink = new DiagnosticsSink(file, 0, passedOn::add, null, null, null,
+                new PrintWriter(new StringWriter()));
+
+        sink.report(new TestDiagnostic(Diagnostic.Kind.WARNING, "compiler.warn.error.prone", "no check name"));
+        sink.report(new TestDiagnostic(Diagnostic.Kind.NOTE, null, "[MissingOverride] without code"));
+        sink.finished(new TaskEvent(TaskEvent.Kind.COMPILATION));
+
+        assertEquals(2, passedOn.size());
+        assertEquals(List.of(), Files.readAllLines(file));
+    }
+
+    @Test
+    void printsCountsLikeJavac() throws Exception {
+        Path source = Files.writeString(directory.resolve("Broken.java"),
+                "class Broken { java.util.List raw; int first = \"a\"; int second = \"b\"; }");
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        CompilerConfiguration.JVM_ARGS_STRONG_ENCAPSULATION
+                .forEach(jvmArg -> command.add(jvmArg.substring("-J".length())));
+        command.add(CompilerConfiguration.JVM_ARG_DIAGNOSTICS.substring("-J".length()));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Compilation.class.getName());
+        command.add(directory.resolve(Finding.FILE_NAME).toString());
+        command.add(source.toString());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), UTF_8);
+
+        assertEquals(1, process.waitFor(), output);
+        assertTrue(output.contains("incompatible types"), output);
+        assertTrue(output.contains("found raw type"), output);
+        assertTrue(output.contains("1 error" + System.lineSeparator()), output);
+        assertTrue(output.contains("only showing the first 1 errors, of 2 total"), output);
+        assertTrue(output.contains("1 warning" + System.lineSeparator()), output);
+    }
+
+    private static Diagnostic<JavaFileObject> finding(Diagnostic.Kind kind, String message) {
+        return new TestDiagnostic(kind, "compiler." + (kind == Diagnostic.Kind.ERROR ? "err" : "warn")
+                + ".error.prone", message);
+    }
+
+    record TestDiagnostic(Kind getKind, String getCode, String message) implements Diagnostic<JavaFileObject> {
+
+        @Override
+        public JavaFileObject getSource() {
+            return null;
+        }
+
+        @Override
+        public long getPosition() {
+            return NOPOS;
+        }
+
+        @Override
+        public long getStartPosition() {
+            return NOPOS;
+        }
+
+        @Override
+        public long getEndPosition() {
+            return NOPOS;
+        }
+
+        @Override
+        public long getLineNumber() {
+            return 3;
+        }
+
+        @Override
+        public long getColumnNumber() {
+            return 5;
+        }
+
+        @Override
+        public String getMessage(Locale locale) {
+            return message;
+        }
+
+    }
+
+    /**
+     * Compiles with the sink installed and without a diagnostic listener, so
+     * javac leaves printing the counts to the sink. Runs in a separate JVM, as
+     * the sink needs the compiler module to be open.
+     */
+    static final class Compilation {
+
+        public static void main(String[] args) throws Exception {
+            javax.tools.JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+                JavacTask task = (JavacTask) compiler.getTask(null, fileManager, null,
+                        List.of("-Xlint:rawtypes", "-Xmaxerrs", "1", "-d", Path.of(args[0]).getParent().toString()),
+                        null, fileManager.getJavaFileObjects(args[1]));
+                DiagnosticsSink.install(task, Path.of(args[0]), 1);
+                System.exit(task.call() ? 0 : 1);
+            }
+        }
+
+    }
+
+}
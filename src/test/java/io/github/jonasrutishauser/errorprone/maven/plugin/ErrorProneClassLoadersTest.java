@@ -0,0 +1,92 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ErrorProneClassLoadersTest {
+
+    @TempDir
+    Path directory;
+
+    private final ErrorProneClassLoaders classLoaders = new ErrorProneClassLoaders();
+
+    @AfterEach
+    void close() {
+        classLoaders.close();
+    }
+
+    @Test
+    void sharesClassLoaderOfSameProcessorPath() throws IOException {
+        try (ErrorProneClassLoaders.Lease first = classLoaders.get(processorPath(0));
+                ErrorProneClassLoaders.Lease second = classLoaders.get(processorPath(0));
+                ErrorProneClassLoaders.Lease other = classLoaders.get(processorPath(1))) {
+            assertSame(first.classLoader(), second.classLoader());
+            assertNotSame(first.classLoader(), other.classLoader());
+        }
+    }
+
+    @Test
+    void closesEvictedClassLoadersWhenUnused() throws IOException {
+        for (int i = 0; i < ErrorProneClassLoaders.MAXIMUM_SIZE + 2; i++) {
+            classLoaders.get(processorPath(i)).close();
+        }
+
+        assertEquals(ErrorProneClassLoaders.MAXIMUM_SIZE, classLoaders.size());
+    }
+
+    @Test
+    void keepsEvictedClassLoadersUntilReleased() throws IOException {
+        List<ErrorProneClassLoaders.Lease> leases = new ArrayList<>();
+        for (int i = 0; i < ErrorProneClassLoaders.MAXIMUM_SIZE + 2; i++) {
+            leases.add(classLoaders.get(processorPath(i)));
+        }
+
+        assertEquals(ErrorProneClassLoaders.MAXIMUM_SIZE + 2, classLoaders.size());
+
+        leases.get(0).close();
+        leases.get(0).close();
+
+        assertEquals(ErrorProneClassLoaders.MAXIMUM_SIZE + 1, classLoaders.size());
+
+        leases.forEach(ErrorProneClassLoaders.Lease::close);
+
+        assertEquals(ErrorProneClassLoaders.MAXIMUM_SIZE, classLoaders.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedClassLoader() throws IOException {
+        ClassLoader first;
+        try (ErrorProneClassLoaders.Lease lease = classLoaders.get(processorPath(0))) {
+            first = lease.classLoader();
+        }
+        for (int i = 1; i < ErrorProneClassLoaders.MAXIMUM_SIZE; i++) {
+            classLoaders.get(processorPath(i)).close();
+        }
+        classLoaders.get(processorPath(0)).close();
+        classLoaders.get(processorPath(ErrorProneClassLoaders.MAXIMUM_SIZE)).close();
+
+        try (ErrorProneClassLoaders.Lease lease = classLoaders.get(processorPath(0))) {
+            assertSame(first, lease.classLoader());
+        }
+    }
+
+    private List<Path> processorPath(int index) throws IOException {
+        Path jar = directory.resolve("checker-" + index + ".jar");
+        if (!Files.exists(jar)) {
+            Files.write(jar, new byte[index + 1]);
+        }
+        return List.of(jar);
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class ExcludedPathsTest {
+
+    private static final Path ROOT = Path.of("project").toAbsolutePath();
+
+    @Test
+    void escapesSpecialCharacters() {
+        Path special = ROOT.resolve("src (1)/a.b+c$[d]{2}^e.java");
+        Path similar = ROOT.resolve("src (1)/aXb+c$[d]{2}^e.java");
+
+        String pattern = ExcludedPaths.anyOf(List.of(special));
+
+        assertTrue(matches(pattern, special));
+        assertFalse(matches(pattern, similar));
+    }
+
+    @Test
+    void escapesWhitespace() {
+        Path file = ROOT.resolve("my sources/A B.java");
+
+        String pattern = ExcludedPaths.anyOf(List.of(file));
+
+        assertFalse(pattern.chars().anyMatch(Character::isWhitespace), pattern);
+        assertTrue(matches(pattern, file));
+    }
+
+    @Test
+    void matchesExactlyTheGivenFiles() {
+        Path a = ROOT.resolve("src/a/A.java");
+        Path b = ROOT.resolve("src/a/B.java");
+        Path c = ROOT.resolve("src/b/C.java");
+        Path nested = ROOT.resolve("src/a/A.java/D.java");
+
+        String pattern = ExcludedPaths.anyOf(List.of(a, b, nested));
+
+        assertTrue(matches(pattern, a));
+        assertTrue(matches(pattern, b));
+        assertTrue(matches(pattern, nested));
+        assertFalse(matches(pattern, c));
+        assertFalse(matches(pattern, ROOT.resolve("src/a")));
+    }
+
+    @Test
+    void allExceptMatchesTheOtherFiles() {
+        Path a = ROOT.resolve("src/A.java");
+        Path b = ROOT.resolve("src/B.java");
+
+        String pattern = ExcludedPaths.allExcept(List.of(a));
+
+        assertFalse(matches(pattern, a));
+        assertTrue(matches(pattern, b));
+        assertTrue(matches(ExcludedPaths.allExcept(List.of()), a));
+    }
+
+    @Test
+    void anyUnderMatchesFilesInTheDirectories() {
+        Path generated = ROOT.resolve("target/generated-sources");
+
+        String pattern = ExcludedPaths.anyUnder(List.of(generated));
+
+        assertTrue(matches(pattern, generated.resolve("a/A.java")));
+        assertFalse(matches(pattern, ROOT.resolve("target/generated-sources-other/A.java")));
+        assertNull(ExcludedPaths.anyUnder(List.of()));
+    }
+
+    @Test
+    void mergeIgnoresBlankPatterns() {
+        assertNull(ExcludedPaths.merge(Arrays.asList(null, " ")));
+        assertEquals("a", ExcludedPaths.merge(Arrays.asList("a", null)));
+        assertEquals("(?:a)|(?:b)", ExcludedPaths.merge(List.of("a", "b")));
+    }
+
+    private static boolean matches(String pattern, Path file) {
+        return Pattern.matches(pattern, ExcludedPaths.toPath(file));
+    }
+
+}
@@ -0,0 +1,55 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class FindingTest {
+
+    @Test
+    void parsesItsJson() {
+        Finding finding = new Finding("MissingOverride", "WARNING", "file:///src/A.java", 12, 3,
+                "toString overrides method in Object; expected @Override");
+
+        assertEquals("{\"check\": \"MissingOverride\", \"severity\": \"WARNING\", \"file\": \"file:///src/A.java\", "
+                + "\"line\": 12, \"column\": 3, "
+                + "\"message\": \"toString overrides method in Object; expected @Override\"}", finding.toJson());
+        assertEquals(finding, Finding.parse(finding.toJson()));
+    }
+
+    @Test
+    void parsesMissingFileAndPosition() {
+        Finding finding = new Finding("Namespace:Check", "ERROR", null, -1, -1, "");
+
+        assertEquals(finding, Finding.parse(finding.toJson()));
+    }
+
+    @Test
+    void escapesSpecialCharacters() {
+        Finding finding = new Finding("Check", "NOTE", "file:///C:/src/\"quoted\".java", 1, 1,
+                "line\nbreak\r\ttab \\ backslash \"quote\" \u0001 control, ] and }");
+
+        assertEquals("\"line\\nbreak\\r\\ttab \\\\ backslash \\\"quote\\\" \\u0001 control, ] and }\"",
+                Finding.quote(finding.message()));
+        assertEquals(finding, Finding.parse(finding.toJson()));
+    }
+
+    @Test
+    void unescapesOtherEscapes() {
+        assertEquals(new Finding("Check", "NOTE", null, 1, 2, "\b\f/\u00e9"), Finding.parse(
+                "{\"check\": \"Check\", \"severity\": \"NOTE\", \"file\": null, \"line\": 1, \"column\": 2, "
+                        + "\"message\": \"\\b\\f\\/\\u00E9\"}"));
+    }
+
+    @Test
+    void ignoresLinesWhichAreNoFinding() {
+        assertNull(Finding.parse(""));
+        assertNull(Finding.parse("{\"check\": \"Check\"}"));
+        assertNull(Finding.parse("{\"check\": \"Check\", \"severity\": \"NOTE\", \"file\": null, \"line\": x, "
+                + "\"column\": 2, \"message\": \"\"}"));
+        assertNull(Finding.parse("{\"check\": \"Check\", \"severity\": \"NOTE\", \"file\": null, \"line\": 1, "
+                + "\"column\": 2, \"message\": \"unterminated}"));
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.execution.ProjectExecutionEvent;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class FlightRecorderEventsTest {
+
+    private static final String PREFIX = "io.github.jonasrutishauser.errorprone.";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsConfigurationOfProject() throws Exception {
+        SyntheticReactor reactor = new SyntheticReactor(1, directory.resolve("reactor"));
+        MavenProject project = reactor.getProjects().get(0);
+        CompilerConfiguration compilerConfiguration = new CompilerConfiguration(new ProcessorPathResolver(null),
+                new ClassDataSharing(null), null);
+        ErrorproneConfigurationProjectExecutionListener listener = new ErrorproneConfigurationProjectExecutionListener(
+                () -> compilerConfiguration, IncrementalAnalysis::new, () -> null);
+        ConfigurationMojo mojo = reactor.createMojo(project, compilerConfiguration);
+        Path file = directory.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("Configuration", "CompilerConfiguration", "ExecutionPlan", "ForkDecision")) {
+                recording.enable(PREFIX + name);
+            }
+            recording.start();
+            listener.beforeProjectLifecycleExecution(
+                    new ProjectExecutionEvent(reactor.getSession(project), project, reactor.getExecutionPlan(project)));
+            mojo.execute();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, List<RecordedEvent>> events = new TreeMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            events.computeIfAbsent(event.getEventType().getName().substring(PREFIX.length()),
+                    name -> new java.util.ArrayList<>()).add(event);
+        }
+        assertEquals(List.of("CompilerConfiguration", "Configuration", "ExecutionPlan", "ForkDecision"),
+                List.copyOf(events.keySet()));
+        RecordedEvent executionPlan = events.get("ExecutionPlan").get(0);
+        assertEquals(project.getId(), executionPlan.getString("project"));
+        assertEquals(6, executionPlan.getInt("mojoExecutions"));
+        assertEquals(2, executionPlan.getInt("compilerExecutions"));
+        RecordedEvent configuration = events.get("Configuration").get(0);
+        assertEquals(project.getId(), configuration.getString("project"));
+        assertEquals("main", configuration.getString("sourceSet"));
+        assertEquals(true, configuration.getBoolean("analyze"));
+        assertEquals(2, events.get("CompilerConfiguration").get(0).getInt("compilerExecutions"));
+        assertEquals(List.of("default-compile", "default-testCompile"), events.get("ForkDecision").stream()
+                .map(event -> event.getString("execution")).sorted().toList());
+    }
+
+}
@@ -0,0 +1,181 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IncrementalAnalysisTest {
+
+    private static final String KEY = "key";
+
+    @TempDir
+    Path directory;
+
+    private final IncrementalAnalysis incrementalAnalysis = new IncrementalAnalysis();
+    private final MavenProject project = new MavenProject();
+
+    @Test
+    void analyzesAllFilesWithoutState() throws IOException {
+        List<Path> sourceFiles = List.of(write("A", "class A {}"), write("B", "class B {}"));
+
+        assertEquals(Set.copyOf(sourceFiles), analyze(sourceFiles));
+    }
+
+    @Test
+    void analyzesChangedFilesAndTheirDependents() throws IOException {
+        Path a = write("A", "class A {}");
+        Path b = write("B", "class B { A a; }");
+        Path c = write("C", "class C {}");
+        commit(List.of(a, b, c));
+
+        write("A", "class A { int changed; }");
+
+        assertEquals(Set.of(a, b), analyze(List.of(a, b, c)));
+    }
+
+    @Test
+    void analyzesDependentsOfSubtypes() throws IOException {
+        Path a = write("A", "class A {}");
+        Path b = write("B", "class B extends A {}");
+        Path c = write("C", "class C { B b; }");
+        Path d = write("D", "class D { C c; }");
+        commit(List.of(a, b, c, d));
+
+        write("A", "class A { void changed() {} }");
+
+        assertEquals(Set.of(a, b, c), analyze(List.of(a, b, c, d)));
+    }
+
+    @Test
+    void analyzesDependentsOfRemovedFiles() throws IOException {
+        Path a = write("A", "class A {}");
+        Path b = write("B", "class B { A a; }");
+        Path c = write("C", "class C {}");
+        commit(List.of(a, b, c));
+
+        Files.delete(a);
+
+        assertEquals(Set.of(b), analyze(List.of(b, c)));
+    }
+
+    @Test
+    void analyzesAllFilesWithChangedConfiguration() throws IOException {
+        List<Path> sourceFiles = List.of(write("A", "class A {}"), write("B", "class B {}"));
+        commit(sourceFiles);
+
+        assertEquals(Set.copyOf(sourceFiles),
+                incrementalAnalysis.getFilesToAnalyze(project, directory.resolve("work"), "other", sourceFiles));
+    }
+
+    @Test
+    void analyzesFilesAgainWhichWereNotAnalyzed() throws IOException {
+        Path a = write("A", "class A {}");
+        Path b = write("B", "class B {}");
+        commit(List.of(a, b));
+
+        write("A", "class A { int changed; }");
+        analyze(List.of(a, b));
+        incrementalAnalysis.commit(project);
+
+        assertEquals(Set.of(a), analyze(List.of(a, b)));
+    }
+
+    @Test
+    void storesInputsOnlyIfAllFilesWereAnalyzed() throws IOException {
+        Path a = write("A", "class A {}");
+        Path b = write("B", "class B {}");
+        Path workDirectory = directory.resolve("work");
+
+        assertFalse(incrementalAnalysis.isUnchanged(project, workDirectory, KEY, List.of(a, b)));
+        writeAnalyzed(List.of(a));
+        incrementalAnalysis.commit(project);
+
+        assertFalse(incrementalAnalysis.isUnchanged(project, workDirectory, KEY, List.of(a, b)));
+        writeAnalyzed(List.of(a, b));
+        incrementalAnalysis.commit(project);
+
+        assertTrue(incrementalAnalysis.isUnchanged(project, workDirectory, KEY, List.of(a, b)));
+    }
+
+    @Test
+    void replaysFindingsOfSkippedFiles() throws IOException {
+        Path a = write("A", "class A {}");
+        Path b = write("B", "class B {}");
+        Path workDirectory = directory.resolve("work");
+        Path diagnosticsFile = workDirectory.resolve(Finding.FILE_NAME);
+        Finding findingA = new Finding("Check", "WARNING", a.toUri().toString(), 1, 1, "a");
+        Finding findingB = new Finding("Check", "WARNING", b.toUri().toString(), 1, 1, "b");
+        analyze(List.of(a, b));
+        incrementalAnalysis.replayFindings(project, workDirectory, KEY, List.of(), diagnosticsFile);
+        Files.write(diagnosticsFile, List.of(findingA.toJson(), findingB.toJson()));
+        writeAnalyzed(List.of(a, b));
+        incrementalAnalysis.commit(project);
+
+        write("A", "class A { int changed; }");
+        analyze(List.of(a, b));
+
+        assertEquals(List.of(findingB),
+                incrementalAnalysis.replayFindings(project, workDirectory, KEY, List.of(b), diagnosticsFile));
+
+        Files.write(diagnosticsFile, List.of(findingA.toJson()));
+        incrementalAnalysis.commit(project);
+
+        assertEquals(List.of(findingA.toJson(), findingB.toJson()), Files.readAllLines(diagnosticsFile));
+        assertEquals(List.of(findingB),
+                incrementalAnalysis.replayFindings(project, workDirectory, KEY, List.of(b), diagnosticsFile));
+    }
+
+    @Test
+    void storesFindingsOfEverySourceSet() throws IOException {
+        Path a = write("A", "class A {}");
+        Path mainDirectory = directory.resolve("work/main");
+        Path testDirectory = directory.resolve("work/test");
+        Finding mainFinding = new Finding("Check", "WARNING", a.toUri().toString(), 1, 1, "main");
+        Finding testFinding = new Finding("Check", "WARNING", a.toUri().toString(), 1, 1, "test");
+        for (Path workDirectory : List.of(mainDirectory, testDirectory)) {
+            incrementalAnalysis.getFilesToAnalyze(project, workDirectory, KEY, List.of(a));
+            incrementalAnalysis.replayFindings(project, workDirectory, KEY, List.of(),
+                    workDirectory.resolve(Finding.FILE_NAME));
+        }
+        Files.write(mainDirectory.resolve(Finding.FILE_NAME), List.of(mainFinding.toJson()));
+        Files.write(testDirectory.resolve(Finding.FILE_NAME), List.of(testFinding.toJson()));
+        incrementalAnalysis.commit(project);
+
+        assertEquals(List.of(mainFinding), incrementalAnalysis.replayFindings(project, mainDirectory, KEY,
+                List.of(a), mainDirectory.resolve(Finding.FILE_NAME)));
+        assertEquals(List.of(testFinding), incrementalAnalysis.replayFindings(project, testDirectory, KEY,
+                List.of(a), testDirectory.resolve(Finding.FILE_NAME)));
+    }
+
+    private Set<Path> analyze(List<Path> sourceFiles) throws IOException {
+        return incrementalAnalysis.getFilesToAnalyze(project, directory.resolve("work"), KEY, sourceFiles);
+    }
+
+    private void commit(List<Path> sourceFiles) throws IOException {
+        analyze(sourceFiles);
+        writeAnalyzed(sourceFiles);
+        incrementalAnalysis.commit(project);
+    }
+
+    private void writeAnalyzed(List<Path> sourceFiles) throws IOException {
+        Files.write(directory.resolve("work").resolve(IncrementalAnalysis.ANALYZED_FILE),
+                sourceFiles.stream().map(sourceFile -> sourceFile.toUri().toString()).toList());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path sourceFile = directory.resolve("src").resolve(name + ".java").toAbsolutePath().normalize();
+        Files.createDirectories(sourceFile.getParent());
+        return Files.writeString(sourceFile, content);
+    }
+
+}
@@ -0,0 +1,142 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectExecutionEvent;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelConfigurationTest {
+
+    private static final int PROJECTS = 200;
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    Path directory;
+
+    private SyntheticReactor reactor;
+    private ErrorproneConfigurationProjectExecutionListener listener;
+    private final Map<MavenProject, ConfigurationMojo> mojos = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @BeforeEach
+    void createReactor() {
+        reactor = new SyntheticReactor(PROJECTS, directory);
+        CompilerConfiguration compilerConfiguration = new CompilerConfiguration(new ProcessorPathResolver(null),
+                new ClassDataSharing(null), null);
+        IncrementalAnalysis incrementalAnalysis = new IncrementalAnalysis();
+        DeferredAnalysis deferredAnalysis = new DeferredAnalysis(new ProcessorPathResolver(null), incrementalAnalysis,
+                new ErrorProneClassLoaders(), new ClassDataSharing(null), null);
+        listener = new ErrorproneConfigurationProjectExecutionListener(() -> compilerConfiguration,
+                () -> incrementalAnalysis, () -> deferredAnalysis);
+        for (MavenProject project : reactor.getProjects()) {
+            mojos.put(project, reactor.createMojo(project, compilerConfiguration));
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void configuresEveryProjectOnce() throws Exception {
+        for (MavenProject project : reactor.getProjects()) {
+            build(project);
+        }
+
+        for (MavenProject project : reactor.getProjects()) {
+            assertTrue(project.getProperties().getProperty("errorprone.compile.argument")
+                    .startsWith("-Xplugin:ErrorProne "), project.getId());
+            for (Xpp3Dom configuration : getCompilerConfigurations(project)) {
+                assertEquals(1, count(configuration.getChild("compilerArgs"), "${errorprone.compile.argument}"));
+                assertEquals(1, count(configuration.getChild("compilerArgs"), "-XDcompilePolicy=simple"));
+                assertEquals(1, count(configuration.getChild("compilerArgs"), "-parameters"));
+                List<String> processorArtifactIds = getProcessorArtifactIds(configuration);
+                assertEquals(4, processorArtifactIds.size());
+                assertEquals(Set.of("lombok", "mapstruct-processor", "error_prone_core", "nullaway"),
+                        Set.copyOf(processorArtifactIds));
+            }
+        }
+    }
+
+    @Test
+    void concurrentBuildsConfigureLikeSequentialBuild() throws Exception {
+        for (MavenProject project : reactor.getProjects()) {
+            build(project);
+        }
+        List<String> expected = reactor.getCompilerConfigurations();
+        Map<MavenProject, String> expectedArguments = getArguments();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            reactor.resetCompilerConfigurations();
+            List<Callable<Void>> builds = new ArrayList<>();
+            for (MavenProject project : reactor.getProjects()) {
+                builds.add(() -> {
+                    build(project);
+                    return null;
+                });
+            }
+            for (Future<Void> build : executor.invokeAll(builds)) {
+                build.get();
+            }
+
+            assertEquals(expected, reactor.getCompilerConfigurations());
+            assertEquals(expectedArguments, getArguments());
+        }
+    }
+
+    private void build(MavenProject project) throws Exception {
+        MavenSession session = reactor.getSession(project);
+        // the current project is thread local, the builders set it on the builder thread
+        session.setCurrentProject(project);
+        ProjectExecutionEvent event = new ProjectExecutionEvent(session, project, reactor.getExecutionPlan(project));
+        listener.beforeProjectLifecycleExecution(event);
+        mojos.get(project).execute();
+        listener.afterProjectExecutionSuccess(event);
+    }
+
+    private Map<MavenProject, String> getArguments() {
+        Map<MavenProject, String> arguments = new LinkedHashMap<>();
+        for (MavenProject project : reactor.getProjects()) {
+            arguments.put(project, project.getProperties().getProperty("errorprone.compile.argument"));
+        }
+        return arguments;
+    }
+
+    private List<Xpp3Dom> getCompilerConfigurations(MavenProject project) {
+        return reactor.getExecutionPlan(project).stream()
+                .filter(execution -> "maven-compiler-plugin".equals(execution.getArtifactId()))
+                .map(MojoExecution::getConfiguration).toList();
+    }
+
+    private static List<String> getProcessorArtifactIds(Xpp3Dom configuration) {
+        return Arrays.stream(configuration.getChild("annotationProcessorPaths").getChildren())
+                .map(path -> path.getChild("artifactId").getValue()).toList();
+    }
+
+    private static long count(Xpp3Dom compilerArgs, String value) {
+        return Arrays.stream(compilerArgs.getChildren()).filter(arg -> value.equals(arg.getValue())).count();
+    }
+
+}
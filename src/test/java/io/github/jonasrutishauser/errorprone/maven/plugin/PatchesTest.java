@@ -0,0 +1,84 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PatchesTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void mergesPatchesRelativeToRootSortedByPath() throws IOException {
+        Path b = write("b/target/errorprone/main/patch", List.of(
+                "--- ../../../../src/main/java/B.java",
+                "+++ ../../../../src/main/java/B.java",
+                "@@ -1 +1,2 @@",
+                " class B {",
+                "+  @Override"));
+        Path a = write("a/target/errorprone/main/patch", List.of(
+                "--- ../../../../src/main/java/A.java\t2024-01-01",
+                "+++ ../../../../src/main/java/A.java\t2024-01-01",
+                "@@ -2 +2 @@",
+                "-  int a;",
+                "+  final int a;"));
+
+        String merged = Patches.merge(root, List.of(b, a));
+
+        assertEquals(String.join("\n",
+                "--- a/a/src/main/java/A.java",
+                "+++ b/a/src/main/java/A.java",
+                "@@ -2 +2 @@",
+                "-  int a;",
+                "+  final int a;",
+                "--- a/b/src/main/java/B.java",
+                "+++ b/b/src/main/java/B.java",
+                "@@ -1 +1,2 @@",
+                " class B {",
+                "+  @Override") + "\n", merged);
+        assertEquals(2, Patches.countFiles(merged));
+    }
+
+    @Test
+    void keepsNoNewlineMarkersAndHeaderLikeLinesInsideHunks() throws IOException {
+        List<String> hunk = List.of(
+                "@@ -1,3 +1,3 @@",
+                "--- removed line starting like a header",
+                "+++ added line starting like a header",
+                " int x;",
+                "-}",
+                "\\ No newline at end of file",
+                "+}",
+                "\\ No newline at end of file");
+        List<String> lines = new ArrayList<>(List.of("--- ../src/C.java", "+++ ../src/C.java"));
+        lines.addAll(hunk);
+        lines.addAll(List.of("--- ../src/D.java", "+++ ../src/D.java", "@@ -1 +1 @@", "-a", "+b"));
+        List<String> expected = new ArrayList<>(List.of("--- a/src/C.java", "+++ b/src/C.java"));
+        expected.addAll(hunk);
+        expected.addAll(List.of("--- a/src/D.java", "+++ b/src/D.java", "@@ -1 +1 @@", "-a", "+b"));
+
+        String merged = Patches.merge(root, List.of(write("patch", lines)));
+
+        assertEquals(String.join("\n", expected) + "\n", merged);
+        assertEquals(2, Patches.countFiles(merged));
+    }
+
+    @Test
+    void mergesNothingWithoutChanges() throws IOException {
+        assertEquals("", Patches.merge(root, List.of(write("patch", List.of()))));
+    }
+
+    private Path write(String directory, List<String> lines) throws IOException {
+        Path patchFile = Files.createDirectories(root.resolve(directory)).resolve(Patches.FILE_NAME);
+        return Files.write(patchFile, lines);
+    }
+
+}
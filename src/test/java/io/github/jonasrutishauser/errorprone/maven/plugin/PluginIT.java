@@ -1,6 +1,10 @@
 package io.github.jonasrutishauser.errorprone.maven.plugin;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import org.junit.jupiter.api.extension.RegisterExtension;
 
@@ -42,4 +46,68 @@ public class PluginIT {
                 .assertLogText("BUILD FAILURE");
     }
 
+    @MavenPluginTest
+    void diagnostics() throws Exception {
+        File basedir = resources.getBasedir("extension");
+
+        maven.forProject(basedir).withCliOption("-Derrorprone.diagnostics").execute("clean", "verify")
+                .assertLogText("assigning @Nullable expression to @NonNull field").assertLogText("BUILD FAILURE");
+        Path diagnostics = basedir.toPath().resolve("target/errorprone/main/diagnostics.jsonl");
+        assertTrue(Files.readString(diagnostics).contains("{\"check\": \"NullAway\", \"severity\": \"ERROR\""));
+    }
+
+    @MavenPluginTest
+    void deferred() throws Exception {
+        File basedir = resources.getBasedir("deferred");
+
+        maven.forProject(basedir).execute("clean", "verify")
+                .assertLogText("Error Prone analysis is deferred until the compiler has finished.")
+                .assertLogText("assigning @Nullable expression to @NonNull field")
+                .assertLogText("Deferred Error Prone analysis failed for").assertLogText("BUILD FAILURE");
+    }
+
+    @MavenPluginTest
+    void incremental() throws Exception {
+        File basedir = resources.getBasedir("incremental");
+
+        maven.forProject(basedir).execute("clean", "verify")
+                .assertLogText("Analyzing 1 of 1 source files").assertLogText("BUILD SUCCESS");
+        maven.forProject(basedir).execute("verify")
+                .assertLogText("Analyzing 0 of 1 source files").assertLogText("BUILD SUCCESS");
+    }
+
+    @MavenPluginTest
+    void skipUnchangedAbi() throws Exception {
+        File basedir = resources.getBasedir("incremental");
+
+        maven.forProject(basedir).withCliOption("-Derrorprone.skipUnchangedAbi").execute("clean", "verify")
+                .assertLogText("Source files or classpath ABI changed since the last successful analysis.")
+                .assertLogText("BUILD SUCCESS");
+        maven.forProject(basedir).withCliOption("-Derrorprone.skipUnchangedAbi").execute("verify")
+                .assertLogText("Source files and classpath ABI are unchanged since the last successful analysis")
+                .assertLogText("BUILD SUCCESS");
+    }
+
+    @MavenPluginTest
+    void unknownCheckName() throws Exception {
+        File basedir = resources.getBasedir("unknown-check");
+
+        maven.forProject(basedir).execute("clean", "verify")
+                .assertLogText("Unknown Error Prone check names: nullaway (did you mean NullAway?)")
+                .assertNoLogText("Compiling 1 source file").assertLogText("BUILD FAILURE");
+    }
+
+    @MavenPluginTest
+    void patch() throws Exception {
+        File basedir = resources.getBasedir("patch");
+
+        maven.forProject(basedir).withCliOption("-Derrorprone.patchChecks=MissingOverride")
+                .execute("clean", "verify", "errorprone:merge-patches")
+                .assertLogText("Merged 2 Error Prone patches changing 2 files").assertLogText("BUILD SUCCESS");
+        String patch = Files.readString(basedir.toPath().resolve("target/errorprone/error-prone.patch"));
+        assertTrue(patch.startsWith("--- a/a/src/main/java/io/github/jonasrutishauser/maven/test/a/SomeA.java\n"));
+        assertTrue(patch.contains("+++ b/b/src/main/java/io/github/jonasrutishauser/maven/test/b/SomeB.java\n"));
+        assertTrue(patch.contains("+    @Override\n"));
+    }
+
 }
@@ -0,0 +1,53 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class SamplingTest {
+
+    private final Path basedir = Path.of("project").toAbsolutePath();
+    private final List<Path> sourceFiles = IntStream.range(0, 100)
+            .mapToObj(i -> basedir.resolve(Path.of("src", "main", "java", "C" + i + ".java"))).toList();
+
+    @Test
+    void consecutiveSeedsRotateThroughAllBuckets() {
+        Sampling first = Sampling.of(25, "40");
+        List<Path> selected = new ArrayList<>();
+        for (int seed = 40; seed < 44; seed++) {
+            Sampling sampling = Sampling.of(25, Integer.toString(seed));
+            assertEquals(4, sampling.buckets());
+            assertEquals(seed % 4, sampling.bucket());
+            selected.addAll(sampling.select(basedir, sourceFiles));
+        }
+
+        assertEquals(sourceFiles.size(), selected.size());
+        assertEquals(Set.copyOf(sourceFiles), new HashSet<>(selected));
+        assertEquals(first.select(basedir, sourceFiles), Sampling.of(25, "44").select(basedir, sourceFiles));
+    }
+
+    @Test
+    void hashesOtherSeeds() {
+        assertEquals(Math.floorMod("main".hashCode(), 10), Sampling.of(10, "main").bucket());
+    }
+
+    @Test
+    void namesAreRelativeToBaseDirectory() {
+        assertEquals("src/main/java/C0.java", Sampling.getName(basedir, sourceFiles.get(0)));
+    }
+
+    @Test
+    void rejectsInvalidPercentage() {
+        assertThrows(IllegalArgumentException.class, () -> Sampling.of(0, "1"));
+        assertThrows(IllegalArgumentException.class, () -> Sampling.of(101, "1"));
+    }
+
+}
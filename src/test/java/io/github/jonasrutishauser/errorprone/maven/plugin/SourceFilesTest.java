@@ -0,0 +1,69 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourceFilesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void partitionsEvenly() throws IOException {
+        Path a = write("A", 100);
+        Path b = write("B", 100);
+        Path c = write("C", 100);
+        Path d = write("D", 100);
+
+        assertEquals(List.of(List.of(a, c), List.of(b, d)), SourceFiles.partition(List.of(a, b, c, d), 2));
+    }
+
+    @Test
+    void partitionsUnevenlyBySize() throws IOException {
+        Path a = write("A", 300);
+        Path b = write("B", 100);
+        Path c = write("C", 100);
+        Path d = write("D", 100);
+        Path e = write("E", 50);
+
+        assertEquals(List.of(List.of(a), List.of(b, d), List.of(c, e)),
+                SourceFiles.partition(List.of(a, b, c, d, e), 3));
+    }
+
+    @Test
+    void usesOneShardPerFileIfThereAreMoreShardsThanFiles() throws IOException {
+        Path a = write("A", 10);
+        Path b = write("B", 20);
+
+        assertEquals(List.of(List.of(b), List.of(a)), SourceFiles.partition(List.of(a, b), 8));
+    }
+
+    @Test
+    void usesOneShardWithoutFiles() throws IOException {
+        assertEquals(List.of(List.of()), SourceFiles.partition(List.of(), 4));
+    }
+
+    @Test
+    void findsJavaFilesSorted() throws IOException {
+        Path b = write("b/B", 1);
+        Path a = write("a/A", 1);
+        Files.writeString(directory.resolve("src").resolve("README.md"), "");
+
+        assertEquals(List.of(a, b), SourceFiles.find(List.of(directory.resolve("src").toString(),
+                directory.resolve("missing").toString())));
+    }
+
+    private Path write(String name, int size) throws IOException {
+        Path sourceFile = directory.resolve("src").resolve(name + ".java").toAbsolutePath().normalize();
+        Files.createDirectories(sourceFile.getParent());
+        return Files.writeString(sourceFile, "x".repeat(size));
+    }
+
+}
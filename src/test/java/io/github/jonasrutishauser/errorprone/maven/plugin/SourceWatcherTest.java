@@ -0,0 +1,59 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourceWatcherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void collectsChangedSourceFiles() throws Exception {
+        Path root = Files.createDirectories(directory.resolve("java"));
+        Path a = write(root.resolve("A.java"));
+        write(root.resolve("B.java"));
+
+        try (SourceWatcher watcher = new SourceWatcher(List.of(root, directory.resolve("missing")), 200)) {
+            assertEquals(1, watcher.getDirectoryCount());
+            write(a);
+            write(root.resolve("notes.txt"));
+
+            assertEquals(Set.of(a), assertTimeoutPreemptively(TIMEOUT, watcher::take));
+        }
+    }
+
+    @Test
+    void watchesCreatedDirectories() throws Exception {
+        Path root = Files.createDirectories(directory.resolve("java"));
+
+        try (SourceWatcher watcher = new SourceWatcher(List.of(root), 200)) {
+            Path b = write(Files.createDirectories(root.resolve("p")).resolve("B.java"));
+
+            assertEquals(Set.of(b), assertTimeoutPreemptively(TIMEOUT, watcher::take));
+            assertEquals(2, watcher.getDirectoryCount());
+
+            Path c = write(root.resolve("p").resolve("C.java"));
+
+            assertEquals(Set.of(c), assertTimeoutPreemptively(TIMEOUT, watcher::take));
+        }
+    }
+
+    private static Path write(Path sourceFile) throws IOException {
+        return Files.writeString(sourceFile, "class " + sourceFile.getFileName() + " {}" + System.nanoTime())
+                .toAbsolutePath().normalize();
+    }
+
+}
@@ -0,0 +1,289 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * A reactor of synthetic projects with compiler configurations as they are
+ * found in large multi-module builds: inherited compiler arguments using
+ * expressions, existing annotation processor paths and many Error Prone checks.
+ * <p>
+ * Used by the tests and by the benchmarks of the {@code benchmark} profile.
+ */
+final class SyntheticReactor {
+
+    private static final int INHERITED_COMPILER_ARGS = 25;
+    private static final int MANAGED_DEPENDENCIES = 60;
+    private static final int CHECKS = 80;
+    private static final int NAMESPACES = 8;
+    private static final int OPTIONS_PER_NAMESPACE = 12;
+
+    private final Path buildDirectory;
+    private final MavenSession session;
+    private final Map<MavenProject, MavenSession> projectSessions = new LinkedHashMap<>();
+    private final List<MavenProject> projects = new ArrayList<>();
+    private final Map<MavenProject, List<MojoExecution>> executionPlans = new LinkedHashMap<>();
+    private final Map<MojoExecution, Xpp3Dom> compilerConfigurations = new LinkedHashMap<>();
+    // the processor path is not resolved, its checksums are not part of the benchmark
+    private final ConfigurationFingerprint configurationFingerprint = new ConfigurationFingerprint(
+            new ProcessorPathResolver(null) {
+                @Override
+                List<Path> resolve(RepositorySystemSession repositorySession, MavenProject project) {
+                    return List.of();
+                }
+            });
+
+    SyntheticReactor(int size) {
+        this(size, createTempDirectory());
+    }
+
+    /**
+     * @param buildDirectory
+     *            directory of the build directories of the projects
+     */
+    @SuppressWarnings("deprecation")
+    SyntheticReactor(int size, Path buildDirectory) {
+        this.buildDirectory = buildDirectory;
+        for (int i = 0; i < size; i++) {
+            MavenProject project = createProject(i);
+            projects.add(project);
+            executionPlans.put(project, createExecutionPlan(i));
+        }
+        session = new MavenSession(null, null, new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+        session.setProjects(projects);
+        for (MavenProject project : projects) {
+            MavenSession projectSession = session.clone();
+            projectSession.setCurrentProject(project);
+            projectSessions.put(project, projectSession);
+        }
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("synthetic-reactor");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    MavenSession getSession() {
+        return session;
+    }
+
+    /**
+     * The session of a single project, as the builders pass it to the project
+     * execution listeners and mojos. The current project is only set for the
+     * calling thread.
+     */
+    MavenSession getSession(MavenProject project) {
+        return projectSessions.get(project);
+    }
+
+    List<MavenProject> getProjects() {
+        return projects;
+    }
+
+    List<MojoExecution> getExecutionPlan(MavenProject project) {
+        return executionPlans.get(project);
+    }
+
+    /**
+     * The compiler configurations of the whole reactor, in reactor order.
+     */
+    List<String> getCompilerConfigurations() {
+        return compilerConfigurations.keySet().stream().map(execution -> execution.getConfiguration().toString())
+                .toList();
+    }
+
+    /**
+     * Restores the compiler configurations as they were before any Error Prone
+     * configuration was applied.
+     */
+    void resetCompilerConfigurations() {
+        compilerConfigurations.forEach((execution, template) -> execution.setConfiguration(new Xpp3Dom(template)));
+    }
+
+    ConfigurationMojo createMojo(MavenProject project, CompilerConfiguration compilerConfiguration) {
+        ConfigurationMojo mojo = new ConfigurationMojo();
+        mojo.setLog(new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "synthetic-reactor")));
+        Map<String, CheckSeverity> checks = new LinkedHashMap<>();
+        for (int i = 0; i < CHECKS; i++) {
+            checks.put("Check" + i, CheckSeverity.values()[i % CheckSeverity.values().length]);
+        }
+        Map<String, Map<String, String>> namespacedOptions = new LinkedHashMap<>();
+        for (int i = 0; i < NAMESPACES; i++) {
+            Map<String, String> options = new LinkedHashMap<>();
+            for (int j = 0; j < OPTIONS_PER_NAMESPACE; j++) {
+                options.put("Option" + j, "com.example.bench.module" + i + ".value" + j);
+            }
+            namespacedOptions.put("Namespace" + i, options);
+        }
+        set(mojo, "enabled", true);
+        set(mojo, "checks", checks);
+        set(mojo, "namespacedOptions", namespacedOptions);
+        set(mojo, "options", new LinkedHashMap<>(Map.of("Option", "value", "Other", "true")));
+        set(mojo, "arguments", new ArrayList<>(List.of("-XepDisableWarningsInGeneratedCode")));
+        set(mojo, "propertyName", "errorprone.compile.argument");
+        set(mojo, "profile", CheckProfile.FULL.name());
+        set(mojo, "shards", 1);
+        set(mojo, "sampling", 100);
+        set(mojo, "compilePolicy", CompilePolicy.SIMPLE.name());
+        set(mojo, "session", getSession(project));
+        set(mojo, "project", project);
+        set(mojo, "compilerConfiguration", compilerConfiguration);
+        set(mojo, "configurationFingerprint", configurationFingerprint);
+        set(mojo, "outputDirectory",
+                new File(buildDirectory.toFile(), project.getArtifactId() + File.separator + "errorprone"));
+        return mojo;
+    }
+
+    /**
+     * Sets a field of a mojo as Maven does when injecting its parameters and
+     * components.
+     */
+    static void set(Object mojo, String name, Object value) {
+        for (Class<?> type = mojo.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(mojo, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // declared by a superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + mojo.getClass());
+    }
+
+    private MavenProject createProject(int index) {
+        Model model = new Model();
+        model.setGroupId("com.example.bench");
+        model.setArtifactId("module-" + index);
+        model.setVersion("1.0.0-SNAPSHOT");
+        Properties properties = model.getProperties();
+        properties.setProperty("maven.compiler.release", "21");
+        properties.setProperty("lombok.version", "1.18.42");
+        properties.setProperty("mapstruct.version", "1.6.3");
+        properties.setProperty("lint", "all,-processing");
+        for (int i = 0; i < INHERITED_COMPILER_ARGS; i++) {
+            properties.setProperty("compiler.option" + i, "value" + i);
+        }
+        model.addDependency(dependency("com.uber.nullaway", "nullaway", null, "errorprone"));
+        model.addDependency(dependency("org.jspecify", "jspecify", null, "jar"));
+        if (index > 0) {
+            model.addDependency(dependency("com.example.bench", "module-" + (index - 1), "1.0.0-SNAPSHOT", "jar"));
+        }
+        DependencyManagement dependencyManagement = new DependencyManagement();
+        dependencyManagement.addDependency(dependency("com.google.errorprone", "error_prone_core", "2.47.0", "errorprone"));
+        dependencyManagement.addDependency(dependency("com.uber.nullaway", "nullaway", "0.13.1", "errorprone"));
+        for (int i = 0; i < MANAGED_DEPENDENCIES; i++) {
+            dependencyManagement.addDependency(dependency("com.example.managed", "library-" + i, "1." + i, "jar"));
+        }
+        model.setDependencyManagement(dependencyManagement);
+        return new MavenProject(model);
+    }
+
+    private List<MojoExecution> createExecutionPlan(int index) {
+        List<MojoExecution> executionPlan = new ArrayList<>();
+        executionPlan.add(execution("maven-resources-plugin", "resources", "default-resources", new Xpp3Dom("configuration")));
+        executionPlan.add(execution("maven-compiler-plugin", "compile", "default-compile", compilerConfiguration(index)));
+        executionPlan.add(execution("maven-resources-plugin", "testResources", "default-testResources",
+                new Xpp3Dom("configuration")));
+        executionPlan.add(execution("maven-compiler-plugin", "testCompile", "default-testCompile",
+                compilerConfiguration(index)));
+        executionPlan.add(execution("maven-surefire-plugin", "test", "default-test", new Xpp3Dom("configuration")));
+        executionPlan.add(execution("maven-jar-plugin", "jar", "default-jar", new Xpp3Dom("configuration")));
+        for (MojoExecution execution : executionPlan) {
+            if ("maven-compiler-plugin".equals(execution.getArtifactId())) {
+                compilerConfigurations.put(execution, new Xpp3Dom(execution.getConfiguration()));
+            }
+        }
+        return executionPlan;
+    }
+
+    private static Xpp3Dom compilerConfiguration(int index) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        configuration.addChild(value("release", "${maven.compiler.release}", null));
+        configuration.addChild(value("fork", "${maven.compiler.fork}", "false"));
+        configuration.addChild(value("compilerId", "${maven.compiler.compilerId}", "javac"));
+        configuration.addChild(value("parameters", "true", "false"));
+        Xpp3Dom annotationProcessorPaths = new Xpp3Dom("annotationProcessorPaths");
+        annotationProcessorPaths.addChild(path("org.projectlombok", "lombok", "${lombok.version}"));
+        annotationProcessorPaths.addChild(path("org.mapstruct", "mapstruct-processor", "${mapstruct.version}"));
+        if (index % 2 == 0) {
+            annotationProcessorPaths.addChild(path("com.google.errorprone", "error_prone_core", "2.47.0"));
+        }
+        configuration.addChild(annotationProcessorPaths);
+        Xpp3Dom compilerArgs = new Xpp3Dom("compilerArgs");
+        compilerArgs.addChild(value("arg", "-Xlint:${lint}", null));
+        compilerArgs.addChild(value("arg", "-parameters", null));
+        for (int i = 0; i < INHERITED_COMPILER_ARGS; i++) {
+            compilerArgs.addChild(value("arg", "-Acompiler.option" + i + "=${compiler.option" + i + "}", null));
+        }
+        configuration.addChild(compilerArgs);
+        return configuration;
+    }
+
+    private static MojoExecution execution(String artifactId, String goal, String executionId, Xpp3Dom configuration) {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId(artifactId);
+        MojoExecution execution = new MojoExecution(plugin, goal, executionId);
+        execution.setConfiguration(configuration);
+        return execution;
+    }
+
+    private static Dependency dependency(String groupId, String artifactId, String version, String type) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        dependency.setType(type);
+        return dependency;
+    }
+
+    private static Xpp3Dom path(String groupId, String artifactId, String version) {
+        Xpp3Dom path = new Xpp3Dom("path");
+        path.addChild(value("groupId", groupId, null));
+        path.addChild(value("artifactId", artifactId, null));
+        path.addChild(value("version", version, null));
+        return path;
+    }
+
+    private static Xpp3Dom value(String name, String value, String defaultValue) {
+        Xpp3Dom dom = new Xpp3Dom(name);
+        dom.setValue(value);
+        if (defaultValue != null) {
+            dom.setAttribute("default-value", defaultValue);
+        }
+        return dom;
+    }
+
+}
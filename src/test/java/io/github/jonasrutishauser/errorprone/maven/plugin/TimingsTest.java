@@ -0,0 +1,44 @@
+package io.github.jonasrutishauser.errorprone.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimingsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesAndReads() throws IOException {
+        Timings timings = new Timings(3, 2_000, 1_000, Map.of("MissingOverride", 400L, "Namespace:Check", 600L));
+        Path file = directory.resolve("errorprone").resolve(Timings.FILE_NAME);
+
+        timings.write(file);
+
+        assertEquals(timings, Timings.read(file));
+    }
+
+    @Test
+    void readsMissingValuesAsZero() throws IOException {
+        Path file = Files.writeString(directory.resolve(Timings.FILE_NAME), "check.MissingOverride=5\n");
+
+        assertEquals(new Timings(0, 0, 0, Map.of("MissingOverride", 5L)), Timings.read(file));
+    }
+
+    @Test
+    void plusAddsUpTheChecks() {
+        Timings first = new Timings(1, 10, 5, Map.of("A", 2L, "B", 3L));
+        Timings second = new Timings(2, 20, 7, Map.of("B", 4L, "C", 1L));
+
+        assertEquals(new Timings(3, 30, 12, Map.of("A", 2L, "B", 7L, "C", 1L)), first.plus(second));
+        assertEquals(first, Timings.empty().plus(first));
+    }
+
+}
@@ -0,0 +1,21 @@
+package io.github.jonasrutishauser.maven.test;
+
+import org.jspecify.annotations.Nullable;
+
+public class SomeObject {
+
+    private @Nullable String someField;
+
+    public SomeObject(@Nullable String someField) {
+        this.someField = someField;
+    }
+
+    public @Nullable String getSomeField() {
+        return someField;
+    }
+
+    public void setSomeField(@Nullable String someField) {
+        this.someField = someField;
+    }
+
+}
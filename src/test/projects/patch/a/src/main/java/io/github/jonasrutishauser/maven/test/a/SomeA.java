@@ -0,0 +1,9 @@
+package io.github.jonasrutishauser.maven.test.a;
+
+public class SomeA {
+
+    public String toString() {
+        return "a";
+    }
+
+}
@@ -0,0 +1,9 @@
+package io.github.jonasrutishauser.maven.test.b;
+
+public class SomeB {
+
+    public String toString() {
+        return "b";
+    }
+
+}